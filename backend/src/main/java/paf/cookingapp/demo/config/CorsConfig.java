@@ -26,6 +26,7 @@ public class CorsConfig {
         // Expose headers that frontend might need
         config.addExposedHeader("Authorization");
         config.addExposedHeader("Content-Disposition");
+        config.addExposedHeader("X-Next-Cursor");
         
         // How long the browser should cache the CORS response
         config.setMaxAge(3600L);
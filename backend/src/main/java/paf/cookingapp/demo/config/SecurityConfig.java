@@ -2,31 +2,42 @@ package paf.cookingapp.demo.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import paf.cookingapp.demo.security.JwtAuthenticationFilter;
+import paf.cookingapp.demo.security.JwtTokenProvider;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }    @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtTokenProvider jwtTokenProvider) throws Exception {
         http
             .csrf(csrf -> csrf.disable())
             .cors(cors -> cors.configure(http))
             .authorizeHttpRequests(auth -> auth
+                // Token cache metrics reveal sign-in activity, so they need a valid token
+                .requestMatchers("/api/auth/token-cache/metrics").authenticated()
+                // Maintenance jobs scan whole collections and the coverage report runs explain on them
+                .requestMatchers(HttpMethod.POST,
+                    "/api/notifications/groups/rebuild",
+                    "/api/notifications/unread/reconcile",
+                    "/api/posts/counters/reconcile",
+                    "/api/learning-stats/rebuild",
+                    "/api/leaderboards/rebuild").authenticated()
+                .requestMatchers("/api/admin/**").authenticated()
                 .requestMatchers("/**").permitAll()
                 .anyRequest().permitAll()
             )
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
-            .httpBasic(basic -> basic.disable());
+            .httpBasic(basic -> basic.disable())
+            // Not a bean, so it only runs inside the security chain and not a second time as a servlet filter
+            .addFilterBefore(new JwtAuthenticationFilter(jwtTokenProvider), UsernamePasswordAuthenticationFilter.class);
         return http.build();
     }
 }
@@ -2,6 +2,8 @@ package paf.cookingapp.demo.config;
 
 import org.springframework.context.annotation.Configuration;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.context.annotation.Bean;
@@ -15,6 +17,15 @@ import java.io.File;
 @EnableWebMvc
 public class WebConfig implements WebMvcConfigurer {
 
+    // Streaming exports run on async request threads; the servlet default timeout would cut off large exports
+    @Value("${web.async.request-timeout-ms:600000}")
+    private long asyncRequestTimeoutMs;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(asyncRequestTimeoutMs);
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         String uploadDir = new File("uploads").getAbsolutePath();
@@ -3,15 +3,19 @@ package paf.cookingapp.demo.controller;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import paf.cookingapp.demo.model.User;
 import paf.cookingapp.demo.repository.UserRepository;
 import paf.cookingapp.demo.security.JwtTokenProvider;
+import paf.cookingapp.demo.service.PasswordHashingService;
+import paf.cookingapp.demo.service.UserSearchIndex;
+import paf.cookingapp.demo.service.UserSummaryService;
 
 import jakarta.validation.Valid;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Collections;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdTokenVerifier;
 import paf.cookingapp.demo.model.ProfileUpdateRequest;
@@ -30,11 +34,17 @@ public class AuthController {
     private UserRepository userRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
 
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
+    @Autowired
+    private UserSummaryService userSummaryService;
+
     private final String GOOGLE_CLIENT_ID = "351068781419-3pu3srbviiea5oasgf35akgj8nfc8nid.apps.googleusercontent.com";    private final GoogleIdTokenVerifier verifier = new GoogleIdTokenVerifier.Builder(
             new NetHttpTransport(), GsonFactory.getDefaultInstance())
             .setAudience(Collections.singletonList(GOOGLE_CLIENT_ID))
@@ -49,8 +59,10 @@ public class AuthController {
                 return ResponseEntity.badRequest().body("Username is already in use!");
             }
 
-            user.setPassword(passwordEncoder.encode(user.getPassword()));
+            // Hashed on the bounded hashing pool rather than on the request thread
+            user.setPassword(passwordHashingService.encode(user.getPassword()));
             User savedUser = userRepository.save(user);
+            userSearchIndex.index(savedUser);
 
             String token = jwtTokenProvider.generateToken(savedUser.getEmail());
             
@@ -59,6 +71,8 @@ public class AuthController {
             response.put("user", savedUser);
 
             return ResponseEntity.ok(response);
+        } catch (ResponseStatusException e) {
+            return busyResponse(e);
         } catch (Exception e) {
             e.printStackTrace(); // For debugging
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -68,21 +82,46 @@ public class AuthController {
         String emailOrUsername = loginRequest.get("email");
         String password = loginRequest.get("password");
 
-        return userRepository.findByEmailOrUsername(emailOrUsername, emailOrUsername)
-                .map(user -> {
-                    if (passwordEncoder.matches(password, user.getPassword())) {
-                        String token = jwtTokenProvider.generateToken(user.getEmail());
-                        Map<String, Object> response = new HashMap<>();
-                        response.put("token", token);
-                        response.put("user", user);
-                        return ResponseEntity.ok(response);
-                    } else {
-                        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                                .body("Invalid password");
-                    }
-                })
-                .orElse(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                        .body("User not found"));
+        Optional<User> found = userRepository.findByEmailOrUsername(emailOrUsername, emailOrUsername);
+        if (found.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body("User not found");
+        }
+        User user = found.get();
+
+        try {
+            if (!passwordHashingService.matches(password, user.getPassword())) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                        .body("Invalid password");
+            }
+        } catch (ResponseStatusException e) {
+            return busyResponse(e);
+        }
+        // Hashes created with an older, lower cost are replaced in the background
+        passwordHashingService.upgradeIfNeeded(user, password);
+
+        String token = jwtTokenProvider.generateToken(user.getEmail());
+        Map<String, Object> response = new HashMap<>();
+        response.put("token", token);
+        response.put("user", user);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/token-cache/metrics")
+    public ResponseEntity<Map<String, Object>> getTokenCacheMetrics() {
+        return ResponseEntity.ok(jwtTokenProvider.getCacheMetrics());
+    }
+
+    @GetMapping("/hashing/metrics")
+    public ResponseEntity<Map<String, Object>> getHashingMetrics() {
+        return ResponseEntity.ok(passwordHashingService.getMetrics());
+    }
+
+    // Saturated hashing pool: tell the client to back off briefly instead of waiting
+    private ResponseEntity<?> busyResponse(ResponseStatusException e) {
+        return ResponseEntity.status(e.getStatusCode())
+                .header("Retry-After", "1")
+                .body(e.getReason());
     }
 
     @PostMapping("/google")
@@ -99,8 +138,10 @@ public class AuthController {
                         newUser.setEmail(email);
                         newUser.setUsername((String) payload.get("name"));
                         // Set a secure random password for Google users
-                        newUser.setPassword(passwordEncoder.encode(java.util.UUID.randomUUID().toString()));
-                        return userRepository.save(newUser);
+                        newUser.setPassword(passwordHashingService.encode(java.util.UUID.randomUUID().toString()));
+                        User savedUser = userRepository.save(newUser);
+                        userSearchIndex.index(savedUser);
+                        return savedUser;
                     });
 
                 String token = jwtTokenProvider.generateToken(email);
@@ -111,6 +152,8 @@ public class AuthController {
                 return ResponseEntity.ok(response);
             }
             return ResponseEntity.badRequest().body("Invalid Google token");
+        } catch (ResponseStatusException e) {
+            return busyResponse(e);
         } catch (Exception e) {
             e.printStackTrace(); // Add logging
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -129,6 +172,8 @@ public class AuthController {
                     }
                     
                     User savedUser = userRepository.save(existingUser);
+                    userSearchIndex.index(savedUser);
+                    userSummaryService.invalidate(savedUser.getId());
                     
                     // Create a response object without sensitive information
                     Map<String, Object> response = new HashMap<>();
@@ -1,30 +1,65 @@
 package paf.cookingapp.demo.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import paf.cookingapp.demo.model.Follow;
+import paf.cookingapp.demo.model.UserSummary;
 import paf.cookingapp.demo.repository.FollowRepository;
+import paf.cookingapp.demo.service.FollowGraphService;
+import paf.cookingapp.demo.service.FollowSuggestionService;
+import paf.cookingapp.demo.service.TimelineService;
+import paf.cookingapp.demo.service.UserSummaryService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/follow")
 @CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
 public class FollowController {
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_CHECK_IDS = 500;
 
     @Autowired
     private FollowRepository followRepository;
 
+    @Autowired
+    private TimelineService timelineService;
+
+    @Autowired
+    private FollowGraphService followGraphService;
+
+    @Autowired
+    private UserSummaryService userSummaryService;
+
+    @Autowired
+    private FollowSuggestionService followSuggestionService;
+
     @PostMapping("/{followerId}/{followingId}")
     public ResponseEntity<?> followUser(@PathVariable String followerId, @PathVariable String followingId) {
         if (followerId.equals(followingId)) {
             return ResponseEntity.badRequest().body("Users cannot follow themselves");
         }
+        // Following twice is a no-op; the unique (followerId, followingId) index backs this up
+        if (isFollowing(followerId, followingId)) {
+            return ResponseEntity.ok().build();
+        }
 
         Follow follow = new Follow();
         follow.setFollowerId(followerId);
         follow.setFollowingId(followingId);
-        followRepository.save(follow);
+        try {
+            followRepository.save(follow);
+        } catch (DuplicateKeyException e) {
+            followGraphService.addEdge(followerId, followingId);
+            return ResponseEntity.ok().build();
+        }
+        followGraphService.addEdge(followerId, followingId);
+        followSuggestionService.onFollowChanged(followerId, followingId);
+        timelineService.onFollow(followerId, followingId);
         
         return ResponseEntity.ok().build();
     }
@@ -32,7 +67,13 @@ public class FollowController {
     @DeleteMapping("/{followerId}/{followingId}")
     public ResponseEntity<?> unfollowUser(@PathVariable String followerId, @PathVariable String followingId) {
         followRepository.findByFollowerIdAndFollowingId(followerId, followingId)
-            .ifPresent(follow -> followRepository.delete(follow));
+            .ifPresent(follow -> {
+                followRepository.delete(follow);
+                timelineService.onUnfollow(followerId, followingId);
+            });
+        if (followGraphService.removeEdge(followerId, followingId)) {
+            followSuggestionService.onFollowChanged(followerId, followingId);
+        }
         return ResponseEntity.ok().build();
     }
 
@@ -40,7 +81,128 @@ public class FollowController {
     public ResponseEntity<Map<String, Boolean>> checkFollowStatus(
             @PathVariable String followerId,
             @PathVariable String followingId) {
-        boolean isFollowing = followRepository.existsByFollowerIdAndFollowingId(followerId, followingId);
-        return ResponseEntity.ok(Map.of("isFollowing", isFollowing));
+        return ResponseEntity.ok(Map.of("isFollowing", isFollowing(followerId, followingId)));
+    }
+
+    // Batch form of the check for rendering lists of users: {"ids": [...]} -> {id: true/false}
+    @PostMapping("/check/{followerId}")
+    public ResponseEntity<?> checkFollowStatuses(
+            @PathVariable String followerId,
+            @RequestBody Map<String, List<String>> request) {
+        List<String> ids = request.get("ids");
+        if (ids == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "ids is required"));
+        }
+        if (ids.size() > MAX_CHECK_IDS) {
+            return ResponseEntity.badRequest().body(Map.of("error", "At most " + MAX_CHECK_IDS + " ids per request"));
+        }
+        if (!followGraphService.isReady()) {
+            return ResponseEntity.status(503).body(Map.of("error", "Follow graph is loading"));
+        }
+        return ResponseEntity.ok(followGraphService.isFollowingAll(followerId, ids));
+    }
+
+    @GetMapping("/{userId}/counts")
+    public ResponseEntity<?> getCounts(@PathVariable String userId) {
+        if (!followGraphService.isReady()) {
+            return ResponseEntity.status(503).body(Map.of("error", "Follow graph is loading"));
+        }
+        return ResponseEntity.ok(Map.of(
+            "followers", followGraphService.getFollowerCount(userId),
+            "following", followGraphService.getFollowingCount(userId)
+        ));
+    }
+
+    @GetMapping("/{userId}/followers")
+    public ResponseEntity<?> getFollowers(
+            @PathVariable String userId,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "50") int limit) {
+        if (!followGraphService.isReady()) {
+            return ResponseEntity.status(503).body(Map.of("error", "Follow graph is loading"));
+        }
+        List<String> ids = followGraphService.getFollowers(userId, offset, Math.min(limit, MAX_PAGE_SIZE));
+        return ResponseEntity.ok(userPage(ids, offset, followGraphService.getFollowerCount(userId)));
+    }
+
+    @GetMapping("/{userId}/following")
+    public ResponseEntity<?> getFollowing(
+            @PathVariable String userId,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "50") int limit) {
+        if (!followGraphService.isReady()) {
+            return ResponseEntity.status(503).body(Map.of("error", "Follow graph is loading"));
+        }
+        List<String> ids = followGraphService.getFollowing(userId, offset, Math.min(limit, MAX_PAGE_SIZE));
+        return ResponseEntity.ok(userPage(ids, offset, followGraphService.getFollowingCount(userId)));
+    }
+
+    // Friends-of-friends ranked by mutual follows, served from the precomputed cache
+    @GetMapping("/suggestions/{userId}")
+    public ResponseEntity<?> getSuggestions(
+            @PathVariable String userId,
+            @RequestParam(defaultValue = "10") int limit) {
+        if (!followGraphService.isReady()) {
+            return ResponseEntity.status(503).body(Map.of("error", "Follow graph is loading"));
+        }
+        List<FollowSuggestionService.Suggestion> suggestions =
+            followSuggestionService.getSuggestions(userId, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+        Map<String, UserSummary> summaries = userSummaryService.getAll(
+            suggestions.stream().map(FollowSuggestionService.Suggestion::getUserId).toList());
+        List<Map<String, Object>> users = new ArrayList<>();
+        for (FollowSuggestionService.Suggestion suggestion : suggestions) {
+            UserSummary summary = summaries.get(suggestion.getUserId());
+            if (summary == null) {
+                continue;
+            }
+            Map<String, Object> user = new HashMap<>();
+            user.put("id", summary.getId());
+            user.put("username", summary.getUsername());
+            user.put("fullName", summary.getFullName());
+            user.put("bio", summary.getBio());
+            user.put("profilePicture", summary.getProfilePicture());
+            user.put("mutualCount", suggestion.getMutualCount());
+            users.add(user);
+        }
+        return ResponseEntity.ok(users);
+    }
+
+    @GetMapping("/suggestions/metrics")
+    public ResponseEntity<Map<String, Object>> getSuggestionMetrics() {
+        return ResponseEntity.ok(followSuggestionService.getMetrics());
+    }
+
+    @GetMapping("/graph/metrics")
+    public ResponseEntity<Map<String, Object>> getGraphMetrics() {
+        return ResponseEntity.ok(followGraphService.getMetrics());
+    }
+
+    // Served from the in-memory graph once loaded; the database answers during startup
+    private boolean isFollowing(String followerId, String followingId) {
+        if (followGraphService.isReady()) {
+            return followGraphService.isFollowing(followerId, followingId);
+        }
+        return followRepository.existsByFollowerIdAndFollowingId(followerId, followingId);
+    }
+
+    private Map<String, Object> userPage(List<String> ids, int offset, int total) {
+        Map<String, UserSummary> summaries = userSummaryService.getAll(ids);
+        List<Map<String, Object>> users = new ArrayList<>();
+        for (String id : ids) {
+            UserSummary summary = summaries.get(id);
+            Map<String, Object> user = new HashMap<>();
+            user.put("id", id);
+            if (summary != null) {
+                user.put("username", summary.getUsername());
+                user.put("fullName", summary.getFullName());
+                user.put("profilePicture", summary.getProfilePicture());
+            }
+            users.add(user);
+        }
+        Map<String, Object> page = new HashMap<>();
+        page.put("users", users);
+        page.put("offset", offset);
+        page.put("total", total);
+        return page;
     }
 }
@@ -0,0 +1,33 @@
+package paf.cookingapp.demo.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import paf.cookingapp.demo.service.IndexManager;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/indexes")
+@CrossOrigin(origins = "http://localhost:3000")
+public class IndexController {
+
+    @Autowired
+    private IndexManager indexManager;
+
+    // Declared indexes and their build status
+    @GetMapping
+    public ResponseEntity<List<Map<String, Object>>> getIndexes() {
+        return ResponseEntity.ok(indexManager.indexReport());
+    }
+
+    // Which hot query shapes are served by an index and which fall back to a COLLSCAN
+    @GetMapping("/coverage")
+    public ResponseEntity<?> getCoverage() {
+        try {
+            return ResponseEntity.ok(indexManager.coverageReport());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Error building coverage report: " + e.getMessage()));
+        }
+    }
+}
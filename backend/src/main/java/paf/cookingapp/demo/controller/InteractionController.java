@@ -1,22 +1,29 @@
 package paf.cookingapp.demo.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import paf.cookingapp.demo.model.Interaction;
 import paf.cookingapp.demo.model.Post;
-import paf.cookingapp.demo.model.User;
 import paf.cookingapp.demo.repository.InteractionRepository;
 import paf.cookingapp.demo.repository.PostRepository;
 import paf.cookingapp.demo.repository.UserRepository;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
-import org.springframework.data.mongodb.core.query.Update;
 import java.util.List;
 import java.util.Map;
 import paf.cookingapp.demo.service.InteractionService;
+import paf.cookingapp.demo.service.LikeWriteBuffer;
+import paf.cookingapp.demo.service.NotificationService;
+import paf.cookingapp.demo.service.KeysetPage;
+import paf.cookingapp.demo.service.NotificationStreamService;
+import paf.cookingapp.demo.service.PostCounterService;
+import paf.cookingapp.demo.service.UnreadCounterService;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import java.util.stream.Collectors;
 import org.springframework.data.domain.Sort;
 import java.util.HashMap;
@@ -26,7 +33,7 @@ import java.time.LocalDateTime;
 @CrossOrigin(
     origins = "http://localhost:3000",
     allowedHeaders = {"Content-Type", "Authorization", "X-Requested-With"},
-    exposedHeaders = {"Access-Control-Allow-Origin"},
+    exposedHeaders = {"Access-Control-Allow-Origin", InteractionController.NEXT_CURSOR_HEADER},
     methods = {
         RequestMethod.GET,
         RequestMethod.POST,
@@ -38,6 +45,7 @@ import java.time.LocalDateTime;
 )
 @RequestMapping("/api")
 public class InteractionController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     
     @Autowired
     private MongoTemplate mongoTemplate;
@@ -54,6 +62,21 @@ public class InteractionController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PostCounterService postCounterService;
+
+    @Autowired
+    private LikeWriteBuffer likeWriteBuffer;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationStreamService notificationStreamService;
+
+    @Autowired
+    private UnreadCounterService unreadCounterService;
+
     // Likes endpoints
     @PostMapping("/likes")
     public ResponseEntity<?> createLike(@RequestBody Map<String, String> request) {
@@ -67,53 +90,10 @@ public class InteractionController {
                 return ResponseEntity.badRequest().body(error);
             }
 
-            // Convert to Long for Post lookup
-            Long postIdLong;
-            try {
-                postIdLong = Long.parseLong(postIdStr);
-            } catch (NumberFormatException e) {
-                return ResponseEntity.badRequest().body(Map.of("error", "Invalid post ID format"));
-            }
-
-            // Get post details using numeric ID
-            // Get post using the PostService's getPostByPostId method
-            Post post = mongoTemplate.findOne(
-                org.springframework.data.mongodb.core.query.Query.query(
-                    Criteria.where("postId").is(postIdLong)
-                ),
-                Post.class
-            );
-            if (post == null) {
-                return ResponseEntity.badRequest().body(Map.of("error", "Post not found"));
-            }
-
-            // Check for existing like
-            Query existingLikeQuery = new Query(
-                Criteria.where("postId").is(postIdStr)
-                    .and("userId").is(userId)
-                    .and("type").is(Interaction.TYPE_LIKE)
-            );
-            
-            if (mongoTemplate.exists(existingLikeQuery, Interaction.class)) {
-                return ResponseEntity.badRequest().body(Map.of("error", "Like already exists"));
-            }
-
-            // Get user details
-            User user = userRepository.findById(userId)
-                .orElseThrow(() -> new Exception("User not found"));
-
-            // Create like
-            Interaction like = new Interaction();
-            like.setPostId(postIdStr);  // Keep as String in Interaction
-            like.setPostOwnerId(post.getUserId());
-            like.setUserId(userId);
-            like.setUsername(user.getUsername());
-            like.setType(Interaction.TYPE_LIKE);
-            like.setCreatedAt(LocalDateTime.now());
-            like.setRead(false);
-
-            Interaction savedLike = interactionRepository.save(like);
-            return ResponseEntity.ok(savedLike);
+            // Idempotent upsert; liking an already liked post succeeds without creating a duplicate
+            return ResponseEntity.ok(interactionService.like(postIdStr, userId));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", "Error creating like: " + e.getMessage()));
         }
@@ -122,53 +102,26 @@ public class InteractionController {
     @DeleteMapping("/likes/by-post/{postId}/user/{userId}")
     public ResponseEntity<?> deleteLike(@PathVariable String postId, @PathVariable String userId) {
         try {
-            // Convert postId to Long and verify it's valid
-            Long postIdLong;
-            try {
-                postIdLong = Long.parseLong(postId);
-            } catch (NumberFormatException e) {
-                return ResponseEntity.badRequest().body(Map.of("error", "Invalid post ID format"));
-            }
-
-            // Verify post exists
-            Post post = mongoTemplate.findOne(
-                org.springframework.data.mongodb.core.query.Query.query(
-                    Criteria.where("postId").is(postIdLong)
-                ),
-                Post.class
-            );
-            if (post == null) {
-                return ResponseEntity.badRequest().body(Map.of("error", "Post not found"));
-            }
-
-            // Find and delete the like
-            Query query = new Query(
-                Criteria.where("postId").is(postId)
-                    .and("userId").is(userId)
-                    .and("type").is(Interaction.TYPE_LIKE)
-            );
-            
-            Interaction like = mongoTemplate.findOne(query, Interaction.class);
-            if (like == null) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            mongoTemplate.remove(query, Interaction.class);
-            return ResponseEntity.ok().build();
+            // Idempotent delete; unliking a post that is not liked is not an error
+            boolean removed = interactionService.unlike(postId, userId);
+            return ResponseEntity.ok(Map.of("removed", removed));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", "Error deleting like: " + e.getMessage()));
         }
     }
 
+    @GetMapping("/likes/buffer/metrics")
+    public ResponseEntity<Map<String, Object>> getLikeBufferMetrics() {
+        return ResponseEntity.ok(likeWriteBuffer.getMetrics());
+    }
+
     @GetMapping("/likes/count-by-post/{postId}")
     public ResponseEntity<?> getLikeCountByPost(@PathVariable String postId) {
         try {
-            Query query = new Query(
-                Criteria.where("postId").is(postId)
-                    .and("type").is(Interaction.TYPE_LIKE)
-            );
-            long count = mongoTemplate.count(query, Interaction.class);
-            return ResponseEntity.ok(count);
+            // Served from the denormalized counter on the post instead of counting interactions
+            return ResponseEntity.ok(postCounterService.getLikeCount(postId));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", "Error getting like count: " + e.getMessage()));
         }
@@ -195,13 +148,7 @@ public class InteractionController {
                 return ResponseEntity.badRequest().body(Map.of("error", "Post not found"));
             }
 
-            Query query = new Query(
-                Criteria.where("postId").is(postId)
-                    .and("userId").is(userId)
-                    .and("type").is(Interaction.TYPE_LIKE)
-            );
-            boolean hasLiked = mongoTemplate.exists(query, Interaction.class);
-            return ResponseEntity.ok(hasLiked);
+            return ResponseEntity.ok(interactionService.hasLiked(postId, userId));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", "Error checking like status: " + e.getMessage()));
         }
@@ -269,21 +216,25 @@ public class InteractionController {
                 return ResponseEntity.badRequest().body(Map.of("error", "Post not found"));
             }
 
-            // Get user details for username
-            User user = userRepository.findById(userId)
-                .orElseThrow(() -> new Exception("User not found"));
+            // Username comes from the shared user summary cache
+            String username = interactionService.getUsername(userId);
+            if (username == null) {
+                throw new Exception("User not found");
+            }
 
             Interaction comment = new Interaction();
             comment.setPostId(postId);
             comment.setPostOwnerId(post.getUserId());
             comment.setUserId(userId);
-            comment.setUsername(user.getUsername());
+            comment.setUsername(username);
             comment.setType(Interaction.TYPE_COMMENT);
             comment.setContent(content);
             comment.setCreatedAt(LocalDateTime.now());
             comment.setRead(false);
             
             Interaction savedComment = interactionRepository.save(comment);
+            postCounterService.adjustCommentCount(postId, 1);
+            interactionService.publishNotification(savedComment);
             return ResponseEntity.ok(savedComment);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", "Error creating comment: " + e.getMessage()));
@@ -319,104 +270,88 @@ public class InteractionController {
         }
     }
 
-    // Notifications endpoints
+    // Notifications endpoints; keyset-paginated, the cursor for the next page is returned in the X-Next-Cursor header
     @GetMapping("/notifications")
     public ResponseEntity<?> getNotifications(
         @RequestParam String userId,
         @RequestParam(defaultValue = "false") boolean unreadOnly,
-        @RequestParam(defaultValue = "0") int page,
+        @RequestParam(required = false) String cursor,
         @RequestParam(defaultValue = "20") int size
     ) {
         try {
-            // Query directly using postOwnerId since it's stored in the interaction
-            Criteria criteria = new Criteria();
-            criteria.andOperator(
-                Criteria.where("postOwnerId").is(userId),  // Get interactions for posts owned by this user
-                Criteria.where("userId").ne(userId),       // Interaction is not by the user themselves
-                Criteria.where("type").in(Interaction.TYPE_LIKE, Interaction.TYPE_COMMENT) // Only like and comment interactions
-            );
-
-            if (unreadOnly) {
-                criteria = criteria.and("read").is(false);
-            }
+            LocalDateTime fetchedAt = LocalDateTime.now();
+            // Read state is derived from the user's watermark instead of per-interaction flags
+            LocalDateTime lastReadAt = unreadCounterService.getLastReadAt(userId);
 
-            // Build query with pagination and sort by most recent first
-            Query query = Query.query(criteria)
-                .with(Sort.by(Sort.Direction.DESC, "createdAt"))
-                .skip(page * size)
-                .limit(size);
+            // Pre-grouped rows maintained at write time, one per post, type and time bucket
+            KeysetPage<Map<String, Object>> notifications =
+                notificationService.getNotifications(userId, lastReadAt, unreadOnly, cursor, size);
 
-            List<Interaction> notifications = mongoTemplate.find(query, Interaction.class);
-            
-            // Mark notifications as read if they weren't already
-            if (!notifications.isEmpty() && !unreadOnly) {
-                Query updateQuery = Query.query(criteria.and("read").is(false));
-                Update update = Update.update("read", true);
-                mongoTemplate.updateMulti(updateQuery, update, Interaction.class);
+            // Viewing the list marks everything up to now as read; the watermark is written asynchronously
+            if (!notifications.getItems().isEmpty() && !unreadOnly) {
+                unreadCounterService.markRead(userId, fetchedAt);
             }
 
-            // Get post info for each notification with proper post lookup
-            return ResponseEntity.ok(notifications.stream()
-                .map(notification -> {
-                    Map<String, Object> enriched = new HashMap<>();
-                    enriched.put("id", notification.getId());
-                    enriched.put("username", notification.getUsername());  // Changed from userId to username
-                    enriched.put("type", notification.getType());
-                    enriched.put("content", notification.getContent());
-                    enriched.put("createdAt", notification.getCreatedAt());
-                    enriched.put("read", notification.isRead());
-                    
-                    // Add user profile picture
-                    User user = userRepository.findById(notification.getUserId())
-                        .orElse(null);
-                    if (user != null && user.getProfilePicture() != null) {
-                        enriched.put("profilePicture", user.getProfilePicture());
-                    }
-
-                    // Find associated post
-                    Post post = mongoTemplate.findOne(
-                        Query.query(Criteria.where("id").is(notification.getPostId())),
-                        Post.class
-                    );
-                    
-                    if (post != null) {
-                        Map<String, Object> postInfo = new HashMap<>();
-                        postInfo.put("id", post.getId());
-                        postInfo.put("title", post.getTitle());
-                        if (post.getMediaUrls() != null && !post.getMediaUrls().isEmpty()) {
-                            postInfo.put("thumbnailUrl", post.getMediaUrls().get(0));
-                        }
-                        enriched.put("post", postInfo);
-                    }
-
-                    return enriched;
-                })
-                .collect(Collectors.toList()));
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (notifications.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, notifications.getNextCursor());
+            }
+            return response.body(notifications.getItems());
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid cursor"));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                 .body(Map.of("error", "Error fetching notifications: " + e.getMessage()));
         }
     }
 
+    // Push channel replacing notification polling; EventSource resends Last-Event-ID on reconnect
+    @GetMapping(value = "/notifications/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamNotifications(
+        @RequestParam String userId,
+        @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId
+    ) {
+        return notificationStreamService.subscribe(userId, lastEventId);
+    }
+
+    @GetMapping("/notifications/stream/metrics")
+    public ResponseEntity<Map<String, Object>> getNotificationStreamMetrics() {
+        return ResponseEntity.ok(notificationStreamService.getMetrics());
+    }
+
+    // Replays all interactions, so it runs in the background; poll the GET for the report
+    @PostMapping("/notifications/groups/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildNotificationGroups() {
+        if (!notificationService.rebuildGroupsInBackground()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("status", "already running"));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("status", "started"));
+    }
+
+    @GetMapping("/notifications/groups/rebuild")
+    public ResponseEntity<Map<String, Object>> getNotificationGroupRebuild() {
+        return ResponseEntity.ok(notificationService.getLastRebuildReport());
+    }
+
     @GetMapping("/notifications/unread/count")
     public ResponseEntity<?> getUnreadNotificationsCount(@RequestParam String userId) {
         try {
-            // Build criteria for counting unread notifications using postOwnerId
-            Criteria criteria = new Criteria();
-            criteria.andOperator(
-                Criteria.where("postOwnerId").is(userId),   // Get interactions for posts owned by this user
-                Criteria.where("userId").ne(userId),        // Interaction is not by the user themselves
-                Criteria.where("type").in(Interaction.TYPE_LIKE, Interaction.TYPE_COMMENT), // Only like and comment interactions
-                Criteria.where("read").is(false)           // Only unread notifications
-            );
-
-            Query query = Query.query(criteria);
-            long count = mongoTemplate.count(query, Interaction.class);
-            return ResponseEntity.ok(Map.of("count", count));
+            // Served from the materialized per-user counter instead of counting interactions
+            return ResponseEntity.ok(Map.of("count", unreadCounterService.getUnreadCount(userId)));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                 .body(Map.of("error", "Error getting unread count: " + e.getMessage()));
         }
     }
+
+    @PostMapping("/notifications/unread/reconcile")
+    public ResponseEntity<Map<String, Object>> reconcileUnreadCounters() {
+        return ResponseEntity.ok(unreadCounterService.reconcile());
+    }
+
+    @GetMapping("/notifications/unread/reconcile")
+    public ResponseEntity<Map<String, Object>> getUnreadReconcileReport() {
+        return ResponseEntity.ok(unreadCounterService.getLastReport());
+    }
 }
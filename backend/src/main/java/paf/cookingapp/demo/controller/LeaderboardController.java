@@ -0,0 +1,64 @@
+package paf.cookingapp.demo.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import paf.cookingapp.demo.service.LeaderboardService;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/leaderboards")
+@CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true", allowedHeaders = "*")
+public class LeaderboardController {
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    // Learners of one course ranked by completed steps; the boards are in memory and load in the background at startup
+    @GetMapping
+    public ResponseEntity<?> getLeaderboard(
+            @RequestParam String course,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        if (!leaderboardService.isReady()) {
+            return ResponseEntity.status(503).body(Map.of("message", "Leaderboards are loading"));
+        }
+        if (page < 0) {
+            return ResponseEntity.badRequest().body(Map.of("message", "page must not be negative"));
+        }
+        return ResponseEntity.ok(leaderboardService.getPage(course, page, size));
+    }
+
+    @GetMapping("/rank")
+    public ResponseEntity<?> getRank(@RequestParam String course, @RequestParam String userId) {
+        if (!leaderboardService.isReady()) {
+            return ResponseEntity.status(503).body(Map.of("message", "Leaderboards are loading"));
+        }
+        Map<String, Object> rank = leaderboardService.getRank(course, userId);
+        if (rank == null) {
+            return ResponseEntity.status(404).body(Map.of("message", "User has no activity in this course"));
+        }
+        return ResponseEntity.ok(rank);
+    }
+
+    // Reads every learning_stats document, so it runs in the background; poll the GET for the report
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuild() {
+        if (!leaderboardService.rebuildInBackground()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("status", "already running"));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("status", "started"));
+    }
+
+    @GetMapping("/rebuild")
+    public ResponseEntity<Map<String, Object>> lastRebuild() {
+        return ResponseEntity.ok(leaderboardService.getLastReport());
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        return ResponseEntity.ok(leaderboardService.getMetrics());
+    }
+}
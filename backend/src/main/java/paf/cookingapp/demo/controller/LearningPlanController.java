@@ -1,40 +1,84 @@
 package paf.cookingapp.demo.controller;
 
 import paf.cookingapp.demo.model.LearningPlan;
+import paf.cookingapp.demo.model.TimelineStep;
+import paf.cookingapp.demo.model.User;
 import paf.cookingapp.demo.repository.LearningPlanRepository;
+import paf.cookingapp.demo.repository.UserRepository;
+import paf.cookingapp.demo.service.KeysetPage;
+import paf.cookingapp.demo.service.LearningPlanService;
+import paf.cookingapp.demo.service.NdjsonStreamer;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
-import java.util.List;
+import java.time.ZoneOffset;
+import java.util.HashMap;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/plan")
-@CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true", allowedHeaders = "*")
+@CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true", allowedHeaders = "*", exposedHeaders = {LearningPlanController.NEXT_CURSOR_HEADER})
 public class LearningPlanController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
     private static final Logger logger = LoggerFactory.getLogger(LearningPlanController.class);
 
     @Autowired
     private LearningPlanRepository repository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private NdjsonStreamer ndjsonStreamer;
+
+    @Autowired
+    private LearningPlanService learningPlanService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // One user's plans, newest first, as summaries without details/timeline; the next page cursor is in X-Next-Cursor.
+    // With a token the listing is the caller's own; userId is only used by clients that do not send one.
     @GetMapping
-    public ResponseEntity<?> getAllPlans() {
-        logger.info("Attempting to retrieve all plans...");
+    public ResponseEntity<?> getPlans(
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            Authentication authentication) {
+        if (authentication != null && authentication.isAuthenticated()) {
+            User caller = userRepository.findByEmail(authentication.getName()).orElse(null);
+            if (caller != null) {
+                if (userId != null && !userId.isBlank() && !userId.equals(caller.getId())) {
+                    return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Cannot list another user's plans"));
+                }
+                userId = caller.getId();
+            }
+        }
+        if (userId == null || userId.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("message", "userId is required"));
+        }
         try {
-            List<LearningPlan> plans = repository.findAll();
-            logger.info("Successfully retrieved {} plans", plans.size());
-            if (plans.isEmpty()) {
-                return ResponseEntity.ok(List.of());
+            KeysetPage<LearningPlan> page = learningPlanService.listPlans(userId, cursor, limit);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
             }
-            return ResponseEntity.ok(plans);
+            return response.body(page.getItems());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Invalid cursor"));
         } catch (Exception e) {
-            logger.error("Error retrieving plans: {}", e.getMessage(), e);
+            logger.error("Error retrieving plans for user {}: {}", userId, e.getMessage(), e);
             return ResponseEntity
                     .status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of(
@@ -44,6 +88,12 @@ public class LearningPlanController {
         }
     }
 
+    // Streams every plan as NDJSON from a cursor instead of materializing findAll()
+    @GetMapping(value = "/stream", produces = NdjsonStreamer.NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAllPlans() {
+        return ndjsonStreamer.response(() -> mongoTemplate.stream(new Query().cursorBatchSize(200), LearningPlan.class));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<LearningPlan> getPlanById(@PathVariable String id) {
         return repository.findById(id)
@@ -87,8 +137,9 @@ public class LearningPlanController {
             plan.setDetails(plan.getDetails() != null ? plan.getDetails().trim() : "");
             plan.setTemplateType(plan.getTemplateType() != null ? plan.getTemplateType().trim().toLowerCase() : "");
             plan.setUserId(plan.getUserId() != null ? plan.getUserId() : "1");
+            plan.setVersion(0L);
 
-            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
             if (plan.getDateCreated() == null) {
                 plan.setDateCreated(now);
             }
@@ -96,9 +147,17 @@ public class LearningPlanController {
                 plan.setLastModified(now);
             }
 
+            if (plan.getTimeline() != null) {
+                for (TimelineStep step : plan.getTimeline()) {
+                    if (step != null && step.isCompleted() && step.getCompletedAt() == null) {
+                        step.setCompletedAt(now);
+                    }
+                }
+            }
+
             // Log timeline before saving
             logger.info("Timeline before save: {}", plan.getTimeline());
-            LearningPlan savedPlan = repository.save(plan);
+            LearningPlan savedPlan = learningPlanService.saved(repository.save(plan));
             logger.info("Saved plan: {}", savedPlan);
             logger.info("Saved plan timeline: {}", savedPlan.getTimeline());
             logger.info("Saved plan with dates - created: {}, modified: {}", savedPlan.getDateCreated(), savedPlan.getLastModified());
@@ -116,28 +175,88 @@ public class LearningPlanController {
         }
     }
 
+    // Full-form edit; only the supplied fields are written, and a "version" in the body makes it conditional
     @PutMapping("/{id}")
-    public ResponseEntity<LearningPlan> updatePlan(@PathVariable String id, @RequestBody LearningPlan plan) {
-        return repository.findById(id)
-                .map(existingPlan -> {
-                    if (plan.getCourseName() != null) {
-                        existingPlan.setCourseName(plan.getCourseName().trim());
-                    }
-                    if (plan.getTitle() != null) {
-                        existingPlan.setTitle(plan.getTitle().trim());
-                    }
-                    if (plan.getDetails() != null) {
-                        existingPlan.setDetails(plan.getDetails().trim());
-                    }
-                    if (plan.getTemplateType() != null) {
-                        existingPlan.setTemplateType(plan.getTemplateType().trim().toLowerCase());
-                    }
+    public ResponseEntity<?> updatePlan(@PathVariable String id, @RequestBody LearningPlan plan) {
+        Map<String, Object> fields = new HashMap<>();
+        if (plan.getCourseName() != null) {
+            fields.put("courseName", plan.getCourseName());
+        }
+        if (plan.getTitle() != null) {
+            fields.put("title", plan.getTitle());
+        }
+        if (plan.getDetails() != null) {
+            fields.put("details", plan.getDetails());
+        }
+        if (plan.getTemplateType() != null) {
+            fields.put("templateType", plan.getTemplateType());
+        }
+        try {
+            return ResponseEntity.ok(learningPlanService.updateFields(id, fields, plan.getVersion()));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("message", e.getReason()));
+        }
+    }
 
-                    existingPlan.setLastModified(LocalDateTime.now());
+    // Partial updates: {field: value, ..., "version": n}; a stale version is rejected with 409
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> patchPlan(@PathVariable String id, @RequestBody Map<String, Object> body) {
+        try {
+            return ResponseEntity.ok(learningPlanService.updateFields(id, changes(body), expectedVersion(body)));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("message", e.getReason()));
+        }
+    }
 
-                    return ResponseEntity.ok(repository.save(existingPlan));
-                })
-                .orElse(ResponseEntity.notFound().build());
+    @PatchMapping("/{id}/timeline/{index}")
+    public ResponseEntity<?> patchStep(@PathVariable String id, @PathVariable int index, @RequestBody Map<String, Object> body) {
+        try {
+            return ResponseEntity.ok(learningPlanService.updateStep(id, index, changes(body), expectedVersion(body)));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("message", e.getReason()));
+        }
+    }
+
+    @PostMapping("/{id}/timeline")
+    public ResponseEntity<?> addStep(
+            @PathVariable String id,
+            @RequestBody TimelineStep step,
+            @RequestParam(required = false) Integer position,
+            @RequestParam(required = false) Long version) {
+        try {
+            return ResponseEntity.ok(learningPlanService.addStep(id, step, position, version));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("message", e.getReason()));
+        }
+    }
+
+    @DeleteMapping("/{id}/timeline/{index}")
+    public ResponseEntity<?> removeStep(
+            @PathVariable String id,
+            @PathVariable int index,
+            @RequestParam(required = false) Long version) {
+        try {
+            return ResponseEntity.ok(learningPlanService.removeStep(id, index, version));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("message", e.getReason()));
+        }
+    }
+
+    static Map<String, Object> changes(Map<String, Object> body) {
+        Map<String, Object> changes = new HashMap<>(body);
+        changes.remove("version");
+        return changes;
+    }
+
+    static Long expectedVersion(Map<String, Object> body) {
+        Object version = body.get("version");
+        if (version == null) {
+            return null;
+        }
+        if (!(version instanceof Number number)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "version must be a number");
+        }
+        return number.longValue();
     }
 
     @DeleteMapping("/{id}")
@@ -145,6 +264,7 @@ public class LearningPlanController {
         return repository.findById(id)
                 .map(plan -> {
                     repository.delete(plan);
+                    learningPlanService.deleted(plan);
                     return ResponseEntity.ok().build();
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -2,14 +2,22 @@ package paf.cookingapp.demo.controller;
 
 import paf.cookingapp.demo.model.LearningProgress;
 import paf.cookingapp.demo.repository.LearningProgressRepository;
+import paf.cookingapp.demo.service.LearningProgressService;
+import paf.cookingapp.demo.service.NdjsonStreamer;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,6 +31,15 @@ public class LearningProgressController {
     @Autowired
     private LearningProgressRepository repository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private NdjsonStreamer ndjsonStreamer;
+
+    @Autowired
+    private LearningProgressService learningProgressService;
+
     @GetMapping
     public ResponseEntity<?> getAllProgress() {
         logger.info("Attempting to retrieve all progress records...");
@@ -44,6 +61,12 @@ public class LearningProgressController {
         }
     }
 
+    // Streams every progress record as NDJSON from a cursor instead of materializing findAll()
+    @GetMapping(value = "/stream", produces = NdjsonStreamer.NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAllProgress() {
+        return ndjsonStreamer.response(() -> mongoTemplate.stream(new Query().cursorBatchSize(200), LearningProgress.class));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<LearningProgress> getProgressById(@PathVariable String id) {
         return repository.findById(id)
@@ -100,9 +123,10 @@ public class LearningProgressController {
             progress.setDetails(progress.getDetails() != null ? progress.getDetails().trim() : "");
             progress.setTemplateType(progress.getTemplateType().trim().toLowerCase());
             progress.setUserId(progress.getUserId() != null ? progress.getUserId() : "1");
+            progress.setVersion(0L);
 
             // Set timestamps with UTC time
-            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
             if (progress.getDateCreated() == null) {
                 progress.setDateCreated(now);
             }
@@ -111,7 +135,7 @@ public class LearningProgressController {
             }
 
             // Save and validate response
-            LearningProgress savedProgress = repository.save(progress);
+            LearningProgress savedProgress = learningProgressService.saved(repository.save(progress));
             logger.info("Saved progress with dates - created: {}, modified: {}", 
                 savedProgress.getDateCreated(), 
                 savedProgress.getLastModified());
@@ -130,29 +154,37 @@ public class LearningProgressController {
         }
     }
 
+    // Only the supplied fields are written; a "version" in the body makes the update conditional
     @PutMapping("/{id}")
-    public ResponseEntity<LearningProgress> updateProgress(@PathVariable String id, @RequestBody LearningProgress progress) {
-        return repository.findById(id)
-                .map(existingProgress -> {
-                    // Clean up the update data
-                    if (progress.getCourseName() != null) {
-                        existingProgress.setCourseName(progress.getCourseName().trim());
-                    }
-                    if (progress.getTitle() != null) {
-                        existingProgress.setTitle(progress.getTitle().trim());
-                    }
-                    if (progress.getDetails() != null) {
-                        existingProgress.setDetails(progress.getDetails().trim());
-                    }
-                    if (progress.getTemplateType() != null) {
-                        existingProgress.setTemplateType(progress.getTemplateType().trim().toLowerCase());
-                    }
-                    
-                    existingProgress.setLastModified(LocalDateTime.now());
-                    
-                    return ResponseEntity.ok(repository.save(existingProgress));
-                })
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> updateProgress(@PathVariable String id, @RequestBody LearningProgress progress) {
+        Map<String, Object> fields = new HashMap<>();
+        if (progress.getCourseName() != null) {
+            fields.put("courseName", progress.getCourseName());
+        }
+        if (progress.getTitle() != null) {
+            fields.put("title", progress.getTitle());
+        }
+        if (progress.getDetails() != null) {
+            fields.put("details", progress.getDetails());
+        }
+        if (progress.getTemplateType() != null) {
+            fields.put("templateType", progress.getTemplateType());
+        }
+        try {
+            return ResponseEntity.ok(learningProgressService.updateFields(id, fields, progress.getVersion()));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("message", e.getReason()));
+        }
+    }
+
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> patchProgress(@PathVariable String id, @RequestBody Map<String, Object> body) {
+        try {
+            return ResponseEntity.ok(learningProgressService.updateFields(id,
+                    LearningPlanController.changes(body), LearningPlanController.expectedVersion(body)));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("message", e.getReason()));
+        }
     }
 
     @DeleteMapping("/{id}")
@@ -160,6 +192,7 @@ public class LearningProgressController {
         return repository.findById(id)
                 .map(progress -> {
                     repository.delete(progress);
+                    learningProgressService.deleted(progress);
                     return ResponseEntity.ok().build();
                 })
                 .orElse(ResponseEntity.notFound().build());
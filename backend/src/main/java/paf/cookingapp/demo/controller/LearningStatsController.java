@@ -0,0 +1,38 @@
+package paf.cookingapp.demo.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import paf.cookingapp.demo.service.LearningStatsService;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/learning-stats")
+@CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true", allowedHeaders = "*")
+public class LearningStatsController {
+
+    @Autowired
+    private LearningStatsService learningStatsService;
+
+    // Dashboard statistics for one user, served from a single precomputed document
+    @GetMapping("/{userId}")
+    public ResponseEntity<Map<String, Object>> getStats(@PathVariable String userId) {
+        return ResponseEntity.ok(learningStatsService.getStats(userId));
+    }
+
+    // Streams every plan and progress record, so it runs in the background; poll the GET for the report
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuild() {
+        if (!learningStatsService.rebuildInBackground()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("status", "already running"));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("status", "started"));
+    }
+
+    @GetMapping("/rebuild")
+    public ResponseEntity<Map<String, Object>> lastRebuild() {
+        return ResponseEntity.ok(learningStatsService.getLastReport());
+    }
+}
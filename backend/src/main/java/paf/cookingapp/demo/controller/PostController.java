@@ -4,17 +4,34 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import paf.cookingapp.demo.model.Post;
+import paf.cookingapp.demo.service.KeysetPage;
+import paf.cookingapp.demo.service.PostCardService;
+import paf.cookingapp.demo.service.PostCounterService;
+import paf.cookingapp.demo.service.NdjsonStreamer;
 import paf.cookingapp.demo.service.PostService;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/posts")
-@CrossOrigin(origins = "http://localhost:3000", methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE, RequestMethod.OPTIONS})
+@CrossOrigin(origins = "http://localhost:3000", exposedHeaders = {PostController.NEXT_CURSOR_HEADER}, methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE, RequestMethod.OPTIONS})
 public class PostController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     private PostService postService;
 
+    @Autowired
+    private PostCardService postCardService;
+
+    @Autowired
+    private PostCounterService postCounterService;
+
+    @Autowired
+    private NdjsonStreamer ndjsonStreamer;
+
     @PostMapping
     public ResponseEntity<Post> createPost(@RequestBody Post post) {
         try {
@@ -32,9 +49,86 @@ public class PostController {
         return post != null ? ResponseEntity.ok(post) : ResponseEntity.notFound().build();
     }
 
+    // Keyset-paginated home feed; the cursor for the next page is returned in the X-Next-Cursor header
     @GetMapping
-    public ResponseEntity<List<Map<String, Object>>> getAllPosts() {
-        return ResponseEntity.ok(postService.getAllPosts());
+    public ResponseEntity<List<Map<String, Object>>> getAllPosts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            KeysetPage<Map<String, Object>> page = postService.getFeed(cursor, limit);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getItems());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Full export of all posts as NDJSON, streamed from a Mongo cursor
+    @GetMapping(value = "/stream", produces = NdjsonStreamer.NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAllPosts() {
+        return ndjsonStreamer.response(postService::streamAllPosts);
+    }
+
+    @GetMapping(value = "/user/{userId}/stream", produces = NdjsonStreamer.NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamUserPosts(@PathVariable String userId) {
+        return ndjsonStreamer.response(() -> postService.streamUserPosts(userId));
+    }
+
+    // Posts from the accounts the user follows, plus their own, newest first
+    @GetMapping("/timeline/{userId}")
+    public ResponseEntity<List<Map<String, Object>>> getTimeline(
+            @PathVariable String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            KeysetPage<Map<String, Object>> page = postService.getTimeline(userId, cursor, limit);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getItems());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Like count, viewer like state, comment count, newest comments and author for a page of posts in one call
+    @PostMapping("/cards")
+    public ResponseEntity<?> getPostCards(@RequestBody Map<String, Object> request) {
+        Object rawIds = request.get("postIds");
+        if (!(rawIds instanceof List<?> idList)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "postIds is required"));
+        }
+        if (idList.size() > PostCardService.MAX_POSTS_PER_REQUEST) {
+            return ResponseEntity.badRequest().body(Map.of("error", "At most " + PostCardService.MAX_POSTS_PER_REQUEST + " postIds per request"));
+        }
+
+        List<String> postIds = new ArrayList<>();
+        for (Object id : idList) {
+            if (id != null) {
+                postIds.add(String.valueOf(id));
+            }
+        }
+        Object viewerId = request.get("viewerId");
+        try {
+            return ResponseEntity.ok(postCardService.getCards(postIds, viewerId != null ? String.valueOf(viewerId) : null));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Error loading post cards: " + e.getMessage()));
+        }
+    }
+
+    // Rebuilds likeCount/commentCount from interactions and reports how many posts had drifted
+    @PostMapping("/counters/reconcile")
+    public ResponseEntity<Map<String, Object>> reconcileCounters() {
+        return ResponseEntity.ok(postCounterService.reconcile());
+    }
+
+    @GetMapping("/counters/reconcile")
+    public ResponseEntity<Map<String, Object>> getLastReconcileReport() {
+        return ResponseEntity.ok(postCounterService.getLastReport());
     }
 
     @GetMapping("/user/{userId}")
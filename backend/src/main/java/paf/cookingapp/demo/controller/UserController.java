@@ -7,7 +7,10 @@ import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import paf.cookingapp.demo.model.User;
+import paf.cookingapp.demo.model.UserSummary;
 import paf.cookingapp.demo.repository.UserRepository;
+import paf.cookingapp.demo.service.UserSearchIndex;
+import paf.cookingapp.demo.service.UserSummaryService;
 
 import java.util.*;
 import java.util.regex.Pattern;
@@ -17,66 +20,115 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/users")
 @CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true", allowedHeaders = "*")
 public class UserController {
+    private static final int MAX_SEARCH_RESULTS = 50;
+    private static final int MAX_BATCH_SIZE = 300;
     
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
+    @Autowired
+    private UserSummaryService userSummaryService;
+
     @Autowired
     private MongoTemplate mongoTemplate;
 
     @GetMapping("/{id}")
     public ResponseEntity<?> getUser(@PathVariable String id) {
-        return userRepository.findById(id)
-            .map(user -> {
-                // Create a response without sensitive information
-                Map<String, Object> response = new HashMap<>();
-                response.put("id", user.getId());
-                response.put("username", user.getUsername());
-                response.put("fullName", user.getFullName());
-                response.put("bio", user.getBio());
-                response.put("profilePicture", user.getProfilePicture());
-                return ResponseEntity.ok(response);
-            })
-            .orElse(ResponseEntity.notFound().build());
+        // Served from the shared summary cache, which never holds sensitive fields
+        UserSummary user = userSummaryService.get(id);
+        if (user == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(toPublicProfile(user));
+    }
+
+    // Public profiles for many users in one request, e.g. all authors on a feed page
+    @GetMapping("/batch")
+    public ResponseEntity<?> getUsersBatch(@RequestParam List<String> ids) {
+        return batchResponse(ids);
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<?> postUsersBatch(@RequestBody Map<String, List<String>> request) {
+        List<String> ids = request.get("ids");
+        if (ids == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "ids is required"));
+        }
+        return batchResponse(ids);
+    }
+
+    // Cached summaries plus at most one projected $in query for the misses; unknown ids are skipped
+    private ResponseEntity<?> batchResponse(List<String> ids) {
+        Set<String> uniqueIds = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (id != null && !id.isBlank()) {
+                uniqueIds.add(id.trim());
+            }
+        }
+        if (uniqueIds.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "At most " + MAX_BATCH_SIZE + " ids per request"));
+        }
+        Map<String, UserSummary> usersById = userSummaryService.getAll(uniqueIds);
+        List<Map<String, Object>> users = uniqueIds.stream()
+            .map(usersById::get)
+            .filter(Objects::nonNull)
+            .map(this::toPublicProfile)
+            .collect(Collectors.toList());
+        return ResponseEntity.ok(users);
+    }
+
+    @GetMapping("/cache/metrics")
+    public ResponseEntity<Map<String, Object>> getUserCacheMetrics() {
+        return ResponseEntity.ok(userSummaryService.getMetrics());
     }    @GetMapping("/search")
-    public ResponseEntity<?> searchUsers(@RequestParam String query) {
+    public ResponseEntity<?> searchUsers(
+        @RequestParam String query,
+        @RequestParam(defaultValue = "10") int limit
+    ) {
         if (query == null || query.trim().isEmpty()) {
             return ResponseEntity.ok(Collections.emptyList());
         }
+        int topK = Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS));
 
-        String searchQuery = query.trim().toLowerCase();
-        String[] searchTerms = searchQuery.split("\\s+");
-        
-        List<Criteria> criteriaList = new ArrayList<>();
-        for (String term : searchTerms) {
-            // Don't quote the search term to allow partial matches
-            String regexPattern = ".*" + term + ".*";
-            Pattern pattern = Pattern.compile(regexPattern, Pattern.CASE_INSENSITIVE);
-            
-            criteriaList.add(new Criteria().orOperator(
-                Criteria.where("username").regex(pattern),
-                Criteria.where("fullName").regex(pattern),
-                Criteria.where("email").regex(pattern),
-                Criteria.where("bio").regex(pattern)
-            ));
-        }        // Combine all criteria with AND operator (each term must match something)
-        Criteria combinedCriteria = new Criteria().andOperator(criteriaList.toArray(new Criteria[0]));
-        Query mongoQuery = new Query(combinedCriteria);
-        List<User> users = mongoTemplate.find(mongoQuery, User.class);
+        List<String> rankedIds;
+        if (userSearchIndex.isReady()) {
+            rankedIds = userSearchIndex.search(query, topK);
+        } else {
+            // Index still loading after startup: anchored prefix match on username only
+            Query prefixQuery = Query.query(Criteria.where("username")
+                .regex("^" + Pattern.quote(query.trim()), "i")).limit(topK);
+            prefixQuery.fields().include("_id");
+            rankedIds = mongoTemplate.find(prefixQuery, User.class).stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+        }
+        if (rankedIds.isEmpty()) {
+            return ResponseEntity.ok(Collections.emptyList());
+        }
 
-        // Map users to DTOs without sensitive information
-        List<Map<String, Object>> userDTOs = users.stream()
-            .map(user -> {
-                Map<String, Object> dto = new HashMap<>();
-                dto.put("id", user.getId());
-                dto.put("username", user.getUsername());
-                dto.put("fullName", user.getFullName());
-                dto.put("bio", user.getBio());
-                dto.put("profilePicture", user.getProfilePicture());
-                return dto;
-            })
+        // Display fields for the top K only, then restore the ranking order
+        Map<String, UserSummary> usersById = userSummaryService.getAll(rankedIds);
+        List<Map<String, Object>> userDTOs = rankedIds.stream()
+            .map(usersById::get)
+            .filter(Objects::nonNull)
+            .map(this::toPublicProfile)
             .collect(Collectors.toList());
 
         return ResponseEntity.ok(userDTOs);
     }
+
+    // Public profile fields only; email and password hash are never returned
+    private Map<String, Object> toPublicProfile(UserSummary user) {
+        Map<String, Object> dto = new HashMap<>();
+        dto.put("id", user.getId());
+        dto.put("username", user.getUsername());
+        dto.put("fullName", user.getFullName());
+        dto.put("bio", user.getBio());
+        dto.put("profilePicture", user.getProfilePicture());
+        return dto;
+    }
 }
@@ -0,0 +1,23 @@
+package paf.cookingapp.demo.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+// Authors whose posts are merged into timelines at read time instead of being fanned out on write
+@Document(collection = "high_fanout_authors")
+public class HighFanoutAuthor {
+    @Id
+    private String id;  // Author's user id
+    private long followerCount;
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public long getFollowerCount() { return followerCount; }
+    public void setFollowerCount(long followerCount) { this.followerCount = followerCount; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -36,6 +36,9 @@ public class LearningPlan {
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
     private LocalDateTime lastModified;
 
+    // Bumped by every partial update; documents written before versioning read as null (version 0)
+    private Long version;
+
     private List<TimelineStep> timeline;
 
     public LearningPlan() {
@@ -69,6 +72,9 @@ public class LearningPlan {
     public LocalDateTime getLastModified() { return lastModified; }
     public void setLastModified(LocalDateTime lastModified) { this.lastModified = lastModified; }
 
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
     public List<TimelineStep> getTimeline() { return timeline; }
     public void setTimeline(List<TimelineStep> timeline) { this.timeline = timeline; }
 
@@ -35,6 +35,9 @@ public class LearningProgress {
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
     private LocalDateTime lastModified;
 
+    // Bumped by every partial update; documents written before versioning read as null (version 0)
+    private Long version;
+
     public LearningProgress() {
         LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
         this.dateCreated = now;
@@ -66,6 +69,9 @@ public class LearningProgress {
     public LocalDateTime getLastModified() { return lastModified; }
     public void setLastModified(LocalDateTime lastModified) { this.lastModified = lastModified; }
 
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
     @Override
     public String toString() {
         return String.format(
@@ -0,0 +1,164 @@
+package paf.cookingapp.demo.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Per-user learning statistics, one document per user keyed by userId. Totals and breakdowns are
+ * maintained incrementally; {@code plans} and {@code progress} hold each document's current
+ * contribution so an update can subtract the old one before adding the new one. Map keys taken
+ * from user input (course names, template types) are escaped, so each entry also stores its name.
+ */
+@Document(collection = "learning_stats")
+public class LearningStats {
+    @Id
+    private String id;
+
+    private long planCount;
+    private long progressCount;
+    private long stepsTotal;
+    private long stepsCompleted;
+
+    // ISO week ("2026-W42") -> steps completed that week
+    private Map<String, Long> weeklyCompleted;
+
+    private Map<String, Breakdown> byTemplateType;
+    private Map<String, Breakdown> byCourse;
+
+    private Map<String, PlanStats> plans;
+    private Map<String, ProgressStats> progress;
+
+    // Document id -> version it was deleted at, so a save event that arrives after the delete is ignored
+    private Map<String, Long> tombstones;
+
+    // Epoch day of the last activity and the run of consecutive active days ending there
+    private Long lastActiveDay;
+    private int currentStreak;
+    private int longestStreak;
+
+    private LocalDateTime updatedAt;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public long getPlanCount() { return planCount; }
+    public void setPlanCount(long planCount) { this.planCount = planCount; }
+
+    public long getProgressCount() { return progressCount; }
+    public void setProgressCount(long progressCount) { this.progressCount = progressCount; }
+
+    public long getStepsTotal() { return stepsTotal; }
+    public void setStepsTotal(long stepsTotal) { this.stepsTotal = stepsTotal; }
+
+    public long getStepsCompleted() { return stepsCompleted; }
+    public void setStepsCompleted(long stepsCompleted) { this.stepsCompleted = stepsCompleted; }
+
+    public Map<String, Long> getWeeklyCompleted() { return weeklyCompleted; }
+    public void setWeeklyCompleted(Map<String, Long> weeklyCompleted) { this.weeklyCompleted = weeklyCompleted; }
+
+    public Map<String, Breakdown> getByTemplateType() { return byTemplateType; }
+    public void setByTemplateType(Map<String, Breakdown> byTemplateType) { this.byTemplateType = byTemplateType; }
+
+    public Map<String, Breakdown> getByCourse() { return byCourse; }
+    public void setByCourse(Map<String, Breakdown> byCourse) { this.byCourse = byCourse; }
+
+    public Map<String, PlanStats> getPlans() { return plans; }
+    public void setPlans(Map<String, PlanStats> plans) { this.plans = plans; }
+
+    public Map<String, ProgressStats> getProgress() { return progress; }
+    public void setProgress(Map<String, ProgressStats> progress) { this.progress = progress; }
+
+    public Map<String, Long> getTombstones() { return tombstones; }
+    public void setTombstones(Map<String, Long> tombstones) { this.tombstones = tombstones; }
+
+    public Long getLastActiveDay() { return lastActiveDay; }
+    public void setLastActiveDay(Long lastActiveDay) { this.lastActiveDay = lastActiveDay; }
+
+    public int getCurrentStreak() { return currentStreak; }
+    public void setCurrentStreak(int currentStreak) { this.currentStreak = currentStreak; }
+
+    public int getLongestStreak() { return longestStreak; }
+    public void setLongestStreak(int longestStreak) { this.longestStreak = longestStreak; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public static class Breakdown {
+        private String name;
+        private long plans;
+        private long progress;
+        private long stepsTotal;
+        private long stepsCompleted;
+        // Latest plan or progress write in this course; breaks leaderboard ties in favour of recent learners
+        private LocalDateTime lastActivityAt;
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        public long getPlans() { return plans; }
+        public void setPlans(long plans) { this.plans = plans; }
+
+        public long getProgress() { return progress; }
+        public void setProgress(long progress) { this.progress = progress; }
+
+        public long getStepsTotal() { return stepsTotal; }
+        public void setStepsTotal(long stepsTotal) { this.stepsTotal = stepsTotal; }
+
+        public long getStepsCompleted() { return stepsCompleted; }
+        public void setStepsCompleted(long stepsCompleted) { this.stepsCompleted = stepsCompleted; }
+
+        public LocalDateTime getLastActivityAt() { return lastActivityAt; }
+        public void setLastActivityAt(LocalDateTime lastActivityAt) { this.lastActivityAt = lastActivityAt; }
+    }
+
+    public static class PlanStats {
+        private String title;
+        private String courseName;
+        private String templateType;
+        private long stepsTotal;
+        private long stepsCompleted;
+        // ISO week -> steps of this plan completed that week
+        private Map<String, Long> weeks;
+        // Plan version these figures were taken from
+        private Long version;
+
+        public String getTitle() { return title; }
+        public void setTitle(String title) { this.title = title; }
+
+        public String getCourseName() { return courseName; }
+        public void setCourseName(String courseName) { this.courseName = courseName; }
+
+        public String getTemplateType() { return templateType; }
+        public void setTemplateType(String templateType) { this.templateType = templateType; }
+
+        public long getStepsTotal() { return stepsTotal; }
+        public void setStepsTotal(long stepsTotal) { this.stepsTotal = stepsTotal; }
+
+        public long getStepsCompleted() { return stepsCompleted; }
+        public void setStepsCompleted(long stepsCompleted) { this.stepsCompleted = stepsCompleted; }
+
+        public Map<String, Long> getWeeks() { return weeks; }
+        public void setWeeks(Map<String, Long> weeks) { this.weeks = weeks; }
+
+        public Long getVersion() { return version; }
+        public void setVersion(Long version) { this.version = version; }
+    }
+
+    public static class ProgressStats {
+        private String courseName;
+        private String templateType;
+        private Long version;
+
+        public String getCourseName() { return courseName; }
+        public void setCourseName(String courseName) { this.courseName = courseName; }
+
+        public String getTemplateType() { return templateType; }
+        public void setTemplateType(String templateType) { this.templateType = templateType; }
+
+        public Long getVersion() { return version; }
+        public void setVersion(Long version) { this.version = version; }
+    }
+}
@@ -0,0 +1,26 @@
+package paf.cookingapp.demo.model;
+
+import java.time.LocalDateTime;
+
+public class NotificationActor {
+    private String userId;
+    private String username;
+    private LocalDateTime at;
+
+    public NotificationActor() {}
+
+    public NotificationActor(String userId, String username, LocalDateTime at) {
+        this.userId = userId;
+        this.username = username;
+        this.at = at;
+    }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public LocalDateTime getAt() { return at; }
+    public void setAt(LocalDateTime at) { this.at = at; }
+}
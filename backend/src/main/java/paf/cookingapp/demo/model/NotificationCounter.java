@@ -0,0 +1,27 @@
+package paf.cookingapp.demo.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+// Per-user notification state: persisted unread count and the read watermark
+@Document(collection = "notification_counters")
+public class NotificationCounter {
+    @Id
+    private String id;  // Post owner's user id
+    private long unread;
+    private LocalDateTime lastReadAt;  // Notifications created at or before this are read
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public long getUnread() { return unread; }
+    public void setUnread(long unread) { this.unread = unread; }
+
+    public LocalDateTime getLastReadAt() { return lastReadAt; }
+    public void setLastReadAt(LocalDateTime lastReadAt) { this.lastReadAt = lastReadAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
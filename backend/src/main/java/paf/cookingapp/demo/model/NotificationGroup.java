@@ -0,0 +1,49 @@
+package paf.cookingapp.demo.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// One notification row per (owner, post, type, time bucket), e.g. "alice and 41 others liked your post"
+@Document(collection = "notification_groups")
+public class NotificationGroup {
+    @Id
+    private String id;              // ownerId:postId:type:bucket
+    private String ownerId;
+    private String postId;          // Numeric post id stored as a string, as on interactions
+    private String type;            // LIKE or COMMENT
+    private LocalDateTime bucketStart;
+    private long actorCount;
+    private List<NotificationActor> recentActors = new ArrayList<>();  // Newest first, capped
+    private String latestContent;   // Newest comment text for COMMENT groups
+    private LocalDateTime latestAt;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getOwnerId() { return ownerId; }
+    public void setOwnerId(String ownerId) { this.ownerId = ownerId; }
+
+    public String getPostId() { return postId; }
+    public void setPostId(String postId) { this.postId = postId; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public LocalDateTime getBucketStart() { return bucketStart; }
+    public void setBucketStart(LocalDateTime bucketStart) { this.bucketStart = bucketStart; }
+
+    public long getActorCount() { return actorCount; }
+    public void setActorCount(long actorCount) { this.actorCount = actorCount; }
+
+    public List<NotificationActor> getRecentActors() { return recentActors; }
+    public void setRecentActors(List<NotificationActor> recentActors) { this.recentActors = recentActors; }
+
+    public String getLatestContent() { return latestContent; }
+    public void setLatestContent(String latestContent) { this.latestContent = latestContent; }
+
+    public LocalDateTime getLatestAt() { return latestAt; }
+    public void setLatestAt(LocalDateTime latestAt) { this.latestAt = latestAt; }
+}
@@ -0,0 +1,26 @@
+package paf.cookingapp.demo.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// One row per distinct actor in a notification group, kept out of the group so its size stays bounded
+@Document(collection = "notification_group_actors")
+public class NotificationGroupMember {
+    @Id
+    private String id;
+    private String groupId;
+    private String actorId;
+    private long count;             // The actor's interactions in the group; always 1 for likes
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getGroupId() { return groupId; }
+    public void setGroupId(String groupId) { this.groupId = groupId; }
+
+    public String getActorId() { return actorId; }
+    public void setActorId(String actorId) { this.actorId = actorId; }
+
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+}
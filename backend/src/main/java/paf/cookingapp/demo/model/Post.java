@@ -22,6 +22,10 @@ public class Post {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    // Denormalized counters, maintained with atomic $inc by PostCounterService
+    private long likeCount;
+    private long commentCount;
+
     // Initialize timestamps before persisting
     public void prePersist() {
         if (createdAt == null) {
@@ -57,4 +61,10 @@ public class Post {
     
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public long getLikeCount() { return likeCount; }
+    public void setLikeCount(long likeCount) { this.likeCount = likeCount; }
+
+    public long getCommentCount() { return commentCount; }
+    public void setCommentCount(long commentCount) { this.commentCount = commentCount; }
 }
@@ -0,0 +1,19 @@
+package paf.cookingapp.demo.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.util.List;
+
+// Materialized home timeline of one user, newest entries first and capped in size
+@Document(collection = "timelines")
+public class Timeline {
+    @Id
+    private String id;  // Same as the owning user's id
+    private List<TimelineEntry> entries;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public List<TimelineEntry> getEntries() { return entries; }
+    public void setEntries(List<TimelineEntry> entries) { this.entries = entries; }
+}
@@ -0,0 +1,26 @@
+package paf.cookingapp.demo.model;
+
+import java.time.LocalDateTime;
+
+public class TimelineEntry {
+    private Long postId;
+    private String authorId;
+    private LocalDateTime createdAt;
+
+    public TimelineEntry() {}
+
+    public TimelineEntry(Long postId, String authorId, LocalDateTime createdAt) {
+        this.postId = postId;
+        this.authorId = authorId;
+        this.createdAt = createdAt;
+    }
+
+    public Long getPostId() { return postId; }
+    public void setPostId(Long postId) { this.postId = postId; }
+
+    public String getAuthorId() { return authorId; }
+    public void setAuthorId(String authorId) { this.authorId = authorId; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -1,10 +1,18 @@
 package paf.cookingapp.demo.model;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+
 public class TimelineStep {
     private String step;
     private String duration;
     private boolean completed;
 
+    // When the step was last marked completed; drives the weekly completion statistics
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private LocalDateTime completedAt;
+
     public TimelineStep() {}
 
     public TimelineStep(String step, String duration, boolean completed) {
@@ -21,4 +29,7 @@ public class TimelineStep {
 
     public boolean isCompleted() { return completed; }
     public void setCompleted(boolean completed) { this.completed = completed; }
+
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
 }
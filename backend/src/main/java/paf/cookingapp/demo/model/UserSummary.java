@@ -0,0 +1,35 @@
+package paf.cookingapp.demo.model;
+
+// Public, cacheable view of a user; never carries email or password
+public class UserSummary {
+    private String id;
+    private String username;
+    private String fullName;
+    private String bio;
+    private String profilePicture;
+
+    public UserSummary() {}
+
+    public UserSummary(User user) {
+        this.id = user.getId();
+        this.username = user.getUsername();
+        this.fullName = user.getFullName();
+        this.bio = user.getBio();
+        this.profilePicture = user.getProfilePicture();
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public String getFullName() { return fullName; }
+    public void setFullName(String fullName) { this.fullName = fullName; }
+
+    public String getBio() { return bio; }
+    public void setBio(String bio) { this.bio = bio; }
+
+    public String getProfilePicture() { return profilePicture; }
+    public void setProfilePicture(String profilePicture) { this.profilePicture = profilePicture; }
+}
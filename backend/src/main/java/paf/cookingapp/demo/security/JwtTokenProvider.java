@@ -1,19 +1,70 @@
 package paf.cookingapp.demo.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
 import org.springframework.stereotype.Component;
+import paf.cookingapp.demo.service.LookupCache;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Map;
 
+/**
+ * Issues and verifies JWTs with a signing key loaded from {@code jwt.secret}, so every node
+ * accepts tokens issued by any other and restarts do not log users out. One parser is built at
+ * startup and reused; verified tokens are cached by SHA-256 hash until they expire, so repeat
+ * requests with the same token skip signature verification.
+ */
 @Component
 public class JwtTokenProvider {
+    private static final Logger logger = LoggerFactory.getLogger(JwtTokenProvider.class);
 
-    private final Key key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
-    private final long validityInMilliseconds = 3600000; // 1h
+    @Value("${jwt.secret:}")
+    private String secret;
+
+    @Value("${jwt.expiration-ms:3600000}")
+    private long validityInMilliseconds;
+
+    @Value("${jwt.cache-size:100000}")
+    private int cacheSize;
+
+    private Key key;
+    private JwtParser parser;
+    private LookupCache<String, VerifiedToken> verified;
+
+    @Autowired
+    private Environment environment;
+
+    @PostConstruct
+    public void init() {
+        if (secret == null || secret.isBlank()) {
+            // A random key only makes sense for a single dev process: tokens would not survive a restart or work across nodes
+            if (!environment.acceptsProfiles(Profiles.of("dev"))) {
+                throw new IllegalStateException("jwt.secret (JWT_SECRET) must be set; only the dev profile may run without it");
+            }
+            key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+            logger.warn("jwt.secret is not set; using a random signing key for this dev process");
+        } else {
+            key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        }
+        parser = Jwts.parserBuilder().setSigningKey(key).build();
+        verified = new LookupCache<>(cacheSize, validityInMilliseconds);
+    }
 
     public String generateToken(String email) {
         Date now = new Date();
@@ -27,22 +78,63 @@ public class JwtTokenProvider {
                 .compact();
     }
 
-    public String getEmailFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Returns the subject (email) of a valid, unexpired token, or {@code null} if the token is
+     * malformed, forged or expired.
+     */
+    public String verify(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        String tokenHash = hash(token);
+        VerifiedToken cached = verified.getIfPresent(tokenHash);
+        if (cached != null) {
+            if (cached.expiresAt > System.currentTimeMillis()) {
+                return cached.subject;
+            }
+            verified.invalidate(tokenHash);
+            return null;
+        }
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            long expiresAt = claims.getExpiration() != null
+                    ? claims.getExpiration().getTime()
+                    : System.currentTimeMillis() + validityInMilliseconds;
+            verified.put(tokenHash, new VerifiedToken(claims.getSubject(), expiresAt));
+            return claims.getSubject();
+        } catch (Exception e) {
+            return null;
+        }
+    }
 
-        return claims.getSubject();
+    public String getEmailFromToken(String token) {
+        return verify(token);
     }
 
     public boolean validateToken(String token) {
+        return verify(token) != null;
+    }
+
+    public Map<String, Object> getCacheMetrics() {
+        return verified.getMetrics();
+    }
+
+    private String hash(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
-            return true;
-        } catch (Exception e) {
-            return false;
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class VerifiedToken {
+        final String subject;
+        final long expiresAt;
+
+        VerifiedToken(String subject, long expiresAt) {
+            this.subject = subject;
+            this.expiresAt = expiresAt;
         }
     }
 }
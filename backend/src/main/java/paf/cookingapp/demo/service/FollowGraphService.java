@@ -0,0 +1,426 @@
+package paf.cookingapp.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import paf.cookingapp.demo.model.Follow;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory follow graph.
+ *
+ * User ids are mapped to dense ints and each user's followers and followings are kept as sorted
+ * primitive int arrays, so membership is a binary search and counts are array sizes. The graph
+ * is streamed from {@code follows} in the background at startup (retrying with backoff until it
+ * succeeds) and then kept current by the follow/unfollow endpoints. Edges written through other
+ * nodes are picked up by a periodic reload, which builds fresh adjacency lists off to the side
+ * (local edge changes go to both) and swaps them in; dense indexes are never reassigned, so
+ * index-based readers stay valid across a reload. Reads take a shared lock, edge changes an
+ * exclusive one.
+ */
+@Service
+public class FollowGraphService {
+    private static final Logger logger = LoggerFactory.getLogger(FollowGraphService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${follow-graph.retry-initial-ms:1000}")
+    private long retryInitialMs;
+
+    @Value("${follow-graph.retry-max-ms:60000}")
+    private long retryMaxMs;
+
+    private final Map<String, Integer> indexById = new ConcurrentHashMap<>();
+    private final List<String> idByIndex = new ArrayList<>();
+    private List<IntSet> following = new ArrayList<>();
+    private List<IntSet> followers = new ArrayList<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long edgeCount;
+    private volatile boolean ready;
+
+    // Adjacency being rebuilt by a load; null when no load is running
+    private List<IntSet> loadingFollowing;
+    private List<IntSet> loadingFollowers;
+    private long loadingEdgeCount;
+    private final AtomicBoolean loading = new AtomicBoolean(false);
+    private volatile LocalDateTime lastLoadedAt;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        startLoader(true);
+    }
+
+    @Scheduled(fixedDelayString = "${follow-graph.reload-interval-ms:3600000}",
+            initialDelayString = "${follow-graph.reload-interval-ms:3600000}")
+    public void scheduledReload() {
+        if (ready) {
+            startLoader(false);
+        }
+    }
+
+    // Loads run on their own thread so a large graph never holds up the scheduler
+    private void startLoader(boolean retryUntilLoaded) {
+        if (!loading.compareAndSet(false, true)) {
+            return;
+        }
+        Thread loader = new Thread(() -> {
+            try {
+                long backoff = retryInitialMs;
+                while (!load() && retryUntilLoaded) {
+                    logger.warn("Retrying follow graph load in {} ms", backoff);
+                    Thread.sleep(backoff);
+                    backoff = Math.min(backoff * 2, retryMaxMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                loading.set(false);
+            }
+        }, "follow-graph-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private boolean load() {
+        long started = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            loadingFollowing = emptyAdjacency(idByIndex.size());
+            loadingFollowers = emptyAdjacency(idByIndex.size());
+            loadingEdgeCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Query query = new Query().cursorBatchSize(5000);
+        query.fields().include("followerId", "followingId");
+        try (Stream<Follow> follows = mongoTemplate.stream(query, Follow.class)) {
+            follows.forEach(follow -> addLoadedEdge(follow.getFollowerId(), follow.getFollowingId()));
+        } catch (Exception e) {
+            logger.error("Failed to load follow graph: {}", e.getMessage(), e);
+            lock.writeLock().lock();
+            try {
+                loadingFollowing = null;
+                loadingFollowers = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return false;
+        }
+
+        lock.writeLock().lock();
+        try {
+            following = loadingFollowing;
+            followers = loadingFollowers;
+            edgeCount = loadingEdgeCount;
+            loadingFollowing = null;
+            loadingFollowers = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        ready = true;
+        lastLoadedAt = LocalDateTime.now();
+        logger.info("Follow graph loaded: {} users, {} edges in {} ms",
+                nodeCount(), edgeCount, System.currentTimeMillis() - started);
+        return true;
+    }
+
+    private void addLoadedEdge(String followerId, String followingId) {
+        if (followerId == null || followingId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int from = indexOf(followerId);
+            int to = indexOf(followingId);
+            if (loadingFollowing.get(from).add(to)) {
+                loadingFollowers.get(to).add(from);
+                loadingEdgeCount++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean addEdge(String followerId, String followingId) {
+        if (followerId == null || followingId == null) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            int from = indexOf(followerId);
+            int to = indexOf(followingId);
+            if (loadingFollowing != null && loadingFollowing.get(from).add(to)) {
+                loadingFollowers.get(to).add(from);
+                loadingEdgeCount++;
+            }
+            if (!following.get(from).add(to)) {
+                return false;
+            }
+            followers.get(to).add(from);
+            edgeCount++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean removeEdge(String followerId, String followingId) {
+        lock.writeLock().lock();
+        try {
+            Integer from = indexById.get(followerId);
+            Integer to = indexById.get(followingId);
+            if (from == null || to == null) {
+                return false;
+            }
+            if (loadingFollowing != null && loadingFollowing.get(from).remove(to)) {
+                loadingFollowers.get(to).remove(from);
+                loadingEdgeCount--;
+            }
+            if (!following.get(from).remove(to)) {
+                return false;
+            }
+            followers.get(to).remove(from);
+            edgeCount--;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isFollowing(String followerId, String followingId) {
+        lock.readLock().lock();
+        try {
+            Integer from = indexById.get(followerId);
+            Integer to = indexById.get(followingId);
+            return from != null && to != null && following.get(from).contains(to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // "Do I follow these users?" for a whole list under one lock acquisition
+    public Map<String, Boolean> isFollowingAll(String followerId, Collection<String> userIds) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            Integer from = indexById.get(followerId);
+            IntSet edges = from != null ? following.get(from) : null;
+            for (String userId : userIds) {
+                Integer to = indexById.get(userId);
+                result.put(userId, edges != null && to != null && edges.contains(to));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    public int getFollowerCount(String userId) {
+        return degree(userId, followers);
+    }
+
+    public int getFollowingCount(String userId) {
+        return degree(userId, following);
+    }
+
+    public List<String> getFollowers(String userId, int offset, int limit) {
+        return page(userId, followers, offset, limit);
+    }
+
+    public List<String> getFollowing(String userId, int offset, int limit) {
+        return page(userId, following, offset, limit);
+    }
+
+    public Map<String, Object> getMetrics() {
+        lock.readLock().lock();
+        try {
+            long arraySlots = 0;
+            for (int i = 0; i < idByIndex.size(); i++) {
+                arraySlots += following.get(i).capacity() + followers.get(i).capacity();
+            }
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("ready", ready);
+            metrics.put("users", idByIndex.size());
+            metrics.put("edges", edgeCount);
+            metrics.put("loading", loading.get());
+            metrics.put("lastLoadedAt", lastLoadedAt);
+            metrics.put("adjacencyBytes", arraySlots * Integer.BYTES);
+            return metrics;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Read-only accessors for graph algorithms that work on dense indexes (caller holds no lock)
+    int nodeCount() {
+        lock.readLock().lock();
+        try {
+            return idByIndex.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Integer indexIfPresent(String userId) {
+        return indexById.get(userId);
+    }
+
+    String idAt(int index) {
+        lock.readLock().lock();
+        try {
+            return idByIndex.get(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int[] followingOf(int index) {
+        lock.readLock().lock();
+        try {
+            return following.get(index).toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int[] followersOf(int index) {
+        lock.readLock().lock();
+        try {
+            return followers.get(index).toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock
+    private int indexOf(String userId) {
+        Integer index = indexById.get(userId);
+        if (index != null) {
+            return index;
+        }
+        int created = idByIndex.size();
+        idByIndex.add(userId);
+        following.add(new IntSet());
+        followers.add(new IntSet());
+        if (loadingFollowing != null) {
+            loadingFollowing.add(new IntSet());
+            loadingFollowers.add(new IntSet());
+        }
+        indexById.put(userId, created);
+        return created;
+    }
+
+    private static List<IntSet> emptyAdjacency(int size) {
+        List<IntSet> adjacency = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            adjacency.add(new IntSet());
+        }
+        return adjacency;
+    }
+
+    private int degree(String userId, List<IntSet> adjacency) {
+        lock.readLock().lock();
+        try {
+            Integer index = indexById.get(userId);
+            return index != null ? adjacency.get(index).size() : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<String> page(String userId, List<IntSet> adjacency, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            Integer index = indexById.get(userId);
+            if (index == null) {
+                return List.of();
+            }
+            IntSet edges = adjacency.get(index);
+            int from = Math.min(Math.max(0, offset), edges.size());
+            int to = Math.min(from + Math.max(0, limit), edges.size());
+            List<String> ids = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                ids.add(idByIndex.get(edges.get(i)));
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Sorted set of ints backed by a primitive array
+    static final class IntSet {
+        private static final int[] EMPTY = new int[0];
+        private int[] values = EMPTY;
+        private int size;
+
+        boolean add(int value) {
+            int position = Arrays.binarySearch(values, 0, size, value);
+            if (position >= 0) {
+                return false;
+            }
+            position = -position - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.max(4, size + (size >> 1)));
+            }
+            System.arraycopy(values, position, values, position + 1, size - position);
+            values[position] = value;
+            size++;
+            return true;
+        }
+
+        boolean remove(int value) {
+            int position = Arrays.binarySearch(values, 0, size, value);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(values, position + 1, values, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(int value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+
+        int get(int i) {
+            return values[i];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int capacity() {
+            return values.length;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package paf.cookingapp.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Friends-of-friends follow suggestions over the in-memory {@link FollowGraphService}.
+ *
+ * A user's candidates are the accounts followed by the accounts they follow, scored by how many
+ * of their followings lead there (mutual follows). Counting uses pooled primitive arrays, and
+ * both hops are capped at {@code suggestions.max-degree} (strided sampling above the cap), so a
+ * single computation is bounded even for celebrities. Suggestions for recently active users are
+ * precomputed on a schedule in a fork/join pool and served from a cache; follow edge changes
+ * invalidate the affected users, which are recomputed on their next request.
+ */
+@Service
+public class FollowSuggestionService {
+    private static final Logger logger = LoggerFactory.getLogger(FollowSuggestionService.class);
+
+    @Autowired
+    private FollowGraphService followGraphService;
+
+    @Value("${suggestions.size:20}")
+    private int suggestionCount;
+
+    @Value("${suggestions.max-degree:1000}")
+    private int maxDegree;
+
+    @Value("${suggestions.active-window-hours:72}")
+    private long activeWindowHours;
+
+    private final LookupCache<String, List<Suggestion>> cache = new LookupCache<>(200_000, 24 * 60 * 60 * 1000L);
+    private final Map<String, Long> lastActive = new ConcurrentHashMap<>();
+    // Pooled rather than thread-local: on-demand computes run on request virtual threads, which never repeat
+    private final BlockingQueue<Counters> counters = new ArrayBlockingQueue<>(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+    private final ForkJoinPool pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "follow-suggestions");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong computed = new AtomicLong();
+    private volatile long lastPrecomputeMs;
+    private volatile int lastPrecomputeUsers;
+
+    public List<Suggestion> getSuggestions(String userId, int limit) {
+        lastActive.put(userId, System.currentTimeMillis());
+        List<Suggestion> suggestions = cache.getIfPresent(userId);
+        if (suggestions == null) {
+            suggestions = compute(userId);
+            cache.put(userId, suggestions);
+        }
+        return suggestions.size() > limit ? suggestions.subList(0, limit) : suggestions;
+    }
+
+    /**
+     * A follow edge changed: the follower's own candidates change, and so do the 2-hop candidates
+     * of everyone who follows the follower. Their cached suggestions are dropped; the follower's
+     * are recomputed right away in the background.
+     */
+    public void onFollowChanged(String followerId, String followingId) {
+        cache.invalidate(followerId);
+        Integer follower = followGraphService.indexIfPresent(followerId);
+        if (follower != null) {
+            int[] upstream = followGraphService.followersOf(follower);
+            for (int i = 0; i < Math.min(upstream.length, maxDegree); i++) {
+                cache.invalidate(followGraphService.idAt(upstream[i]));
+            }
+        }
+        refresher.execute(() -> cache.put(followerId, compute(followerId)));
+    }
+
+    @Scheduled(cron = "${suggestions.precompute-cron:0 0 * * * *}")
+    public void precomputeActiveUsers() {
+        if (!followGraphService.isReady()) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(activeWindowHours);
+        lastActive.values().removeIf(at -> at < cutoff);
+        List<String> active = new ArrayList<>(lastActive.keySet());
+
+        long started = System.currentTimeMillis();
+        pool.submit(() -> active.parallelStream().forEach(userId -> cache.put(userId, compute(userId)))).join();
+        lastPrecomputeMs = System.currentTimeMillis() - started;
+        lastPrecomputeUsers = active.size();
+        logger.info("Precomputed follow suggestions for {} active users in {} ms", active.size(), lastPrecomputeMs);
+    }
+
+    List<Suggestion> compute(String userId) {
+        Integer user = followGraphService.indexIfPresent(userId);
+        if (user == null) {
+            return List.of();
+        }
+        computed.incrementAndGet();
+        int[] direct = followGraphService.followingOf(user);
+        Counters counts = counters.poll();
+        if (counts == null) {
+            counts = new Counters();
+        }
+        counts.ensureCapacity(followGraphService.nodeCount());
+        try {
+            int firstStride = stride(direct.length);
+            for (int i = 0; i < direct.length; i += firstStride) {
+                int[] secondHop = followGraphService.followingOf(direct[i]);
+                int secondStride = stride(secondHop.length);
+                for (int j = 0; j < secondHop.length; j += secondStride) {
+                    counts.increment(secondHop[j]);
+                }
+            }
+
+            // Min-heap keeps the best suggestionCount candidates without sorting all of them
+            PriorityQueue<int[]> best = new PriorityQueue<>(Comparator
+                    .<int[]>comparingInt(entry -> entry[1])
+                    .thenComparing(entry -> -entry[0]));
+            for (int k = 0; k < counts.touchedSize; k++) {
+                int candidate = counts.touched[k];
+                if (candidate == user || Arrays.binarySearch(direct, candidate) >= 0) {
+                    continue;
+                }
+                best.offer(new int[]{candidate, counts.counts[candidate]});
+                if (best.size() > suggestionCount) {
+                    best.poll();
+                }
+            }
+
+            List<Suggestion> suggestions = new ArrayList<>(best.size());
+            while (!best.isEmpty()) {
+                int[] entry = best.poll();
+                suggestions.add(new Suggestion(followGraphService.idAt(entry[0]), entry[1]));
+            }
+            Collections.reverse(suggestions);
+            return suggestions;
+        } finally {
+            counts.reset();
+            counters.offer(counts);
+        }
+    }
+
+    private int stride(int degree) {
+        return degree > maxDegree ? (degree + maxDegree - 1) / maxDegree : 1;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("activeUsers", lastActive.size());
+        metrics.put("computations", computed.get());
+        metrics.put("lastPrecomputeUsers", lastPrecomputeUsers);
+        metrics.put("lastPrecomputeMs", lastPrecomputeMs);
+        metrics.put("cache", cache.getMetrics());
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdown();
+        pool.shutdown();
+    }
+
+    public static class Suggestion {
+        private final String userId;
+        private final int mutualCount;
+
+        public Suggestion(String userId, int mutualCount) {
+            this.userId = userId;
+            this.mutualCount = mutualCount;
+        }
+
+        public String getUserId() { return userId; }
+        public int getMutualCount() { return mutualCount; }
+    }
+
+    // Sparse counting over dense node ids: counts[] is indexed by node, touched[] lists nonzero slots
+    private static final class Counters {
+        int[] counts = new int[0];
+        int[] touched = new int[0];
+        int touchedSize;
+
+        void ensureCapacity(int nodes) {
+            if (counts.length < nodes) {
+                counts = new int[nodes + (nodes >> 2)];
+                touched = new int[counts.length];
+            }
+        }
+
+        void increment(int node) {
+            if (node >= counts.length) {
+                return;
+            }
+            if (counts[node]++ == 0) {
+                touched[touchedSize++] = node;
+            }
+        }
+
+        void reset() {
+            for (int k = 0; k < touchedSize; k++) {
+                counts[touched[k]] = 0;
+            }
+            touchedSize = 0;
+        }
+    }
+}
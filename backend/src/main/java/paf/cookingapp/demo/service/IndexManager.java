@@ -0,0 +1,370 @@
+package paf.cookingapp.demo.service;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexOptions;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single place where the application's MongoDB indexes are declared.
+ *
+ * Indexes are built on a background thread once the application is ready, so startup and
+ * readiness do not wait on index builds. Duplicate keys that would make a new unique index fail
+ * are resolved or reported first, on the same thread. Existing indexes are compared with the
+ * declarations and conflicts are reported rather than dropped. {@link #coverageReport()} explains each hot
+ * query shape against the live database and flags the ones that fall back to a COLLSCAN.
+ */
+@Service
+public class IndexManager {
+    private static final Logger logger = LoggerFactory.getLogger(IndexManager.class);
+
+    public static final List<IndexDefinition> INDEXES = List.of(
+        new IndexDefinition("posts", "postId_unique", new Document("postId", 1), true),
+        new IndexDefinition("posts", "createdAt_postId", new Document("createdAt", -1).append("postId", -1), false),
+        new IndexDefinition("posts", "userId_createdAt", new Document("userId", 1).append("createdAt", -1), false),
+        new IndexDefinition("users", "username_unique", new Document("username", 1), true),
+        new IndexDefinition("users", "email_unique", new Document("email", 1), true),
+        new IndexDefinition("interactions", "postId_type_userId",
+            new Document("postId", 1).append("type", 1).append("userId", 1), false),
+        new IndexDefinition("interactions", "postId_type_createdAt",
+            new Document("postId", 1).append("type", 1).append("createdAt", -1), false),
+        // Enforces at most one like per user per post, so concurrent like requests cannot duplicate
+        new IndexDefinition("interactions", "like_postId_userId_unique",
+            new Document("postId", 1).append("userId", 1).append("type", 1), true,
+            new Document("type", "LIKE")),
+        // Read state is a per-user watermark on createdAt, so the notification index no longer carries a flag that churns
+        new IndexDefinition("interactions", "postOwnerId_type_createdAt",
+            new Document("postOwnerId", 1).append("type", 1).append("createdAt", -1), false),
+        // Serves the notification list including its (latestAt, _id) keyset order
+        new IndexDefinition("notification_groups", "ownerId_latestAt_id",
+            new Document("ownerId", 1).append("latestAt", -1).append("_id", -1), false),
+        // One membership row per actor and group; the unique key makes "new actor" an atomic upsert
+        new IndexDefinition("notification_group_actors", "groupId_actorId_unique",
+            new Document("groupId", 1).append("actorId", 1), true),
+        new IndexDefinition("follows", "followerId_followingId_unique",
+            new Document("followerId", 1).append("followingId", 1), true),
+        new IndexDefinition("follows", "followingId_followerId",
+            new Document("followingId", 1).append("followerId", 1), false),
+        new IndexDefinition("learning_progress", "userId", new Document("userId", 1), false),
+        // Serves the per-user plan listing including its (lastModified, _id) keyset order
+        new IndexDefinition("learning_plan", "userId_lastModified",
+            new Document("userId", 1).append("lastModified", -1).append("_id", -1), false),
+        // Leaderboard restore replays the statistics written since the last snapshot
+        new IndexDefinition("learning_stats", "updatedAt", new Document("updatedAt", 1), false),
+        new IndexDefinition("leaderboard_snapshots", "course_bucket",
+            new Document("course", 1).append("bucket", 1), false)
+    );
+
+    // Representative filters/sorts of the hot repository and MongoTemplate queries
+    public static final List<QueryShape> QUERY_SHAPES = List.of(
+        new QueryShape("PostService.getFeed", "posts",
+            new Document(), new Document("createdAt", -1).append("postId", -1)),
+        new QueryShape("PostService.getPostByPostId", "posts",
+            new Document("postId", 1L), null),
+        new QueryShape("PostService.getUserPosts", "posts",
+            new Document("userId", "?"), new Document("createdAt", -1)),
+        new QueryShape("UserRepository.findByUsername", "users",
+            new Document("username", "?"), null),
+        new QueryShape("UserRepository.existsByEmail", "users",
+            new Document("email", "?"), null),
+        new QueryShape("InteractionController.checkUserLiked", "interactions",
+            new Document("postId", "?").append("userId", "?").append("type", "LIKE"), null),
+        new QueryShape("InteractionController.getCommentsByPost", "interactions",
+            new Document("postId", "?").append("type", "COMMENT"), new Document("createdAt", -1)),
+        new QueryShape("NotificationService.getNotifications", "notification_groups",
+            new Document("ownerId", "?"), new Document("latestAt", -1).append("_id", -1)),
+        new QueryShape("UnreadCounterService.load", "interactions",
+            new Document("postOwnerId", "?")
+                .append("type", new Document("$in", List.of("LIKE", "COMMENT")))
+                .append("createdAt", new Document("$gt", new Date(0)))
+                .append("read", false), null),
+        new QueryShape("FollowRepository.existsByFollowerIdAndFollowingId", "follows",
+            new Document("followerId", "?").append("followingId", "?"), null),
+        new QueryShape("TimelineService.distribute", "follows",
+            new Document("followingId", "?"), null),
+        new QueryShape("LearningProgressRepository.findByUserId", "learning_progress",
+            new Document("userId", "?"), null),
+        new QueryShape("LearningPlanService.listPlans", "learning_plan",
+            new Document("userId", "?"), new Document("lastModified", -1).append("_id", -1)),
+        new QueryShape("LeaderboardService.replaySince", "learning_stats",
+            new Document("updatedAt", new Document("$gte", new Date(0))), null)
+    );
+
+    // Unique indexes whose duplicate documents are interchangeable copies, so all but the oldest can be deleted
+    static final Set<String> DEDUPLICATED = Set.of(
+        "follows.followerId_followingId_unique",
+        "interactions.like_postId_userId_unique"
+    );
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final Map<String, String> status = new ConcurrentHashMap<>();
+
+    /**
+     * Checks a unique index that does not exist yet for keys already held by more than one
+     * document. Repeated follow edges and repeated likes are removed, keeping the oldest (post
+     * counters and notification groups are corrected by their reconcile jobs). Duplicates anywhere
+     * else, such as two accounts sharing an email, need a human decision, so they are returned for
+     * the status report and the index is left unbuilt; null means the index can be built.
+     */
+    private String resolveDuplicateKeys(MongoCollection<Document> collection, IndexDefinition index) {
+        List<Document> groups = duplicateGroups(collection, index);
+        if (groups.isEmpty()) {
+            return null;
+        }
+        if (!DEDUPLICATED.contains(index.key())) {
+            return groups.size() + " duplicated keys, e.g. " + groups.get(0).get("_id");
+        }
+        long removed = 0;
+        for (Document group : groups) {
+            List<Object> ids = group.getList("ids", Object.class);
+            removed += collection.deleteMany(
+                new Document("_id", new Document("$in", ids.subList(1, ids.size())))).getDeletedCount();
+        }
+        logger.warn("Removed {} duplicate documents from {} before building {}", removed, index.getCollection(), index.getName());
+        return null;
+    }
+
+    // One document per duplicated key with the _ids holding it, oldest first
+    private List<Document> duplicateGroups(MongoCollection<Document> collection, IndexDefinition index) {
+        Document groupKey = new Document();
+        index.getKeys().keySet().forEach(field -> groupKey.append(field, "$" + field));
+        List<Document> pipeline = new ArrayList<>();
+        if (index.getPartialFilter() != null) {
+            pipeline.add(new Document("$match", index.getPartialFilter()));
+        }
+        pipeline.add(new Document("$sort", new Document("_id", 1)));
+        pipeline.add(new Document("$group", new Document("_id", groupKey)
+            .append("ids", new Document("$push", "$_id"))
+            .append("count", new Document("$sum", 1))));
+        pipeline.add(new Document("$match", new Document("count", new Document("$gt", 1))));
+        return collection.aggregate(pipeline).allowDiskUse(true).into(new ArrayList<>());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndexesInBackground() {
+        INDEXES.forEach(index -> status.put(index.key(), "PENDING"));
+        Thread builder = new Thread(this::ensureIndexes, "index-builder");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    public void ensureIndexes() {
+        for (IndexDefinition index : INDEXES) {
+            try {
+                MongoCollection<Document> collection = mongoTemplate.getCollection(index.getCollection());
+                Document existing = findByKeys(collection, index.getKeys());
+                if (existing != null) {
+                    boolean unique = Boolean.TRUE.equals(existing.getBoolean("unique"));
+                    if (unique != index.isUnique()) {
+                        status.put(index.key(), "CONFLICT: existing index " + existing.getString("name")
+                                + " has unique=" + unique);
+                        logger.warn("Index {} on {} conflicts with existing {}", index.getName(), index.getCollection(), existing.toJson());
+                    } else {
+                        status.put(index.key(), "READY");
+                    }
+                    continue;
+                }
+
+                if (index.isUnique()) {
+                    String duplicates = resolveDuplicateKeys(collection, index);
+                    if (duplicates != null) {
+                        status.put(index.key(), "SKIPPED: " + duplicates);
+                        logger.error("Skipped unique index {} on {} until its duplicate documents are resolved: {}",
+                                index.getName(), index.getCollection(), duplicates);
+                        continue;
+                    }
+                }
+
+                status.put(index.key(), "BUILDING");
+                long started = System.currentTimeMillis();
+                IndexOptions options = new IndexOptions().name(index.getName()).unique(index.isUnique());
+                if (index.getPartialFilter() != null) {
+                    options.partialFilterExpression(index.getPartialFilter());
+                }
+                collection.createIndex(index.getKeys(), options);
+                status.put(index.key(), "READY");
+                logger.info("Built index {} on {} in {} ms", index.getName(), index.getCollection(), System.currentTimeMillis() - started);
+            } catch (Exception e) {
+                status.put(index.key(), "FAILED: " + e.getMessage());
+                logger.error("Failed to build index {} on {}: {}", index.getName(), index.getCollection(), e.getMessage());
+            }
+        }
+    }
+
+    private Document findByKeys(MongoCollection<Document> collection, Document keys) {
+        for (Document info : collection.listIndexes()) {
+            Document existingKeys = info.get("key", Document.class);
+            if (existingKeys != null && sameKeys(existingKeys, keys)) {
+                return info;
+            }
+        }
+        return null;
+    }
+
+    // Key order matters for compound indexes, and numeric directions may come back as int or double
+    private boolean sameKeys(Document existing, Document declared) {
+        if (existing.size() != declared.size()) {
+            return false;
+        }
+        List<String> existingFields = new ArrayList<>(existing.keySet());
+        List<String> declaredFields = new ArrayList<>(declared.keySet());
+        for (int i = 0; i < declaredFields.size(); i++) {
+            String field = declaredFields.get(i);
+            if (!field.equals(existingFields.get(i))) {
+                return false;
+            }
+            Object a = existing.get(field);
+            Object b = declared.get(field);
+            if (a instanceof Number x && b instanceof Number y) {
+                if (x.intValue() != y.intValue()) {
+                    return false;
+                }
+            } else if (!Objects.equals(a, b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public List<Map<String, Object>> indexReport() {
+        List<Map<String, Object>> report = new ArrayList<>();
+        for (IndexDefinition index : INDEXES) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("collection", index.getCollection());
+            row.put("name", index.getName());
+            row.put("keys", index.getKeys());
+            row.put("unique", index.isUnique());
+            if (index.getPartialFilter() != null) {
+                row.put("partialFilter", index.getPartialFilter());
+            }
+            row.put("status", status.getOrDefault(index.key(), "PENDING"));
+            report.add(row);
+        }
+        return report;
+    }
+
+    /**
+     * Runs a queryPlanner explain for every registered query shape and reports the winning
+     * plan's index, or COLLSCAN when no index serves the filter/sort.
+     */
+    public List<Map<String, Object>> coverageReport() {
+        List<Map<String, Object>> report = new ArrayList<>();
+        for (QueryShape shape : QUERY_SHAPES) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("query", shape.getName());
+            row.put("collection", shape.getCollection());
+            row.put("filter", shape.getFilter());
+            if (shape.getSort() != null) {
+                row.put("sort", shape.getSort());
+            }
+            try {
+                Document find = new Document("find", shape.getCollection()).append("filter", shape.getFilter());
+                if (shape.getSort() != null) {
+                    find.append("sort", shape.getSort());
+                }
+                Document explain = mongoTemplate.getDb().runCommand(
+                    new Document("explain", find).append("verbosity", "queryPlanner"));
+                Document winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+                List<String> stages = new ArrayList<>();
+                List<String> indexes = new ArrayList<>();
+                collectStages(winningPlan, stages, indexes);
+                boolean collscan = stages.contains("COLLSCAN");
+                row.put("covered", !collscan);
+                row.put("stages", stages);
+                row.put("indexes", indexes);
+            } catch (Exception e) {
+                row.put("covered", false);
+                row.put("error", e.getMessage());
+            }
+            report.add(row);
+        }
+        return report;
+    }
+
+    private void collectStages(Document plan, List<String> stages, List<String> indexes) {
+        if (plan == null) {
+            return;
+        }
+        // Slot-based engine explains nest the classic plan under queryPlan
+        Document queryPlan = plan.get("queryPlan", Document.class);
+        if (queryPlan != null) {
+            collectStages(queryPlan, stages, indexes);
+            return;
+        }
+        if (plan.getString("stage") != null) {
+            stages.add(plan.getString("stage"));
+        }
+        if (plan.getString("indexName") != null) {
+            indexes.add(plan.getString("indexName"));
+        }
+        collectStages(plan.get("inputStage", Document.class), stages, indexes);
+        List<Document> inputStages = plan.getList("inputStages", Document.class);
+        if (inputStages != null) {
+            inputStages.forEach(stage -> collectStages(stage, stages, indexes));
+        }
+    }
+
+    public static class IndexDefinition {
+        private final String collection;
+        private final String name;
+        private final Document keys;
+        private final boolean unique;
+        private final Document partialFilter;
+
+        public IndexDefinition(String collection, String name, Document keys, boolean unique) {
+            this(collection, name, keys, unique, null);
+        }
+
+        public IndexDefinition(String collection, String name, Document keys, boolean unique, Document partialFilter) {
+            this.collection = collection;
+            this.name = name;
+            this.keys = keys;
+            this.unique = unique;
+            this.partialFilter = partialFilter;
+        }
+
+        public String getCollection() { return collection; }
+        public String getName() { return name; }
+        public Document getKeys() { return keys; }
+        public boolean isUnique() { return unique; }
+        public Document getPartialFilter() { return partialFilter; }
+
+        String key() { return collection + "." + name; }
+    }
+
+    public static class QueryShape {
+        private final String name;
+        private final String collection;
+        private final Document filter;
+        private final Document sort;
+
+        public QueryShape(String name, String collection, Document filter, Document sort) {
+            this.name = name;
+            this.collection = collection;
+            this.filter = filter;
+            this.sort = sort;
+        }
+
+        public String getName() { return name; }
+        public String getCollection() { return collection; }
+        public Document getFilter() { return filter; }
+        public Document getSort() { return sort; }
+    }
+}
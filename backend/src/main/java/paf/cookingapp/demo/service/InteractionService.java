@@ -1,12 +1,19 @@
 package paf.cookingapp.demo.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import paf.cookingapp.demo.model.Interaction;
+import paf.cookingapp.demo.model.UserSummary;
 import paf.cookingapp.demo.repository.InteractionRepository;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.bson.types.ObjectId;
+import java.time.LocalDateTime;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -19,6 +26,147 @@ public class InteractionService {
     @Autowired
     private InteractionRepository interactionRepository;
 
+    @Autowired
+    private PostCounterService postCounterService;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private LikeWriteBuffer likeWriteBuffer;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private UserSummaryService userSummaryService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    /**
+     * Idempotent like: a findAndModify upsert keyed on (postId, userId, type) that only inserts
+     * when no like exists. Together with the unique partial index on likes this makes duplicate
+     * likes impossible. Returns the stored like, which for a repeated like is the existing
+     * document; the counter and the notification only move when this call inserted it.
+     */
+    public Interaction like(String postId, String userId) {
+        Long numericPostId = parsePostId(postId);
+        String ownerId = postService.getPostOwnerId(numericPostId);
+        if (ownerId == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Post not found");
+        }
+        String username = getUsername(userId);
+        if (username == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "User not found");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Interaction like = new Interaction();
+        like.setPostId(postId);
+        like.setPostOwnerId(ownerId);
+        like.setUserId(userId);
+        like.setUsername(username);
+        like.setType(Interaction.TYPE_LIKE);
+        like.setCreatedAt(now);
+        like.setRead(false);
+
+        // The buffer notifies the owner when the flush actually inserts the like
+        if (likeWriteBuffer.isEnabled()) {
+            likeWriteBuffer.submit(postId, userId, true, ownerId, username);
+            return like;
+        }
+
+        // The id is chosen up front so the returned document tells an insert from an existing like
+        String likeId = new ObjectId().toHexString();
+        Interaction saved;
+        try {
+            saved = mongoTemplate.findAndModify(
+                likeQuery(postId, userId),
+                new Update()
+                    .setOnInsert("_id", new ObjectId(likeId))
+                    .setOnInsert("postOwnerId", ownerId)
+                    .setOnInsert("username", username)
+                    .setOnInsert("createdAt", now)
+                    .setOnInsert("read", false),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                Interaction.class
+            );
+        } catch (DataAccessException e) {
+            // A concurrent request inserted the same like first (duplicate key or write conflict): already liked
+            saved = mongoTemplate.findOne(likeQuery(postId, userId), Interaction.class);
+            if (saved == null) {
+                throw e;
+            }
+        }
+        if (saved != null && likeId.equals(saved.getId())) {
+            onLikeChanged(saved, true);
+        }
+        return saved;
+    }
+
+    // Idempotent unlike: one delete, the counter only moves if a like was actually removed
+    public boolean unlike(String postId, String userId) {
+        parsePostId(postId);
+        if (likeWriteBuffer.isEnabled()) {
+            likeWriteBuffer.submit(postId, userId, false, null, null);
+            return true;
+        }
+        Interaction removed = mongoTemplate.findAndRemove(likeQuery(postId, userId), Interaction.class);
+        if (removed != null) {
+            onLikeChanged(removed, false);
+        }
+        return removed != null;
+    }
+
+    // Follow-up writes for a like this request actually inserted or removed; repeats never get here
+    private void onLikeChanged(Interaction like, boolean liked) {
+        postCounterService.adjustLikeCount(like.getPostId(), liked ? 1 : -1);
+        if (liked) {
+            publishNotification(like);
+        } else {
+            notificationService.onInteractionRemoved(like);
+        }
+    }
+
+    // Pending write-behind state wins over the database so the acting user sees their own toggle
+    public boolean hasLiked(String postId, String userId) {
+        Boolean buffered = likeWriteBuffer.bufferedState(postId, userId);
+        if (buffered != null) {
+            return buffered;
+        }
+        return mongoTemplate.exists(likeQuery(postId, userId), Interaction.class);
+    }
+
+    // Pushes a new like or comment to the post owner's open notification streams
+    public void publishNotification(Interaction interaction) {
+        String ownerId = interaction.getPostOwnerId();
+        if (ownerId != null && !ownerId.equals(interaction.getUserId())) {
+            eventPublisher.publishEvent(new NotificationEvent(interaction));
+        }
+    }
+
+    public String getUsername(String userId) {
+        UserSummary user = userSummaryService.get(userId);
+        return user != null ? user.getUsername() : null;
+    }
+
+    private Query likeQuery(String postId, String userId) {
+        return new Query(
+            Criteria.where("postId").is(postId)
+                .and("userId").is(userId)
+                .and("type").is(Interaction.TYPE_LIKE)
+        );
+    }
+
+    private Long parsePostId(String postId) {
+        try {
+            return Long.parseLong(postId);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid post ID format");
+        }
+    }
+
     public Interaction updateComment(String commentId, String newContent) {
         Query query = new Query(Criteria.where("id").is(commentId));
         Interaction comment = mongoTemplate.findOne(query, Interaction.class);
@@ -33,9 +181,13 @@ public class InteractionService {
 
     public void deleteComment(String commentId) {
         Query query = new Query(Criteria.where("id").is(commentId));
-        if (!mongoTemplate.exists(query, Interaction.class)) {
+        Interaction removed = mongoTemplate.findAndRemove(query, Interaction.class);
+        if (removed == null) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Comment not found");
         }
-        mongoTemplate.remove(query, Interaction.class);
+        if (Interaction.TYPE_COMMENT.equals(removed.getType())) {
+            postCounterService.adjustCommentCount(removed.getPostId(), -1);
+        }
+        notificationService.onInteractionRemoved(removed);
     }
 }
@@ -0,0 +1,70 @@
+package paf.cookingapp.demo.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Opaque keyset cursor for listings ordered newest first. Encodes the (timestamp, key) pair of
+ * the last row on a page so the next page can resume with an index range scan instead of skip.
+ * The key breaks ties between rows with the same timestamp.
+ */
+public class KeysetCursor {
+    private final long millis;
+    private final String key;
+
+    public KeysetCursor(long millis, String key) {
+        this.millis = millis;
+        this.key = key;
+    }
+
+    public long getMillis() { return millis; }
+    public String getKey() { return key; }
+
+    public Date getTime() { return new Date(millis); }
+
+    // For listings whose tiebreaker is a numeric id, such as postId
+    public long getLongKey() {
+        try {
+            return Long.parseLong(key);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public String encode() {
+        String raw = millis + ":" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            if (sep < 0 || sep == raw.length() - 1) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new KeysetCursor(Long.parseLong(raw.substring(0, sep)), raw.substring(sep + 1));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    // Rows may come back from aggregations as raw Maps, so the timestamp may be a Date or a LocalDateTime
+    public static KeysetCursor of(Object time, Object key) {
+        long millis;
+        if (time instanceof Date date) {
+            millis = date.getTime();
+        } else if (time instanceof LocalDateTime dateTime) {
+            millis = dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } else {
+            return null;
+        }
+        if (key == null) {
+            return null;
+        }
+        return new KeysetCursor(millis, key.toString());
+    }
+}
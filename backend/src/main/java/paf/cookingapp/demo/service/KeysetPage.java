@@ -0,0 +1,33 @@
+package paf.cookingapp.demo.service;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated listing and the cursor for the next page, or null on the last.
+ */
+public class KeysetPage<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    public KeysetPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+
+    /**
+     * Builds a page from rows fetched with {@code limit(pageSize + 1)}: the extra row only
+     * signals that another page exists and is dropped, the cursor points at the last kept row.
+     */
+    public static <T> KeysetPage<T> of(List<T> rows, int pageSize, Function<T, KeysetCursor> cursorOf) {
+        if (rows.size() <= pageSize) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> page = rows.subList(0, pageSize);
+        KeysetCursor next = cursorOf.apply(page.get(pageSize - 1));
+        return new KeysetPage<>(page, next != null ? next.encode() : null);
+    }
+}
@@ -0,0 +1,720 @@
+package paf.cookingapp.demo.service;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import paf.cookingapp.demo.model.LearningStats;
+import paf.cookingapp.demo.model.UserSummary;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Per-course leaderboards ranked by completed timeline steps, most recently active first among
+ * equal scores.
+ *
+ * Each course keeps its learners in a skip list in rank order, which serves pages by walking from
+ * the head, plus a Fenwick tree of learner counts per score, so a learner's rank is a prefix sum
+ * rather than a scan. Boards are fed with the absolute course totals returned by the
+ * {@link LearningStatsService} write, so applying an update twice is harmless, and course keys are
+ * the normalized (trimmed, lowercase) names used by the statistics. Every node also replays the
+ * statistics written through other nodes once per snapshot interval, so all boards converge.
+ *
+ * Boards are snapshotted to {@code leaderboard_snapshots} by a single node holding a lease
+ * document. Each board is stored as fixed hash buckets of users rather than in rank order, so a
+ * change only marks its user's bucket dirty and a snapshot rewrites just the dirty buckets. A
+ * restart restores the snapshot and replays the statistics written since, and only falls back to
+ * reading all of {@code learning_stats} when there is no snapshot. Rebuilds construct a fresh set
+ * of boards while updates keep flowing to the live one, then swap it in and replay what arrived
+ * meanwhile.
+ */
+@Service
+public class LeaderboardService {
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardService.class);
+    private static final String COLLECTION = "leaderboard_snapshots";
+    private static final String META_ID = "_meta";
+    private static final String WRITER_ID = "_writer";
+    // Fixed so stored bucket documents stay addressable across restarts; ~60 bytes per entry keeps buckets far below 16MB
+    static final int SNAPSHOT_BUCKETS = 64;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Scores above this are counted outside the Fenwick tree so a runaway score cannot size the array
+    static final int MAX_TRACKED_SCORE = 1 << 20;
+
+    static final Comparator<Learner> RANK_ORDER = Comparator
+            .comparingLong((Learner learner) -> learner.score).reversed()
+            .thenComparing(Comparator.comparingLong((Learner learner) -> learner.lastActivity).reversed())
+            .thenComparing(learner -> learner.userId);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private UserSummaryService userSummaryService;
+
+    @Value("${leaderboards.max-depth:1000}")
+    private int maxDepth;
+
+    @Value("${leaderboards.writer-lease-ms:180000}")
+    private long writerLeaseMs;
+
+    @Value("${leaderboards.replay-slack-ms:60000}")
+    private long replaySlackMs;
+
+    @Value("${leaderboards.load-batch-size:1000}")
+    private int batchSize;
+
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile Map<String, CourseBoard> boards = new ConcurrentHashMap<>();
+    private List<Consumer<Map<String, CourseBoard>>> pending;
+    private final AtomicBoolean building = new AtomicBoolean(false);
+    private final AtomicBoolean snapshotting = new AtomicBoolean(false);
+    private volatile boolean pruneSnapshots;
+    private volatile boolean ready;
+    private final String nodeId = UUID.randomUUID().toString();
+    private volatile boolean snapshotWriter;
+    private volatile Date lastSyncedAt;
+    private volatile Map<String, Object> lastReport = Map.of();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        Thread loader = new Thread(this::load, "leaderboard-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void load() {
+        if (!building.compareAndSet(false, true)) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        try {
+            beginBuild();
+            Map<String, CourseBoard> fresh = new ConcurrentHashMap<>();
+            Document meta = mongoTemplate.findById(META_ID, Document.class, COLLECTION);
+            Date savedAt = meta != null ? meta.getDate("savedAt") : null;
+            Date loadStartedAt = new Date(started);
+            long replayed = 0;
+            if (savedAt != null) {
+                long restored = restore(fresh);
+                replayed = replaySince(new Date(savedAt.getTime() - replaySlackMs),
+                        (userId, courses) -> replaceUser(fresh, userId, courses));
+                logger.info("Leaderboards restored from snapshot: {} courses, {} learners, {} users replayed in {} ms",
+                        fresh.size(), restored, replayed, System.currentTimeMillis() - started);
+            } else {
+                long users = readStats(fresh);
+                logger.info("Leaderboards built from learning stats: {} courses, {} users in {} ms",
+                        fresh.size(), users, System.currentTimeMillis() - started);
+            }
+            swap(fresh);
+            lastSyncedAt = loadStartedAt;
+            ready = true;
+        } catch (Exception e) {
+            abortBuild();
+            logger.error("Failed to load leaderboards: {}", e.getMessage(), e);
+        } finally {
+            building.set(false);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Absolute totals for one user in one course, as stored in learning_stats.byCourse
+    public void update(String userId, LearningStats.Breakdown course) {
+        String name = course != null ? LearningStatsService.courseKey(course.getName()) : null;
+        if (userId == null || name == null) {
+            return;
+        }
+        Learner learner = new Learner(userId, course.getStepsCompleted(), millis(course.getLastActivityAt()));
+        submit(current -> board(current, name).put(learner));
+    }
+
+    public void remove(String userId, String courseName) {
+        String name = LearningStatsService.courseKey(courseName);
+        if (userId == null || name == null) {
+            return;
+        }
+        submit(current -> {
+            CourseBoard board = current.get(name);
+            if (board != null) {
+                board.remove(userId);
+            }
+        });
+    }
+
+    // Replaces every board entry of a user, used when their statistics were re-derived from scratch
+    public void replaceUser(String userId, Collection<LearningStats.Breakdown> courses) {
+        List<LearningStats.Breakdown> entries = new ArrayList<>(courses);
+        submit(current -> replaceUser(current, userId, entries));
+    }
+
+    private static void replaceUser(Map<String, CourseBoard> target, String userId, Collection<LearningStats.Breakdown> courses) {
+        Set<String> kept = new HashSet<>();
+        for (LearningStats.Breakdown course : courses) {
+            String name = LearningStatsService.courseKey(course.getName());
+            if (name != null && course.getPlans() + course.getProgress() > 0) {
+                kept.add(name);
+                board(target, name).put(
+                        new Learner(userId, course.getStepsCompleted(), millis(course.getLastActivityAt())));
+            }
+        }
+        for (CourseBoard board : target.values()) {
+            if (!kept.contains(board.course)) {
+                board.remove(userId);
+            }
+        }
+    }
+
+    /**
+     * One page of a course leaderboard. Ranks are competition ranks: learners with the same
+     * number of completed steps share a rank and the next rank skips accordingly. Pages stop at
+     * {@code leaderboards.max-depth}; deeper positions are only reachable through {@link #getRank}.
+     */
+    public Map<String, Object> getPage(String courseName, int page, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        long offset = (long) Math.max(0, page) * pageSize;
+        CourseBoard board = boardFor(courseName);
+        long end = Math.min(offset + pageSize, maxDepth);
+
+        List<Learner> learners = new ArrayList<>();
+        List<Long> ranks = new ArrayList<>();
+        boolean hasMore = false;
+        if (board != null && offset < end) {
+            long position = 0;
+            long rank = 0;
+            long previousScore = -1;
+            for (Learner learner : board.ranking) {
+                position++;
+                if (learner.score != previousScore) {
+                    rank = position;
+                    previousScore = learner.score;
+                }
+                if (position > end) {
+                    hasMore = end < maxDepth;
+                    break;
+                }
+                if (position > offset) {
+                    learners.add(learner);
+                    ranks.add(rank);
+                }
+            }
+        }
+
+        Map<String, UserSummary> users = userSummaryService.getAll(
+                learners.stream().map(learner -> learner.userId).toList());
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (int i = 0; i < learners.size(); i++) {
+            Map<String, Object> entry = entry(learners.get(i), ranks.get(i));
+            entry.put("user", users.get(learners.get(i).userId));
+            entries.add(entry);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("course", courseName);
+        result.put("learners", board != null ? board.size() : 0);
+        result.put("page", Math.max(0, page));
+        result.put("size", pageSize);
+        result.put("hasMore", hasMore);
+        result.put("entries", entries);
+        return result;
+    }
+
+    // Null when the user has no plan or progress in the course
+    public Map<String, Object> getRank(String courseName, String userId) {
+        CourseBoard board = boardFor(courseName);
+        if (board == null) {
+            return null;
+        }
+        long rank;
+        long learners;
+        Learner learner;
+        synchronized (board) {
+            learner = board.byUser.get(userId);
+            if (learner == null) {
+                return null;
+            }
+            rank = board.higherThan(learner.score) + 1;
+            learners = board.byUser.size();
+        }
+        Map<String, Object> result = entry(learner, rank);
+        result.put("course", courseName);
+        result.put("learners", learners);
+        // Share of learners ranked at or above this one
+        result.put("topPercent", Math.round(rank * 1000.0 / learners) / 10.0);
+        return result;
+    }
+
+    private Map<String, Object> entry(Learner learner, long rank) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("rank", rank);
+        entry.put("userId", learner.userId);
+        entry.put("stepsCompleted", learner.score);
+        entry.put("lastActivityAt", learner.lastActivity > 0
+                ? LocalDateTime.ofInstant(Instant.ofEpochMilli(learner.lastActivity), ZoneId.systemDefault()) : null);
+        return entry;
+    }
+
+    /**
+     * Rebuilds every board from {@code learning_stats}. Updates that arrive while the collection
+     * is read are applied to the live boards and queued, then replayed on the new boards before
+     * they replace the old ones.
+     */
+    public Map<String, Object> rebuild() {
+        if (!building.compareAndSet(false, true)) {
+            Map<String, Object> busy = new HashMap<>(lastReport);
+            busy.put("status", "already running");
+            return busy;
+        }
+        long started = System.currentTimeMillis();
+        Map<String, Object> report = new LinkedHashMap<>();
+        try {
+            beginBuild();
+            Map<String, CourseBoard> fresh = new ConcurrentHashMap<>();
+            long users = readStats(fresh);
+            swap(fresh);
+            ready = true;
+            report.put("status", "completed");
+            report.put("finishedAt", LocalDateTime.now());
+            report.put("durationMs", System.currentTimeMillis() - started);
+            report.put("usersScanned", users);
+            report.put("courses", fresh.size());
+            logger.info("Leaderboards rebuilt: {} users, {} courses in {} ms",
+                    users, fresh.size(), System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            abortBuild();
+            logger.error("Leaderboard rebuild failed: {}", e.getMessage(), e);
+            report.put("status", "failed");
+            report.put("error", e.getMessage());
+        } finally {
+            building.set(false);
+        }
+        lastReport = report;
+        return report;
+    }
+
+    // Starts a rebuild on its own thread, like the index builder; false when one is already running
+    public boolean rebuildInBackground() {
+        if (building.get()) {
+            return false;
+        }
+        Thread rebuild = new Thread(this::rebuild, "leaderboard-rebuild");
+        rebuild.setDaemon(true);
+        rebuild.start();
+        return true;
+    }
+
+    public Map<String, Object> getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Catches the live boards up with statistics written through other nodes, then, on the node
+     * holding the snapshot lease, writes the buckets that changed since the last snapshot. The
+     * meta document records when the snapshot started, which bounds the replay on restart.
+     */
+    @Scheduled(fixedDelayString = "${leaderboards.snapshot-interval-ms:60000}")
+    public void snapshot() {
+        if (!ready || !snapshotting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Date startedAt = new Date();
+            Date since = lastSyncedAt;
+            if (since != null) {
+                replaySince(new Date(since.getTime() - replaySlackMs), this::replaceUser);
+            }
+            lastSyncedAt = startedAt;
+
+            snapshotWriter = acquireWriterLease(startedAt);
+            if (!snapshotWriter) {
+                return;
+            }
+            Map<String, CourseBoard> current = boards;
+            int written = 0;
+            for (CourseBoard board : current.values()) {
+                written += writeDirtyBuckets(board, startedAt);
+            }
+            if (pruneSnapshots) {
+                pruneSnapshots = false;
+                // Boards that no longer exist, and chunks from before the bucketed layout
+                mongoTemplate.remove(Query.query(new Criteria().andOperator(
+                        Criteria.where("course").exists(true),
+                        new Criteria().orOperator(
+                                Criteria.where("course").nin(current.keySet()),
+                                Criteria.where("bucket").exists(false)))), COLLECTION);
+            }
+            mongoTemplate.save(new Document("_id", META_ID).append("savedAt", startedAt), COLLECTION);
+            if (written > 0) {
+                logger.debug("Leaderboard snapshot: {} buckets written", written);
+            }
+        } catch (Exception e) {
+            logger.error("Leaderboard snapshot failed: {}", e.getMessage(), e);
+        } finally {
+            snapshotting.set(false);
+        }
+    }
+
+    // Takes or renews the lease; the upsert of a lease held by another node fails on the _id
+    private boolean acquireWriterLease(Date now) {
+        Query query = Query.query(new Criteria().andOperator(
+                Criteria.where("_id").is(WRITER_ID),
+                new Criteria().orOperator(
+                        Criteria.where("owner").is(nodeId),
+                        Criteria.where("expiresAt").lt(now))));
+        Update update = new Update().set("owner", nodeId).set("expiresAt", new Date(now.getTime() + writerLeaseMs));
+        try {
+            mongoTemplate.upsert(query, update, COLLECTION);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private int writeDirtyBuckets(CourseBoard board, Date savedAt) {
+        Set<Integer> buckets;
+        Map<Integer, List<Document>> entries = new HashMap<>();
+        synchronized (board) {
+            if (board.dirtyBuckets.isEmpty()) {
+                return 0;
+            }
+            buckets = new HashSet<>(board.dirtyBuckets);
+            board.dirtyBuckets.removeAll(buckets);
+            for (Learner learner : board.byUser.values()) {
+                int bucket = bucket(learner.userId);
+                if (buckets.contains(bucket)) {
+                    entries.computeIfAbsent(bucket, b -> new ArrayList<>()).add(
+                            new Document("u", learner.userId).append("s", learner.score).append("t", learner.lastActivity));
+                }
+            }
+        }
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+            for (int bucket : buckets) {
+                List<Document> bucketEntries = entries.get(bucket);
+                if (bucketEntries == null) {
+                    // Every learner in this bucket left the board
+                    bulk.remove(bucketQuery(board.course, bucket));
+                } else {
+                    bulk.replaceOne(bucketQuery(board.course, bucket), bucketDocument(board.course, bucket, bucketEntries, savedAt),
+                            FindAndReplaceOptions.options().upsert());
+                }
+            }
+            bulk.execute();
+        } catch (RuntimeException e) {
+            board.dirtyBuckets.addAll(buckets);
+            throw e;
+        }
+        return buckets.size();
+    }
+
+    private Query bucketQuery(String course, int bucket) {
+        return Query.query(Criteria.where("_id").is(course + "#" + bucket));
+    }
+
+    private Document bucketDocument(String course, int bucket, List<Document> entries, Date savedAt) {
+        return new Document("_id", course + "#" + bucket)
+                .append("course", course)
+                .append("bucket", bucket)
+                .append("entries", entries)
+                .append("savedAt", savedAt);
+    }
+
+    private long restore(Map<String, CourseBoard> target) {
+        Query query = Query.query(Criteria.where("course").exists(true)).cursorBatchSize(4);
+        long restored = 0;
+        Set<String> rewrite = new HashSet<>();
+        try (Stream<Document> chunks = mongoTemplate.stream(query, Document.class, COLLECTION)) {
+            for (Document chunk : (Iterable<Document>) chunks::iterator) {
+                String stored = chunk.getString("course");
+                String course = LearningStatsService.courseKey(stored);
+                if (course == null) {
+                    continue;
+                }
+                // Rank-ordered chunks and unnormalized course names are written again in the current layout
+                if (!course.equals(stored) || !chunk.containsKey("bucket")) {
+                    rewrite.add(course);
+                }
+                CourseBoard board = board(target, course);
+                for (Document entry : chunk.getList("entries", Document.class, List.of())) {
+                    board.put(new Learner(entry.getString("u"), number(entry.get("s")), number(entry.get("t"))));
+                    restored++;
+                }
+            }
+        }
+        // Other restored boards match their snapshot; only what the replay changes needs writing again
+        target.values().stream()
+                .filter(board -> !rewrite.contains(board.course))
+                .forEach(board -> board.dirtyBuckets.clear());
+        return restored;
+    }
+
+    private long replaySince(Date since, BiConsumer<String, Collection<LearningStats.Breakdown>> apply) {
+        Query query = Query.query(Criteria.where("updatedAt").gte(since)).cursorBatchSize(batchSize);
+        query.fields().include("byCourse");
+        long replayed = 0;
+        try (Stream<LearningStats> stats = mongoTemplate.stream(query, LearningStats.class)) {
+            for (LearningStats user : (Iterable<LearningStats>) stats::iterator) {
+                apply.accept(user.getId(), user.getByCourse() != null ? user.getByCourse().values() : List.of());
+                replayed++;
+            }
+        }
+        return replayed;
+    }
+
+    private long readStats(Map<String, CourseBoard> target) {
+        Query query = new Query().cursorBatchSize(batchSize);
+        query.fields().include("byCourse");
+        long users = 0;
+        try (Stream<LearningStats> stats = mongoTemplate.stream(query, LearningStats.class)) {
+            for (LearningStats user : (Iterable<LearningStats>) stats::iterator) {
+                users++;
+                if (user.getByCourse() == null) {
+                    continue;
+                }
+                for (LearningStats.Breakdown course : user.getByCourse().values()) {
+                    String name = LearningStatsService.courseKey(course.getName());
+                    if (name != null && course.getPlans() + course.getProgress() > 0) {
+                        board(target, name).put(
+                                new Learner(user.getId(), course.getStepsCompleted(), millis(course.getLastActivityAt())));
+                    }
+                }
+            }
+        }
+        return users;
+    }
+
+    // Updates run against the live boards under the shared lock; while a build runs they are also queued for the new boards
+    private void submit(Consumer<Map<String, CourseBoard>> operation) {
+        swapLock.readLock().lock();
+        try {
+            operation.accept(boards);
+            if (pending != null) {
+                pending.add(operation);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private void beginBuild() {
+        swapLock.writeLock().lock();
+        try {
+            pending = Collections.synchronizedList(new ArrayList<>());
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    private void abortBuild() {
+        swapLock.writeLock().lock();
+        try {
+            pending = null;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    private void swap(Map<String, CourseBoard> fresh) {
+        swapLock.writeLock().lock();
+        try {
+            pending.forEach(operation -> operation.accept(fresh));
+            pending = null;
+            boards = fresh;
+            pruneSnapshots = true;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, CourseBoard> current = boards;
+        long learners = 0;
+        long dirty = 0;
+        for (CourseBoard board : current.values()) {
+            learners += board.size();
+            dirty += board.dirtyBuckets.size();
+        }
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("ready", ready);
+        metrics.put("building", building.get());
+        metrics.put("courses", current.size());
+        metrics.put("learners", learners);
+        metrics.put("dirtyBuckets", dirty);
+        metrics.put("snapshotWriter", snapshotWriter);
+        return metrics;
+    }
+
+    private CourseBoard boardFor(String courseName) {
+        String name = LearningStatsService.courseKey(courseName);
+        return name != null ? boards.get(name) : null;
+    }
+
+    // Callers pass normalized course keys
+    private static CourseBoard board(Map<String, CourseBoard> target, String courseName) {
+        return target.computeIfAbsent(courseName, CourseBoard::new);
+    }
+
+    static int bucket(String userId) {
+        return (userId.hashCode() & 0x7fffffff) % SNAPSHOT_BUCKETS;
+    }
+
+    private static long millis(LocalDateTime at) {
+        return at != null ? at.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0;
+    }
+
+    private static long number(Object value) {
+        return value instanceof Number number ? number.longValue() : 0;
+    }
+
+    static final class Learner {
+        final String userId;
+        final long score;
+        final long lastActivity;
+
+        Learner(String userId, long score, long lastActivity) {
+            this.userId = userId;
+            this.score = Math.max(0, score);
+            this.lastActivity = lastActivity;
+        }
+
+        boolean sameAs(Learner other) {
+            return other.score == score && other.lastActivity == lastActivity;
+        }
+    }
+
+    /**
+     * One course: the rank-ordered skip list, the entry per user needed to remove a learner's
+     * old position, a Fenwick tree over scores, and the snapshot buckets changed since the last
+     * write. Writes synchronize on the board; page reads walk the skip list without locking.
+     */
+    static final class CourseBoard {
+        final String course;
+        final NavigableSet<Learner> ranking = new ConcurrentSkipListSet<>(RANK_ORDER);
+        final Map<String, Learner> byUser = new HashMap<>();
+        // tree[i] for 1-based index i = score + 1; grows by doubling up to MAX_TRACKED_SCORE
+        private int[] tree = new int[65];
+        private int overflow;
+        final Set<Integer> dirtyBuckets = ConcurrentHashMap.newKeySet();
+
+        CourseBoard(String course) {
+            this.course = course;
+        }
+
+        synchronized void put(Learner learner) {
+            Learner previous = byUser.get(learner.userId);
+            if (previous != null) {
+                if (previous.sameAs(learner)) {
+                    return;
+                }
+                ranking.remove(previous);
+                count(previous.score, -1);
+            }
+            count(learner.score, 1);
+            ranking.add(learner);
+            byUser.put(learner.userId, learner);
+            dirtyBuckets.add(bucket(learner.userId));
+        }
+
+        synchronized void remove(String userId) {
+            Learner previous = byUser.remove(userId);
+            if (previous != null) {
+                ranking.remove(previous);
+                count(previous.score, -1);
+                dirtyBuckets.add(bucket(userId));
+            }
+        }
+
+        synchronized int size() {
+            return byUser.size();
+        }
+
+        // Number of learners with strictly more completed steps
+        synchronized long higherThan(long score) {
+            if (score >= MAX_TRACKED_SCORE) {
+                long higher = 0;
+                for (Learner learner : ranking) {
+                    if (learner.score <= score) {
+                        break;
+                    }
+                    higher++;
+                }
+                return higher;
+            }
+            long tracked = byUser.size() - overflow;
+            int capacity = tree.length - 1;
+            long atOrBelow = score >= capacity ? tracked : prefix((int) score);
+            return tracked - atOrBelow + overflow;
+        }
+
+        private void count(long score, int delta) {
+            if (score >= MAX_TRACKED_SCORE) {
+                overflow += delta;
+                return;
+            }
+            if (score >= tree.length - 1) {
+                grow((int) score);
+            }
+            for (int i = (int) score + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+
+        // Learners with a score of at most the given one
+        private long prefix(int score) {
+            long sum = 0;
+            for (int i = score + 1; i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+
+        // Called before the learner being counted is in the skip list, so it is not counted twice
+        private void grow(int score) {
+            int capacity = Math.min(MAX_TRACKED_SCORE, Integer.highestOneBit(score) << 1);
+            tree = new int[capacity + 1];
+            for (Learner learner : ranking) {
+                if (learner.score < MAX_TRACKED_SCORE) {
+                    for (int i = (int) learner.score + 1; i < tree.length; i += i & -i) {
+                        tree[i]++;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package paf.cookingapp.demo.service;
+
+import paf.cookingapp.demo.model.LearningPlan;
+import paf.cookingapp.demo.model.LearningProgress;
+
+// Published in-process after a learning plan or progress record is created, updated or deleted
+public class LearningActivityEvent {
+    private final String userId;
+    private final String documentId;
+    private final LearningPlan plan;
+    private final LearningProgress progress;
+    private final boolean deleted;
+
+    private LearningActivityEvent(String userId, String documentId, LearningPlan plan, LearningProgress progress, boolean deleted) {
+        this.userId = userId;
+        this.documentId = documentId;
+        this.plan = plan;
+        this.progress = progress;
+        this.deleted = deleted;
+    }
+
+    public static LearningActivityEvent planSaved(LearningPlan plan) {
+        return new LearningActivityEvent(plan.getUserId(), plan.getId(), plan, null, false);
+    }
+
+    public static LearningActivityEvent planDeleted(LearningPlan plan) {
+        return new LearningActivityEvent(plan.getUserId(), plan.getId(), plan, null, true);
+    }
+
+    public static LearningActivityEvent progressSaved(LearningProgress progress) {
+        return new LearningActivityEvent(progress.getUserId(), progress.getId(), null, progress, false);
+    }
+
+    public static LearningActivityEvent progressDeleted(LearningProgress progress) {
+        return new LearningActivityEvent(progress.getUserId(), progress.getId(), null, progress, true);
+    }
+
+    public String getUserId() { return userId; }
+    public String getDocumentId() { return documentId; }
+    public LearningPlan getPlan() { return plan; }
+    public LearningProgress getProgress() { return progress; }
+    public boolean isPlan() { return plan != null; }
+    public boolean isDeleted() { return deleted; }
+}
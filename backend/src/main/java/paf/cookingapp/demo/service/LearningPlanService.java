@@ -0,0 +1,180 @@
+package paf.cookingapp.demo.service;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import paf.cookingapp.demo.model.LearningPlan;
+import paf.cookingapp.demo.model.TimelineStep;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Learning plan queries and partial updates.
+ *
+ * Listings are scoped to one user, keyset-paginated on (lastModified, id) and projected to the
+ * summary fields; {@code details} and the {@code timeline} array are only loaded with the full
+ * plan. Edits touch only the changed fields or timeline step through {@link VersionedUpdater},
+ * so a checklist click is one small findAndModify instead of a read and a full-document save.
+ */
+@Service
+public class LearningPlanService {
+    public static final int MAX_PAGE_SIZE = 50;
+
+    private static final String[] SUMMARY_FIELDS = {
+        "userId", "templateType", "courseName", "title", "dateCreated", "lastModified"
+    };
+
+    private static final Set<String> PLAN_FIELDS = Set.of("title", "courseName", "details", "templateType");
+    private static final Set<String> STEP_FIELDS = Set.of("step", "duration", "completed");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private VersionedUpdater versionedUpdater;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public KeysetPage<LearningPlan> listPlans(String userId, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Criteria criteria = Criteria.where("userId").is(userId);
+
+        // Keyset predicate: strictly older than the cursor, ties broken by id
+        if (cursor != null && !cursor.isBlank()) {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            criteria = criteria.orOperator(
+                    Criteria.where("lastModified").lt(after.getTime()),
+                    Criteria.where("lastModified").is(after.getTime()).and("_id").lt(VersionedUpdater.idValue(after.getKey()))
+            );
+        }
+
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "lastModified", "_id"))
+                .limit(pageSize + 1);
+        query.fields().include(SUMMARY_FIELDS);
+        return KeysetPage.of(mongoTemplate.find(query, LearningPlan.class), pageSize,
+                last -> KeysetCursor.of(last.getLastModified(), last.getId()));
+    }
+
+    public LearningPlan updateFields(String planId, Map<String, Object> fields, Long expectedVersion) {
+        Update update = new Update();
+        fields.forEach((field, value) -> {
+            if (!PLAN_FIELDS.contains(field)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown plan field: " + field);
+            }
+            update.set(field, normalize(field, requireString(field, value)));
+        });
+        if (update.getUpdateObject().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No plan fields to update");
+        }
+        return saved(versionedUpdater.apply(LearningPlan.class, planId, null, update, now(), expectedVersion, null));
+    }
+
+    // Positional $set on timeline.<index>.<field>; the guard rejects an index past the end of the array
+    public LearningPlan updateStep(String planId, int index, Map<String, Object> changes, Long expectedVersion) {
+        requireIndex(index);
+        Update update = new Update();
+        changes.forEach((field, value) -> {
+            if (!STEP_FIELDS.contains(field)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown step field: " + field);
+            }
+            if ("completed".equals(field)) {
+                if (!(value instanceof Boolean)) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "completed must be true or false");
+                }
+                update.set("timeline." + index + ".completed", value);
+                if ((Boolean) value) {
+                    update.set("timeline." + index + ".completedAt", now());
+                } else {
+                    update.unset("timeline." + index + ".completedAt");
+                }
+            } else {
+                update.set("timeline." + index + "." + field, requireString(field, value).trim());
+            }
+        });
+        if (update.getUpdateObject().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No step fields to update");
+        }
+        return saved(versionedUpdater.apply(LearningPlan.class, planId, stepExists(index), update, now(), expectedVersion,
+                "No timeline step at index " + index));
+    }
+
+    public LearningPlan addStep(String planId, TimelineStep step, Integer position, Long expectedVersion) {
+        if (step == null || step.getStep() == null || step.getStep().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "step is required");
+        }
+        step.setStep(step.getStep().trim());
+        step.setCompletedAt(step.isCompleted() ? now() : null);
+        Update update = new Update();
+        Update.PushOperatorBuilder push = update.push("timeline");
+        if (position != null) {
+            push.atPosition(Math.max(0, position));
+        }
+        push.value(step);
+        return saved(versionedUpdater.apply(LearningPlan.class, planId, null, update, now(), expectedVersion, null));
+    }
+
+    // $pull can only remove by value, which would drop every identical step, so removal by index rebuilds the array in a pipeline update
+    public LearningPlan removeStep(String planId, int index, Long expectedVersion) {
+        requireIndex(index);
+        Document remaining = new Document("$map", new Document("input",
+                new Document("$filter", new Document("input", new Document("$range", List.of(0, new Document("$size", "$timeline"))))
+                        .append("as", "i")
+                        .append("cond", new Document("$ne", List.of("$$i", index)))))
+                .append("as", "i")
+                .append("in", new Document("$arrayElemAt", List.of("$timeline", "$$i"))));
+        return saved(versionedUpdater.applyPipeline(LearningPlan.class, planId, stepExists(index),
+                new Document("timeline", remaining), now(), expectedVersion, "No timeline step at index " + index));
+    }
+
+    // Every plan write goes through one of these so statistics and leaderboards see it
+    public LearningPlan saved(LearningPlan plan) {
+        eventPublisher.publishEvent(LearningActivityEvent.planSaved(plan));
+        return plan;
+    }
+
+    public void deleted(LearningPlan plan) {
+        eventPublisher.publishEvent(LearningActivityEvent.planDeleted(plan));
+    }
+
+    // Plans are stamped in UTC, like the LearningPlan constructor
+    private static LocalDateTime now() {
+        return LocalDateTime.now(ZoneOffset.UTC);
+    }
+
+    private Criteria stepExists(int index) {
+        return Criteria.where("timeline." + index).exists(true);
+    }
+
+    private void requireIndex(int index) {
+        if (index < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Step index must not be negative");
+        }
+    }
+
+    static String requireString(String field, Object value) {
+        if (!(value instanceof String text)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, field + " must be a string");
+        }
+        return text;
+    }
+
+    // Same clean-up the create endpoints apply
+    static String normalize(String field, String value) {
+        String trimmed = value.trim();
+        return "templateType".equals(field) ? trimmed.toLowerCase() : trimmed;
+    }
+}
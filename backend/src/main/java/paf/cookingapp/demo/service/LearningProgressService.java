@@ -0,0 +1,54 @@
+package paf.cookingapp.demo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import paf.cookingapp.demo.model.LearningProgress;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Partial, versioned updates of learning progress records; only the changed fields are written.
+ * Writes are announced with a {@link LearningActivityEvent}.
+ */
+@Service
+public class LearningProgressService {
+    private static final Set<String> PROGRESS_FIELDS = Set.of("title", "courseName", "details", "templateType");
+
+    @Autowired
+    private VersionedUpdater versionedUpdater;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public LearningProgress updateFields(String progressId, Map<String, Object> fields, Long expectedVersion) {
+        Update update = new Update();
+        fields.forEach((field, value) -> {
+            if (!PROGRESS_FIELDS.contains(field)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown progress field: " + field);
+            }
+            update.set(field, LearningPlanService.normalize(field, LearningPlanService.requireString(field, value)));
+        });
+        if (update.getUpdateObject().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No progress fields to update");
+        }
+        // Progress records are stamped in UTC, like the LearningProgress constructor
+        return saved(versionedUpdater.apply(LearningProgress.class, progressId, null, update,
+                LocalDateTime.now(ZoneOffset.UTC), expectedVersion, null));
+    }
+
+    public LearningProgress saved(LearningProgress progress) {
+        eventPublisher.publishEvent(LearningActivityEvent.progressSaved(progress));
+        return progress;
+    }
+
+    public void deleted(LearningProgress progress) {
+        eventPublisher.publishEvent(LearningActivityEvent.progressDeleted(progress));
+    }
+}
@@ -0,0 +1,747 @@
+package paf.cookingapp.demo.service;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import paf.cookingapp.demo.model.LearningPlan;
+import paf.cookingapp.demo.model.LearningProgress;
+import paf.cookingapp.demo.model.LearningStats;
+import paf.cookingapp.demo.model.TimelineStep;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Per-user learning analytics kept in one {@code learning_stats} document per user, so the
+ * dashboard reads a single document.
+ *
+ * Plan and progress writes publish a {@link LearningActivityEvent}. The listener reads only the
+ * written document's previous contribution and the streak fields, and applies the difference as
+ * one $inc/$set upsert. Events are applied on background workers chosen by user hash, and a
+ * striped lock serializes them with per-user rebuilds. Each entry keeps the version of the
+ * document it was taken from, so an event that arrives after a newer one is dropped.
+ * {@link #rebuild()} recomputes every document by streaming the plan and progress
+ * collections in parallel, then re-derives the users that changed while it ran. Per-course
+ * results are handed to the {@link LeaderboardService}.
+ */
+@Service
+public class LearningStatsService {
+    private static final Logger logger = LoggerFactory.getLogger(LearningStatsService.class);
+    private static final String COLLECTION = "learning_stats";
+    private static final String[] PLAN_FIELDS = {
+        "userId", "title", "courseName", "templateType", "timeline", "dateCreated", "lastModified", "version"
+    };
+    private static final String[] PROGRESS_FIELDS = {
+        "userId", "courseName", "templateType", "dateCreated", "lastModified", "version"
+    };
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Value("${learning-stats.stripes:64}")
+    private int stripeCount;
+
+    @Value("${learning-stats.weeks:12}")
+    private int weeksShown;
+
+    @Value("${learning-stats.rebuild-batch-size:500}")
+    private int batchSize;
+
+    @Value("${learning-stats.workers:4}")
+    private int workerCount;
+
+    @Value("${learning-stats.queue-capacity:10000}")
+    private int queueCapacity;
+
+    private StripedLocks locks;
+    private ThreadPoolExecutor[] workers;
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    private final Set<String> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile Map<String, Object> lastReport = Map.of();
+
+    @PostConstruct
+    public void init() {
+        locks = new StripedLocks(stripeCount);
+        // One single-threaded worker per slot keeps a user's events in publish order; a full queue falls back to the
+        // publishing thread, where the version check still rejects anything that overtook a newer event
+        workers = new ThreadPoolExecutor[Math.max(1, workerCount)];
+        for (int i = 0; i < workers.length; i++) {
+            String name = "learning-stats-" + (i + 1);
+            workers[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor worker : workers) {
+            worker.shutdown();
+        }
+        try {
+            for (ThreadPoolExecutor worker : workers) {
+                worker.awaitTermination(5, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Runs off the request thread, so a plan or progress write costs the caller no extra round trips
+    @EventListener
+    public void onActivity(LearningActivityEvent event) {
+        if (event.getUserId() == null || event.getDocumentId() == null) {
+            return;
+        }
+        workers[(event.getUserId().hashCode() & 0x7fffffff) % workers.length].execute(() -> {
+            try {
+                apply(event);
+            } catch (Exception e) {
+                // The scheduled rebuild repairs whatever a failed incremental update leaves behind
+                logger.error("Failed to update learning stats for user {}: {}", event.getUserId(), e.getMessage(), e);
+            }
+        });
+    }
+
+    private void apply(LearningActivityEvent event) {
+        String userId = event.getUserId();
+        String id = event.getDocumentId();
+        String entry = (event.isPlan() ? "plans." : "progress.") + id;
+        ReentrantLock lock = locks.get(userId);
+        lock.lock();
+        try {
+            Query query = byUser(userId);
+            query.fields().include(entry, "tombstones." + id, "lastActiveDay", "currentStreak", "longestStreak");
+            LearningStats current = mongoTemplate.findOne(query, LearningStats.class);
+            if (current != null && current.getTombstones() != null && current.getTombstones().containsKey(id)) {
+                return;
+            }
+
+            Totals delta = new Totals();
+            Set<String> courses = new LinkedHashSet<>();
+            String touchedCourse = null;
+            Object after;
+            if (event.isPlan()) {
+                LearningStats.PlanStats before = current != null && current.getPlans() != null ? current.getPlans().get(id) : null;
+                LearningStats.PlanStats next = event.isDeleted() ? null : planStats(event.getPlan());
+                if ((before == null && next == null)
+                        || (next != null && isStale(next.getVersion(), before != null ? before.getVersion() : null))) {
+                    return;
+                }
+                delta.addPlan(before, -1);
+                delta.addPlan(next, 1);
+                if (before != null) {
+                    courses.add(courseKey(before.getCourseName()));
+                }
+                if (next != null) {
+                    touchedCourse = courseKey(next.getCourseName());
+                }
+                after = next;
+            } else {
+                LearningStats.ProgressStats before = current != null && current.getProgress() != null ? current.getProgress().get(id) : null;
+                LearningStats.ProgressStats next = event.isDeleted() ? null : progressStats(event.getProgress());
+                if ((before == null && next == null)
+                        || (next != null && isStale(next.getVersion(), before != null ? before.getVersion() : null))) {
+                    return;
+                }
+                delta.addProgress(before, -1);
+                delta.addProgress(next, 1);
+                if (before != null) {
+                    courses.add(courseKey(before.getCourseName()));
+                }
+                if (next != null) {
+                    touchedCourse = courseKey(next.getCourseName());
+                }
+                after = next;
+            }
+
+            Update update = new Update();
+            if (after != null) {
+                update.set(entry, after);
+            } else {
+                update.unset(entry);
+                update.set("tombstones." + id, eventVersion(event));
+            }
+            LocalDateTime now = LocalDateTime.now();
+            if (touchedCourse != null) {
+                courses.add(touchedCourse);
+                delta.touch(touchedCourse, now);
+            }
+            delta.applyTo(update);
+            if (!event.isDeleted()) {
+                recordActivity(update, current, now.toLocalDate());
+            }
+            update.set("updatedAt", now);
+
+            // Returning the affected course entries lets the leaderboards take absolute values from the same write
+            courses.removeIf(course -> course == null || course.isBlank());
+            Query target = byUser(userId);
+            courses.forEach(course -> target.fields().include("byCourse." + key(course)));
+            if (courses.isEmpty()) {
+                target.fields().include("_id");
+            }
+            LearningStats updated = mongoTemplate.findAndModify(target, update,
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), LearningStats.class);
+            Map<String, LearningStats.Breakdown> byCourse = updated != null && updated.getByCourse() != null
+                    ? updated.getByCourse() : Map.of();
+            for (String course : courses) {
+                LearningStats.Breakdown entry = byCourse.get(key(course));
+                if (entry != null && entry.getPlans() + entry.getProgress() > 0) {
+                    leaderboardService.update(userId, entry);
+                } else {
+                    leaderboardService.remove(userId, course);
+                }
+            }
+
+            if (rebuilding.get()) {
+                changedDuringRebuild.add(userId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Listeners can see events out of write order; a snapshot no newer than the one already counted is dropped
+    static boolean isStale(Long eventVersion, Long storedVersion) {
+        return storedVersion != null && (eventVersion != null ? eventVersion : 0) <= storedVersion;
+    }
+
+    private static Long eventVersion(LearningActivityEvent event) {
+        Long version = event.isPlan() ? event.getPlan().getVersion() : event.getProgress().getVersion();
+        return version != null ? version : 0L;
+    }
+
+    // A day counts once; activity the day after the last active day extends the streak, anything later restarts it
+    static void recordActivity(Update update, LearningStats current, LocalDate today) {
+        long day = today.toEpochDay();
+        Long lastDay = current != null ? current.getLastActiveDay() : null;
+        if (lastDay != null && lastDay >= day) {
+            return;
+        }
+        int streak = lastDay != null && lastDay == day - 1 ? current.getCurrentStreak() + 1 : 1;
+        int longest = Math.max(streak, current != null ? current.getLongestStreak() : 0);
+        update.set("lastActiveDay", day).set("currentStreak", streak).set("longestStreak", longest);
+    }
+
+    public Map<String, Object> getStats(String userId) {
+        LearningStats stats = mongoTemplate.findById(userId, LearningStats.class);
+        if (stats == null) {
+            stats = new LearningStats();
+        }
+        LocalDate today = LocalDate.now();
+
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("userId", userId);
+        view.put("planCount", stats.getPlanCount());
+        view.put("progressCount", stats.getProgressCount());
+        view.put("stepsTotal", stats.getStepsTotal());
+        view.put("stepsCompleted", stats.getStepsCompleted());
+        view.put("completionRatio", ratio(stats.getStepsCompleted(), stats.getStepsTotal()));
+
+        List<Map<String, Object>> plans = new ArrayList<>();
+        if (stats.getPlans() != null) {
+            stats.getPlans().forEach((planId, plan) -> {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("planId", planId);
+                row.put("title", plan.getTitle());
+                row.put("courseName", plan.getCourseName());
+                row.put("templateType", plan.getTemplateType());
+                row.put("stepsTotal", plan.getStepsTotal());
+                row.put("stepsCompleted", plan.getStepsCompleted());
+                row.put("completionRatio", ratio(plan.getStepsCompleted(), plan.getStepsTotal()));
+                plans.add(row);
+            });
+        }
+        view.put("plans", plans);
+
+        List<Map<String, Object>> weekly = new ArrayList<>();
+        Map<String, Long> weeks = stats.getWeeklyCompleted() != null ? stats.getWeeklyCompleted() : Map.of();
+        for (int i = Math.max(1, weeksShown) - 1; i >= 0; i--) {
+            String week = weekKey(today.minusWeeks(i));
+            weekly.add(Map.of("week", week, "completed", weeks.getOrDefault(week, 0L)));
+        }
+        view.put("weeklyCompleted", weekly);
+
+        // A streak is still current if the last activity was today or yesterday
+        Long lastDay = stats.getLastActiveDay();
+        Map<String, Object> streak = new LinkedHashMap<>();
+        streak.put("current", lastDay != null && lastDay >= today.toEpochDay() - 1 ? stats.getCurrentStreak() : 0);
+        streak.put("longest", stats.getLongestStreak());
+        streak.put("lastActiveDate", lastDay != null ? LocalDate.ofEpochDay(lastDay) : null);
+        view.put("streak", streak);
+
+        view.put("byTemplateType", breakdowns(stats.getByTemplateType()));
+        view.put("byCourse", breakdowns(stats.getByCourse()));
+        view.put("updatedAt", stats.getUpdatedAt());
+        return view;
+    }
+
+    private List<Map<String, Object>> breakdowns(Map<String, LearningStats.Breakdown> entries) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        if (entries == null) {
+            return rows;
+        }
+        entries.values().stream()
+                .filter(entry -> entry.getPlans() > 0 || entry.getProgress() > 0)
+                .sorted(Comparator.comparingLong((LearningStats.Breakdown entry) -> entry.getPlans() + entry.getProgress()).reversed())
+                .forEach(entry -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("name", entry.getName());
+                    row.put("plans", entry.getPlans());
+                    row.put("progress", entry.getProgress());
+                    row.put("stepsTotal", entry.getStepsTotal());
+                    row.put("stepsCompleted", entry.getStepsCompleted());
+                    row.put("completionRatio", ratio(entry.getStepsCompleted(), entry.getStepsTotal()));
+                    rows.add(row);
+                });
+        return rows;
+    }
+
+    @Scheduled(cron = "${learning-stats.rebuild-cron:0 15 4 * * *}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    // Starts a rebuild on its own thread, like the index builder; false when one is already running
+    public boolean rebuildInBackground() {
+        if (rebuilding.get()) {
+            return false;
+        }
+        Thread rebuild = new Thread(this::rebuild, "learning-stats-rebuild-runner");
+        rebuild.setDaemon(true);
+        rebuild.start();
+        return true;
+    }
+
+    /**
+     * Recomputes every user's statistics. Plans and progress are streamed from two cursors on
+     * separate threads into per-user accumulators, written back with unordered bulk replaces,
+     * and documents of users that no longer have any plan or progress are removed. Users whose
+     * data changed while the collections were streamed are re-derived individually afterwards.
+     */
+    public Map<String, Object> rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            Map<String, Object> busy = new HashMap<>(lastReport);
+            busy.put("status", "already running");
+            return busy;
+        }
+        long started = System.currentTimeMillis();
+        Date runStamp = new Date(started);
+        changedDuringRebuild.clear();
+        ExecutorService readers = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "learning-stats-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<String, Object> report = new LinkedHashMap<>();
+        try {
+            Map<String, UserStats> users = new ConcurrentHashMap<>();
+            Future<Long> plans = readers.submit(() -> streamPlans(users));
+            Future<Long> progress = readers.submit(() -> streamProgress(users));
+            long plansScanned = plans.get();
+            long progressScanned = progress.get();
+
+            long written = write(users, runStamp);
+            long removed = mongoTemplate.remove(
+                    Query.query(Criteria.where("rebuiltAt").ne(runStamp)), LearningStats.class).getDeletedCount();
+
+            int refreshed = refreshChanged();
+            rebuilding.set(false);
+            refreshed += refreshChanged();
+            leaderboardService.rebuild();
+
+            report.put("status", "completed");
+            report.put("finishedAt", LocalDateTime.now());
+            report.put("durationMs", System.currentTimeMillis() - started);
+            report.put("plansScanned", plansScanned);
+            report.put("progressScanned", progressScanned);
+            report.put("usersWritten", written);
+            report.put("usersRemoved", removed);
+            report.put("usersRefreshed", refreshed);
+            logger.info("Learning stats rebuild: {} plans, {} progress records, {} users written, {} removed, {} refreshed",
+                    plansScanned, progressScanned, written, removed, refreshed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            report.put("status", "interrupted");
+        } catch (ExecutionException e) {
+            logger.error("Learning stats rebuild failed: {}", e.getCause().getMessage(), e.getCause());
+            report.put("status", "failed");
+            report.put("error", e.getCause().getMessage());
+        } finally {
+            rebuilding.set(false);
+            readers.shutdownNow();
+        }
+        lastReport = report;
+        return report;
+    }
+
+    public Map<String, Object> getLastReport() {
+        return lastReport;
+    }
+
+    private long streamPlans(Map<String, UserStats> users) {
+        Query query = new Query().cursorBatchSize(batchSize);
+        query.fields().include(PLAN_FIELDS);
+        long scanned = 0;
+        try (Stream<LearningPlan> plans = mongoTemplate.stream(query, LearningPlan.class)) {
+            for (LearningPlan plan : (Iterable<LearningPlan>) plans::iterator) {
+                scanned++;
+                if (plan.getUserId() != null) {
+                    users.compute(plan.getUserId(), (userId, user) -> {
+                        UserStats stats = user != null ? user : new UserStats();
+                        stats.addPlan(plan);
+                        return stats;
+                    });
+                }
+            }
+        }
+        return scanned;
+    }
+
+    private long streamProgress(Map<String, UserStats> users) {
+        Query query = new Query().cursorBatchSize(batchSize);
+        query.fields().include(PROGRESS_FIELDS);
+        long scanned = 0;
+        try (Stream<LearningProgress> records = mongoTemplate.stream(query, LearningProgress.class)) {
+            for (LearningProgress progress : (Iterable<LearningProgress>) records::iterator) {
+                scanned++;
+                if (progress.getUserId() != null) {
+                    users.compute(progress.getUserId(), (userId, user) -> {
+                        UserStats stats = user != null ? user : new UserStats();
+                        stats.addProgress(progress);
+                        return stats;
+                    });
+                }
+            }
+        }
+        return scanned;
+    }
+
+    private long write(Map<String, UserStats> users, Date runStamp) {
+        long written = 0;
+        BulkOperations bulk = null;
+        int pending = 0;
+        for (Map.Entry<String, UserStats> entry : users.entrySet()) {
+            if (bulk == null) {
+                bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+            }
+            bulk.replaceOne(Query.query(Criteria.where("_id").is(entry.getKey())),
+                    toDocument(entry.getKey(), entry.getValue(), runStamp),
+                    FindAndReplaceOptions.options().upsert());
+            written++;
+            if (++pending == batchSize) {
+                bulk.execute();
+                bulk = null;
+                pending = 0;
+            }
+        }
+        if (bulk != null) {
+            bulk.execute();
+        }
+        return written;
+    }
+
+    private int refreshChanged() {
+        int refreshed = 0;
+        for (Iterator<String> it = changedDuringRebuild.iterator(); it.hasNext(); ) {
+            String userId = it.next();
+            it.remove();
+            rebuildUser(userId);
+            refreshed++;
+        }
+        return refreshed;
+    }
+
+    // Re-derives one user's document from their plans and progress, under the same lock as incremental updates
+    public void rebuildUser(String userId) {
+        ReentrantLock lock = locks.get(userId);
+        lock.lock();
+        try {
+            UserStats stats = new UserStats();
+            Query plans = Query.query(Criteria.where("userId").is(userId));
+            plans.fields().include(PLAN_FIELDS);
+            mongoTemplate.find(plans, LearningPlan.class).forEach(stats::addPlan);
+            Query progress = Query.query(Criteria.where("userId").is(userId));
+            progress.fields().include(PROGRESS_FIELDS);
+            mongoTemplate.find(progress, LearningProgress.class).forEach(stats::addProgress);
+
+            if (stats.plans.isEmpty() && stats.progress.isEmpty()) {
+                mongoTemplate.remove(byUser(userId), LearningStats.class);
+                leaderboardService.replaceUser(userId, List.of());
+                return;
+            }
+            mongoTemplate.getCollection(COLLECTION).replaceOne(Filters.eq("_id", userId),
+                    toDocument(userId, stats, new Date()), new ReplaceOptions().upsert(true));
+
+            Query courses = byUser(userId);
+            courses.fields().include("byCourse");
+            LearningStats saved = mongoTemplate.findOne(courses, LearningStats.class);
+            leaderboardService.replaceUser(userId, saved != null && saved.getByCourse() != null
+                    ? saved.getByCourse().values() : List.of());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Document toDocument(String userId, UserStats stats, Date rebuiltAt) {
+        Document doc = new Document("_id", userId);
+        stats.totals.increments.forEach((path, value) -> putPath(doc, path, value));
+        stats.totals.names.forEach((path, name) -> putPath(doc, path, name));
+        stats.totals.activity.forEach((path, at) -> putPath(doc, path, Date.from(at.atZone(ZoneId.systemDefault()).toInstant())));
+
+        Document plans = new Document();
+        stats.plans.forEach((id, plan) -> plans.put(id, mongoTemplate.getConverter().convertToMongoType(plan)));
+        doc.put("plans", plans);
+        Document progress = new Document();
+        stats.progress.forEach((id, record) -> progress.put(id, mongoTemplate.getConverter().convertToMongoType(record)));
+        doc.put("progress", progress);
+
+        if (!stats.activeDays.isEmpty()) {
+            int[] streaks = streaks(stats.activeDays);
+            doc.put("lastActiveDay", stats.activeDays.last());
+            doc.put("currentStreak", streaks[0]);
+            doc.put("longestStreak", streaks[1]);
+        }
+        doc.put("updatedAt", new Date());
+        doc.put("rebuiltAt", rebuiltAt);
+        return doc;
+    }
+
+    // Totals paths are dotted ("byCourse.<key>.plans"); keys are escaped so the dots are only separators
+    private static void putPath(Document doc, String path, Object value) {
+        String[] parts = path.split("\\.");
+        Document target = doc;
+        for (int i = 0; i < parts.length - 1; i++) {
+            Object child = target.get(parts[i]);
+            if (!(child instanceof Document)) {
+                child = new Document();
+                target.put(parts[i], child);
+            }
+            target = (Document) child;
+        }
+        target.put(parts[parts.length - 1], value);
+    }
+
+    // {run ending at the last active day, longest run}
+    static int[] streaks(NavigableSet<Long> days) {
+        int run = 0;
+        int longest = 0;
+        Long previous = null;
+        for (long day : days) {
+            run = previous != null && day == previous + 1 ? run + 1 : 1;
+            longest = Math.max(longest, run);
+            previous = day;
+        }
+        return new int[] {run, longest};
+    }
+
+    static LearningStats.PlanStats planStats(LearningPlan plan) {
+        LearningStats.PlanStats stats = new LearningStats.PlanStats();
+        stats.setTitle(plan.getTitle());
+        stats.setCourseName(courseKey(plan.getCourseName()));
+        stats.setTemplateType(plan.getTemplateType());
+        List<TimelineStep> timeline = plan.getTimeline() != null ? plan.getTimeline() : List.of();
+        Map<String, Long> weeks = new TreeMap<>();
+        long completed = 0;
+        for (TimelineStep step : timeline) {
+            if (step != null && step.isCompleted()) {
+                completed++;
+                if (step.getCompletedAt() != null) {
+                    weeks.merge(weekKey(step.getCompletedAt().toLocalDate()), 1L, Long::sum);
+                }
+            }
+        }
+        stats.setStepsTotal(timeline.size());
+        stats.setStepsCompleted(completed);
+        stats.setWeeks(weeks);
+        stats.setVersion(plan.getVersion());
+        return stats;
+    }
+
+    static LearningStats.ProgressStats progressStats(LearningProgress progress) {
+        LearningStats.ProgressStats stats = new LearningStats.ProgressStats();
+        stats.setCourseName(courseKey(progress.getCourseName()));
+        stats.setTemplateType(progress.getTemplateType());
+        stats.setVersion(progress.getVersion());
+        return stats;
+    }
+
+    static String weekKey(LocalDate date) {
+        return String.format("%d-W%02d", date.get(IsoFields.WEEK_BASED_YEAR), date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+    }
+
+    // Course names are free text; like templateType they are grouped trimmed and lowercased
+    static String courseKey(String courseName) {
+        return courseName == null || courseName.isBlank() ? null : courseName.trim().toLowerCase();
+    }
+
+    // Field names cannot contain '.' or start with '$', and course names are free text
+    static String key(String name) {
+        return name.replace("%", "%25").replace(".", "%2E").replace("$", "%24");
+    }
+
+    private static double ratio(long completed, long total) {
+        return total == 0 ? 0 : (double) completed / total;
+    }
+
+    private Query byUser(String userId) {
+        return Query.query(Criteria.where("_id").is(userId));
+    }
+
+    // Field path -> increment for the counters and breakdowns, plus the display names of breakdown entries
+    static final class Totals {
+        final Map<String, Long> increments = new LinkedHashMap<>();
+        final Map<String, String> names = new LinkedHashMap<>();
+        final Map<String, LocalDateTime> activity = new LinkedHashMap<>();
+
+        void addPlan(LearningStats.PlanStats plan, int sign) {
+            if (plan == null) {
+                return;
+            }
+            add("planCount", sign);
+            add("stepsTotal", sign * plan.getStepsTotal());
+            add("stepsCompleted", sign * plan.getStepsCompleted());
+            addBreakdowns(plan.getTemplateType(), plan.getCourseName(), sign, 1, 0, plan.getStepsTotal(), plan.getStepsCompleted());
+            if (plan.getWeeks() != null) {
+                plan.getWeeks().forEach((week, count) -> add("weeklyCompleted." + week, sign * count));
+            }
+        }
+
+        void addProgress(LearningStats.ProgressStats progress, int sign) {
+            if (progress == null) {
+                return;
+            }
+            add("progressCount", sign);
+            addBreakdowns(progress.getTemplateType(), progress.getCourseName(), sign, 0, 1, 0, 0);
+        }
+
+        private void addBreakdowns(String templateType, String courseName, int sign,
+                                   long plans, long progress, long stepsTotal, long stepsCompleted) {
+            String type = templateType == null || templateType.isBlank() ? "other" : templateType;
+            addBreakdown("byTemplateType", type, sign, plans, progress, stepsTotal, stepsCompleted);
+            if (courseName != null && !courseName.isBlank()) {
+                addBreakdown("byCourse", courseKey(courseName), sign, plans, progress, stepsTotal, stepsCompleted);
+            }
+        }
+
+        private void addBreakdown(String field, String name, int sign,
+                                  long plans, long progress, long stepsTotal, long stepsCompleted) {
+            String base = field + "." + key(name);
+            names.put(base + ".name", name);
+            add(base + ".plans", sign * plans);
+            add(base + ".progress", sign * progress);
+            add(base + ".stepsTotal", sign * stepsTotal);
+            add(base + ".stepsCompleted", sign * stepsCompleted);
+        }
+
+        void touch(String courseName, LocalDateTime at) {
+            if (courseName != null && !courseName.isBlank() && at != null) {
+                activity.merge("byCourse." + key(courseKey(courseName)) + ".lastActivityAt", at,
+                        (a, b) -> a.isAfter(b) ? a : b);
+            }
+        }
+
+        void add(String path, long amount) {
+            if (amount != 0) {
+                increments.merge(path, amount, Long::sum);
+            }
+        }
+
+        void applyTo(Update update) {
+            increments.forEach((path, amount) -> {
+                if (amount != 0) {
+                    update.inc(path, amount);
+                }
+            });
+            names.forEach(update::set);
+            activity.forEach(update::max);
+        }
+    }
+
+    // Rebuild accumulator for one user
+    private static final class UserStats {
+        final Totals totals = new Totals();
+        final Map<String, LearningStats.PlanStats> plans = new LinkedHashMap<>();
+        final Map<String, LearningStats.ProgressStats> progress = new LinkedHashMap<>();
+        final NavigableSet<Long> activeDays = new TreeSet<>();
+
+        void addPlan(LearningPlan plan) {
+            LearningStats.PlanStats stats = planStats(plan);
+            plans.put(plan.getId(), stats);
+            totals.addPlan(stats, 1);
+            totals.touch(plan.getCourseName(), plan.getLastModified());
+            addDay(plan.getDateCreated());
+            addDay(plan.getLastModified());
+            if (plan.getTimeline() != null) {
+                for (TimelineStep step : plan.getTimeline()) {
+                    if (step != null && step.isCompleted()) {
+                        addDay(step.getCompletedAt());
+                    }
+                }
+            }
+        }
+
+        void addProgress(LearningProgress record) {
+            LearningStats.ProgressStats stats = progressStats(record);
+            progress.put(record.getId(), stats);
+            totals.addProgress(stats, 1);
+            totals.touch(record.getCourseName(), record.getLastModified());
+            addDay(record.getDateCreated());
+            addDay(record.getLastModified());
+        }
+
+        private void addDay(LocalDateTime at) {
+            if (at != null) {
+                activeDays.add(at.toLocalDate().toEpochDay());
+            }
+        }
+    }
+}
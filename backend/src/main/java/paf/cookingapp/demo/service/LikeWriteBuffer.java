@@ -0,0 +1,404 @@
+package paf.cookingapp.demo.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import paf.cookingapp.demo.model.Interaction;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional write-behind buffer for like/unlike (enabled with {@code likes.write-behind.enabled}).
+ *
+ * Intents are kept in sharded maps keyed by (postId, userId), so repeated toggles by the same
+ * user collapse into the last state. A single flusher drains all shards on a timer or when the
+ * buffer reaches {@code likes.write-behind.max-pending}, writing likes as unordered bulk upserts
+ * and unlikes as bulk deletes, then adjusting the post counters by the net change per post.
+ * Like notifications are published from the flush, and only for upserts that inserted a like.
+ */
+@Service
+public class LikeWriteBuffer {
+    private static final Logger logger = LoggerFactory.getLogger(LikeWriteBuffer.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private PostCounterService postCounterService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${likes.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${likes.write-behind.shards:16}")
+    private int shardCount;
+
+    @Value("${likes.write-behind.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${likes.write-behind.max-pending:5000}")
+    private int maxPending;
+
+    private Shard[] shards;
+    private ScheduledExecutorService flusher;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    // Not synchronized: flush runs bulk writes and may be called inline from a virtual request thread
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong operationsFlushed = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile long maxFlushNanos;
+
+    @PostConstruct
+    public void start() {
+        shards = new Shard[Math.max(1, shardCount)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard();
+        }
+        if (enabled) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "like-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+            logger.info("Like write-behind enabled: {} shards, flush every {} ms or at {} pending", shards.length, flushIntervalMs, maxPending);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void submit(String postId, String userId, boolean liked, String postOwnerId, String username) {
+        LikeIntent intent = new LikeIntent(postId, userId, liked, postOwnerId, username, LocalDateTime.now());
+        Shard shard = shardFor(postId, userId);
+        LikeIntent previous;
+        synchronized (shard) {
+            previous = shard.current.put(intent.key(), intent);
+        }
+        submitted.incrementAndGet();
+        if (previous != null) {
+            coalesced.incrementAndGet();
+        } else if (pending.incrementAndGet() >= maxPending && flushScheduled.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                flushQuietly();
+            }
+        }
+        // Once drain() has shut the flusher down nothing else will pick this up, so write it now
+        if (flusher.isShutdown()) {
+            flushQuietly();
+        }
+    }
+
+    /**
+     * Buffered like state for this user and post, or {@code null} if nothing is pending and the
+     * database is authoritative. Also checks the batch currently being flushed.
+     */
+    public Boolean bufferedState(String postId, String userId) {
+        if (!enabled) {
+            return null;
+        }
+        Shard shard = shardFor(postId, userId);
+        String key = postId + ":" + userId;
+        synchronized (shard) {
+            LikeIntent intent = shard.current.get(key);
+            if (intent == null && shard.inFlight != null) {
+                intent = shard.inFlight.get(key);
+            }
+            return intent != null ? intent.liked : null;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            failedFlushes.incrementAndGet();
+            logger.error("Like write-behind flush failed: {}", e.getMessage(), e);
+        }
+    }
+
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushBatch();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushBatch() {
+        flushScheduled.set(false);
+        long started = System.nanoTime();
+
+        List<LikeIntent> batch = new ArrayList<>();
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                if (shard.current.isEmpty()) {
+                    continue;
+                }
+                shard.inFlight = shard.current;
+                shard.current = new HashMap<>();
+            }
+            batch.addAll(shard.inFlight.values());
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        pending.addAndGet(-batch.size());
+
+        // If write() throws, nothing is known to have been applied and the whole batch is retried
+        List<LikeIntent> failed = batch;
+        try {
+            failed = write(batch);
+        } finally {
+            // Put failed intents back unless the user has toggled again since, so they are retried next flush
+            int requeued = 0;
+            for (LikeIntent intent : failed) {
+                Shard shard = shardFor(intent.postId, intent.userId);
+                synchronized (shard) {
+                    if (shard.current.putIfAbsent(intent.key(), intent) == null) {
+                        requeued++;
+                    }
+                }
+            }
+            for (Shard shard : shards) {
+                synchronized (shard) {
+                    shard.inFlight = null;
+                }
+            }
+            pending.addAndGet(requeued);
+        }
+        if (!failed.isEmpty()) {
+            failedFlushes.incrementAndGet();
+        }
+
+        long elapsed = System.nanoTime() - started;
+        flushes.incrementAndGet();
+        operationsFlushed.addAndGet(batch.size());
+        totalFlushNanos.addAndGet(elapsed);
+        lastFlushNanos = elapsed;
+        maxFlushNanos = Math.max(maxFlushNanos, elapsed);
+    }
+
+    /**
+     * Writes one batch and returns the intents that did not make it. Counter deltas come from what
+     * each write actually applied, so a partial failure still counts the likes that were inserted
+     * and only the failed intents are retried.
+     */
+    private List<LikeIntent> write(List<LikeIntent> batch) {
+        List<LikeIntent> likes = new ArrayList<>();
+        List<LikeIntent> unlikes = new ArrayList<>();
+        for (LikeIntent intent : batch) {
+            (intent.liked ? likes : unlikes).add(intent);
+        }
+
+        List<LikeIntent> failed = new ArrayList<>();
+        if (!likes.isEmpty()) {
+            failed.addAll(writeLikes(likes));
+        }
+        if (!unlikes.isEmpty()) {
+            try {
+                removeLikes(unlikes);
+            } catch (RuntimeException e) {
+                // Unlikes are recomputed from what still exists, so retrying them never double-counts
+                logger.warn("Like write-behind: {} unlikes failed and will be retried: {}", unlikes.size(), e.getMessage());
+                failed.addAll(unlikes);
+            }
+        }
+        return failed;
+    }
+
+    private List<LikeIntent> writeLikes(List<LikeIntent> likes) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Interaction.class);
+        for (LikeIntent intent : likes) {
+            bulk.upsert(
+                likeQuery(intent.postId, intent.userId),
+                new Update()
+                    .setOnInsert("postOwnerId", intent.postOwnerId)
+                    .setOnInsert("username", intent.username)
+                    .setOnInsert("createdAt", intent.at)
+                    .setOnInsert("read", false)
+            );
+        }
+
+        BulkWriteResult result;
+        List<LikeIntent> failed = new ArrayList<>();
+        try {
+            result = bulk.execute();
+        } catch (BulkOperationException e) {
+            // Unordered: every operation not listed as an error was applied
+            result = e.getResult();
+            for (BulkWriteError error : e.getErrors()) {
+                failed.add(likes.get(error.getIndex()));
+            }
+            logger.warn("Like write-behind: {} of {} likes failed and will be retried", failed.size(), likes.size());
+        }
+
+        // Only operations that inserted a new like move the counter and notify the owner
+        Map<String, Long> counterDeltas = new HashMap<>();
+        List<Interaction> inserted = new ArrayList<>();
+        for (BulkWriteUpsert upsert : result.getUpserts()) {
+            LikeIntent intent = likes.get(upsert.getIndex());
+            counterDeltas.merge(intent.postId, 1L, Long::sum);
+            inserted.add(intent.toLike(upsert.getId().asObjectId().getValue().toHexString()));
+        }
+        counterDeltas.forEach(postCounterService::adjustLikeCount);
+        for (Interaction like : inserted) {
+            if (like.getPostOwnerId() == null || like.getPostOwnerId().equals(like.getUserId())) {
+                continue;
+            }
+            try {
+                eventPublisher.publishEvent(new NotificationEvent(like));
+            } catch (RuntimeException e) {
+                // The like is stored; a failing listener must not get the batch retried
+                logger.warn("Like write-behind: notification for like {} failed: {}", like.getId(), e.getMessage());
+            }
+        }
+        return failed;
+    }
+
+    private void removeLikes(List<LikeIntent> unlikes) {
+        // Bulk deletes only report a total, so find the likes that exist first to get per-post deltas
+        Query existing = new Query(new Criteria().andOperator(
+            Criteria.where("type").is(Interaction.TYPE_LIKE),
+            new Criteria().orOperator(unlikes.stream()
+                .map(intent -> Criteria.where("postId").is(intent.postId).and("userId").is(intent.userId))
+                .toArray(Criteria[]::new))
+        ));
+        existing.fields().include("postId", "userId", "postOwnerId", "type", "createdAt");
+        List<Interaction> toRemove = mongoTemplate.find(existing, Interaction.class);
+        if (toRemove.isEmpty()) {
+            return;
+        }
+        List<String> ids = toRemove.stream().map(Interaction::getId).toList();
+        mongoTemplate.remove(new Query(Criteria.where("id").in(ids)), Interaction.class);
+        Map<String, Long> counterDeltas = new HashMap<>();
+        for (Interaction like : toRemove) {
+            counterDeltas.merge(like.getPostId(), -1L, Long::sum);
+            notificationService.onInteractionRemoved(like);
+        }
+        counterDeltas.forEach(postCounterService::adjustLikeCount);
+    }
+
+    private Query likeQuery(String postId, String userId) {
+        return new Query(
+            Criteria.where("postId").is(postId)
+                .and("userId").is(userId)
+                .and("type").is(Interaction.TYPE_LIKE)
+        );
+    }
+
+    private Shard shardFor(String postId, String userId) {
+        int hash = Objects.hash(postId, userId);
+        return shards[(hash & 0x7fffffff) % shards.length];
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long flushCount = flushes.get();
+        metrics.put("enabled", enabled);
+        metrics.put("bufferDepth", pending.get());
+        metrics.put("submitted", submitted.get());
+        metrics.put("coalesced", coalesced.get());
+        metrics.put("flushes", flushCount);
+        metrics.put("failedFlushes", failedFlushes.get());
+        metrics.put("operationsFlushed", operationsFlushed.get());
+        metrics.put("lastFlushMs", lastFlushNanos / 1_000_000.0);
+        metrics.put("maxFlushMs", maxFlushNanos / 1_000_000.0);
+        metrics.put("avgFlushMs", flushCount == 0 ? 0 : totalFlushNanos.get() / 1_000_000.0 / flushCount);
+        return metrics;
+    }
+
+    // Drain everything that is still buffered before the application context closes
+    @PreDestroy
+    public void drain() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+        logger.info("Like write-behind buffer drained");
+    }
+
+    private static final class Shard {
+        private Map<String, LikeIntent> current = new HashMap<>();
+        private Map<String, LikeIntent> inFlight;
+    }
+
+    private static final class LikeIntent {
+        final String postId;
+        final String userId;
+        final boolean liked;
+        final String postOwnerId;
+        final String username;
+        final LocalDateTime at;
+
+        LikeIntent(String postId, String userId, boolean liked, String postOwnerId, String username, LocalDateTime at) {
+            this.postId = postId;
+            this.userId = userId;
+            this.liked = liked;
+            this.postOwnerId = postOwnerId;
+            this.username = username;
+            this.at = at;
+        }
+
+        String key() { return postId + ":" + userId; }
+
+        // The like as the upsert stored it
+        Interaction toLike(String id) {
+            Interaction like = new Interaction();
+            like.setId(id);
+            like.setPostId(postId);
+            like.setPostOwnerId(postOwnerId);
+            like.setUserId(userId);
+            like.setUsername(username);
+            like.setType(Interaction.TYPE_LIKE);
+            like.setCreatedAt(at);
+            like.setRead(false);
+            return like;
+        }
+    }
+}
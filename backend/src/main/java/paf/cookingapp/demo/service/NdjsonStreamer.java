@@ -0,0 +1,53 @@
+package paf.cookingapp.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes a Mongo cursor to the response as newline-delimited JSON, one document per line.
+ * The stream is opened on the async response thread and closed when the body is complete,
+ * so only the driver's current cursor batch is held in memory.
+ */
+@Component
+public class NdjsonStreamer {
+    public static final String NDJSON = "application/x-ndjson";
+    private static final int FLUSH_EVERY = 100;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public <T> ResponseEntity<StreamingResponseBody> response(Supplier<Stream<T>> source) {
+        StreamingResponseBody body = output -> write(source, output);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+
+    private <T> void write(Supplier<Stream<T>> source, OutputStream output) throws java.io.IOException {
+        OutputStream buffered = new BufferedOutputStream(output, 16 * 1024);
+        try (Stream<T> documents = source.get()) {
+            Iterator<T> iterator = documents.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                // Write each value separately; ObjectMapper would otherwise close the shared stream
+                buffered.write(objectMapper.writeValueAsBytes(iterator.next()));
+                buffered.write('\n');
+                // Flush periodically so the first rows reach the client before the cursor is exhausted
+                if (++written % FLUSH_EVERY == 0) {
+                    buffered.flush();
+                }
+            }
+        }
+        buffered.flush();
+    }
+}
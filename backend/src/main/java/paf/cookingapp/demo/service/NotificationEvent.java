@@ -0,0 +1,14 @@
+package paf.cookingapp.demo.service;
+
+import paf.cookingapp.demo.model.Interaction;
+
+// Published in-process when someone likes or comments on another user's post
+public class NotificationEvent {
+    private final Interaction interaction;
+
+    public NotificationEvent(Interaction interaction) {
+        this.interaction = interaction;
+    }
+
+    public Interaction getInteraction() { return interaction; }
+}
@@ -0,0 +1,496 @@
+package paf.cookingapp.demo.service;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.RenameCollectionOptions;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import paf.cookingapp.demo.model.Interaction;
+import paf.cookingapp.demo.model.NotificationActor;
+import paf.cookingapp.demo.model.NotificationGroup;
+import paf.cookingapp.demo.model.NotificationGroupMember;
+import paf.cookingapp.demo.model.Post;
+import paf.cookingapp.demo.model.UserSummary;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Grouped notifications.
+ *
+ * Every like or comment on someone else's post is folded into one {@code notification_groups}
+ * row per (owner, post, type, time bucket) with a single upsert at write time: the actor count
+ * grows once per distinct actor and the actor moves to the front of a capped, newest-first list.
+ * Which actors a group already has is tracked in {@code notification_group_actors}, one row per
+ * (group, actor), so a group document stays small however many people interact with the post.
+ * Unlikes and deleted comments take the actor back out. The notification list
+ * then reads pre-grouped rows, so a post with thousands of likes costs one row instead of
+ * thousands of interactions.
+ */
+@Service
+public class NotificationService {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationService.class);
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final String COLLECTION = "notification_groups";
+    private static final String REBUILD_COLLECTION = "notification_groups_rebuild";
+    private static final String MEMBERS_COLLECTION = "notification_group_actors";
+    private static final String MEMBERS_REBUILD_COLLECTION = "notification_group_actors_rebuild";
+    public static final int MAX_PAGE_SIZE = 50;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private UserSummaryService userSummaryService;
+
+    @Value("${notifications.group.bucket-hours:24}")
+    private long bucketHours;
+
+    @Value("${notifications.group.max-actors:5}")
+    private int maxActors;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    private volatile boolean writingRebuild;
+    private volatile Map<String, Object> lastRebuildReport = Map.of("status", "never run");
+
+    @EventListener
+    public void onNotification(NotificationEvent event) {
+        Interaction interaction = event.getInteraction();
+        LocalDateTime at = activityTime(interaction);
+        String groupId = groupId(interaction, at);
+        forEachTarget((groups, members) -> {
+            boolean newActor = addMember(groupId, interaction, members);
+            mongoTemplate.upsert(
+                Query.query(Criteria.where("_id").is(groupId)),
+                groupUpdate(interaction, at, newActor),
+                NotificationGroup.class,
+                groups
+            );
+        });
+    }
+
+    /**
+     * Returns a page of grouped notifications for the owner, newest activity first, resuming after
+     * the (latestAt, id) of the cursor. A group is unread while its latest activity is newer than
+     * the user's read watermark.
+     */
+    public KeysetPage<Map<String, Object>> getNotifications(String userId, LocalDateTime lastReadAt,
+                                                            boolean unreadOnly, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Criteria> criteria = new ArrayList<>();
+        criteria.add(Criteria.where("ownerId").is(userId));
+        if (unreadOnly) {
+            criteria.add(Criteria.where("latestAt").gt(lastReadAt));
+        }
+        // Keyset predicate: strictly older than the cursor, ties broken by id
+        if (cursor != null && !cursor.isBlank()) {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            criteria.add(new Criteria().orOperator(
+                Criteria.where("latestAt").lt(after.getTime()),
+                Criteria.where("latestAt").is(after.getTime()).and("_id").lt(after.getKey())
+            ));
+        }
+        Query query = Query.query(new Criteria().andOperator(criteria))
+            .with(Sort.by(Sort.Direction.DESC, "latestAt", "_id"))
+            .limit(pageSize + 1);
+        // Groups written before the actors moved to their own collection may still carry the map
+        query.fields().exclude("actors");
+        KeysetPage<NotificationGroup> groups = KeysetPage.of(mongoTemplate.find(query, NotificationGroup.class),
+            pageSize, group -> KeysetCursor.of(group.getLatestAt(), group.getId()));
+        return new KeysetPage<>(enrich(groups.getItems(), lastReadAt), groups.getNextCursor());
+    }
+
+    /**
+     * Adds the latest actor's profile picture and a post summary to a page of groups. Actors come
+     * from the shared user summary cache and posts for the whole page from one projected $in
+     * query, joined in memory, so the cost does not grow with page size.
+     */
+    private List<Map<String, Object>> enrich(List<NotificationGroup> groups, LocalDateTime lastReadAt) {
+        Set<String> userIds = new HashSet<>();
+        Set<Long> postIds = new HashSet<>();
+        for (NotificationGroup group : groups) {
+            NotificationActor latest = latestActor(group);
+            if (latest != null && latest.getUserId() != null) {
+                userIds.add(latest.getUserId());
+            }
+            // Groups store the numeric postId as a string, not the post's document id
+            Long postId = parsePostId(group.getPostId());
+            if (postId != null) {
+                postIds.add(postId);
+            }
+        }
+
+        Map<String, UserSummary> actors = userSummaryService.getAll(userIds);
+
+        Map<Long, Map<String, Object>> posts = new HashMap<>();
+        if (!postIds.isEmpty()) {
+            Query postQuery = Query.query(Criteria.where("postId").in(postIds));
+            postQuery.fields().include("postId", "title").slice("mediaUrls", 1);
+            for (Post post : mongoTemplate.find(postQuery, Post.class)) {
+                Map<String, Object> postInfo = new HashMap<>();
+                postInfo.put("id", post.getId());
+                postInfo.put("postId", post.getPostId());
+                postInfo.put("title", post.getTitle());
+                if (post.getMediaUrls() != null && !post.getMediaUrls().isEmpty()) {
+                    postInfo.put("thumbnailUrl", post.getMediaUrls().get(0));
+                }
+                posts.put(post.getPostId(), postInfo);
+            }
+        }
+
+        List<Map<String, Object>> enrichedPage = new ArrayList<>(groups.size());
+        for (NotificationGroup group : groups) {
+            NotificationActor latest = latestActor(group);
+            Map<String, Object> enriched = new HashMap<>();
+            enriched.put("id", group.getId());
+            enriched.put("type", group.getType());
+            enriched.put("content", group.getLatestContent());
+            enriched.put("createdAt", group.getLatestAt());
+            enriched.put("read", group.getLatestAt() == null || !group.getLatestAt().isAfter(lastReadAt));
+            enriched.put("actorCount", group.getActorCount());
+            enriched.put("actors", group.getRecentActors() != null
+                ? group.getRecentActors().stream().map(NotificationActor::getUsername).toList()
+                : List.of());
+            if (latest != null) {
+                enriched.put("userId", latest.getUserId());
+                enriched.put("username", latest.getUsername());
+                UserSummary actor = actors.get(latest.getUserId());
+                if (actor != null && actor.getProfilePicture() != null) {
+                    enriched.put("profilePicture", actor.getProfilePicture());
+                }
+            }
+            Map<String, Object> postInfo = posts.get(parsePostId(group.getPostId()));
+            if (postInfo != null) {
+                enriched.put("post", postInfo);
+            }
+            enrichedPage.add(enriched);
+        }
+        return enrichedPage;
+    }
+
+    // Existing interactions are grouped once when the collections are first deployed
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillInBackground() {
+        Thread backfill = new Thread(() -> {
+            try {
+                if (mongoTemplate.estimatedCount(MEMBERS_COLLECTION) == 0
+                        && mongoTemplate.exists(Query.query(Criteria.where("type").in(Interaction.TYPE_LIKE, Interaction.TYPE_COMMENT)), Interaction.class)) {
+                    rebuildGroups();
+                }
+            } catch (Exception e) {
+                logger.error("Notification group backfill failed: {}", e.getMessage(), e);
+            }
+        }, "notification-group-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    // Starts a rebuild on its own thread, like the index builder; false when one is already running
+    public boolean rebuildGroupsInBackground() {
+        if (rebuilding.get()) {
+            return false;
+        }
+        Thread rebuild = new Thread(this::rebuildGroups, "notification-group-rebuild");
+        rebuild.setDaemon(true);
+        rebuild.start();
+        return true;
+    }
+
+    public Map<String, Object> getLastRebuildReport() {
+        return lastRebuildReport;
+    }
+
+    /**
+     * Rebuilds all groups from the interactions collection, e.g. after deploying grouping on
+     * existing data or changing the bucket size. Interactions are replayed oldest first through
+     * the same upsert used at write time into a separate collection, which then replaces the live
+     * one with a rename, so readers keep seeing the old groups until the new ones are complete.
+     * Likes and comments arriving meanwhile are written to both sets of collections. The replay
+     * only records memberships; each group's actor count is then set from them in one aggregation.
+     */
+    public Map<String, Object> rebuildGroups() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return Map.of("status", "already running");
+        }
+        long started = System.currentTimeMillis();
+        try {
+            MongoCollection<Document> target = createRebuildCollection(REBUILD_COLLECTION, COLLECTION);
+            MongoCollection<Document> membersTarget = createRebuildCollection(MEMBERS_REBUILD_COLLECTION, MEMBERS_COLLECTION);
+            writingRebuild = true;
+
+            Query interactions = new BasicQuery(new Document("type",
+                    new Document("$in", List.of(Interaction.TYPE_LIKE, Interaction.TYPE_COMMENT)))
+                    .append("$expr", new Document("$ne", List.of("$userId", "$postOwnerId"))));
+            interactions.with(Sort.by(Sort.Direction.ASC, "createdAt")).cursorBatchSize(REBUILD_BATCH_SIZE);
+
+            long replayed = 0;
+            BulkOperations bulk = null;
+            BulkOperations memberBulk = null;
+            int pending = 0;
+            try (Stream<Interaction> stream = mongoTemplate.stream(interactions, Interaction.class)) {
+                for (Interaction interaction : (Iterable<Interaction>) stream::iterator) {
+                    if (interaction.getPostOwnerId() == null) {
+                        continue;
+                    }
+                    if (bulk == null) {
+                        bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NotificationGroup.class, REBUILD_COLLECTION);
+                        memberBulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NotificationGroupMember.class, MEMBERS_REBUILD_COLLECTION);
+                    }
+                    LocalDateTime at = activityTime(interaction);
+                    String groupId = groupId(interaction, at);
+                    memberBulk.upsert(memberQuery(groupId, interaction.getUserId()), memberUpdate(interaction));
+                    bulk.upsert(Query.query(Criteria.where("_id").is(groupId)), groupUpdate(interaction, at, false));
+                    replayed++;
+                    if (++pending == REBUILD_BATCH_SIZE) {
+                        memberBulk.execute();
+                        bulk.execute();
+                        bulk = null;
+                        pending = 0;
+                    }
+                }
+            }
+            if (bulk != null) {
+                memberBulk.execute();
+                bulk.execute();
+            }
+
+            // Memberships are exact, so they overwrite whatever count the replay and concurrent writes left
+            membersTarget.aggregate(List.of(
+                new Document("$group", new Document("_id", "$groupId").append("actorCount", new Document("$sum", 1))),
+                new Document("$merge", new Document("into", REBUILD_COLLECTION)
+                    .append("on", "_id")
+                    .append("whenMatched", "merge")
+                    .append("whenNotMatched", "discard"))
+            )).toCollection();
+
+            String database = mongoTemplate.getDb().getName();
+            membersTarget.renameCollection(new MongoNamespace(database, MEMBERS_COLLECTION),
+                    new RenameCollectionOptions().dropTarget(true));
+            target.renameCollection(new MongoNamespace(database, COLLECTION),
+                    new RenameCollectionOptions().dropTarget(true));
+            writingRebuild = false;
+            // A write racing the renames may have recreated the temporary collections
+            mongoTemplate.dropCollection(REBUILD_COLLECTION);
+            mongoTemplate.dropCollection(MEMBERS_REBUILD_COLLECTION);
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("status", "completed");
+            report.put("interactionsReplayed", replayed);
+            report.put("groups", mongoTemplate.estimatedCount(COLLECTION));
+            report.put("durationMs", System.currentTimeMillis() - started);
+            logger.info("Rebuilt notification groups: {}", report);
+            lastRebuildReport = report;
+            return report;
+        } catch (RuntimeException e) {
+            writingRebuild = false;
+            logger.error("Notification group rebuild failed: {}", e.getMessage(), e);
+            lastRebuildReport = Map.of("status", "failed", "error", String.valueOf(e.getMessage()));
+            return lastRebuildReport;
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private MongoCollection<Document> createRebuildCollection(String name, String live) {
+        mongoTemplate.dropCollection(name);
+        MongoCollection<Document> target = mongoTemplate.createCollection(name);
+        for (IndexManager.IndexDefinition index : IndexManager.INDEXES) {
+            if (live.equals(index.getCollection())) {
+                IndexOptions options = new IndexOptions().name(index.getName()).unique(index.isUnique());
+                if (index.getPartialFilter() != null) {
+                    options.partialFilterExpression(index.getPartialFilter());
+                }
+                target.createIndex(index.getKeys(), options);
+            }
+        }
+        return target;
+    }
+
+    // Applies a write to the live groups and members and, while a rebuild runs, to the collections that will replace them
+    private void forEachTarget(BiConsumer<String, String> write) {
+        write.accept(COLLECTION, MEMBERS_COLLECTION);
+        if (writingRebuild) {
+            write.accept(REBUILD_COLLECTION, MEMBERS_REBUILD_COLLECTION);
+        }
+    }
+
+    private LocalDateTime activityTime(Interaction interaction) {
+        return interaction.getCreatedAt() != null ? interaction.getCreatedAt() : LocalDateTime.now();
+    }
+
+    /**
+     * Takes back a removed like or comment. The actor only leaves the group (and the count) when
+     * this was their last interaction in it; a group without actors is deleted.
+     */
+    public void onInteractionRemoved(Interaction removed) {
+        String actorId = removed.getUserId();
+        if (removed.getPostOwnerId() == null || actorId == null || actorId.equals(removed.getPostOwnerId())
+                || removed.getCreatedAt() == null || !isGrouped(removed.getType())) {
+            return;
+        }
+        String groupId = groupId(removed, removed.getCreatedAt());
+        Document set = new Document("actorCount", new Document("$subtract", List.of("$actorCount", 1)))
+            .append("recentActors", withoutActor(actorId));
+        forEachTarget((groups, members) -> {
+            if (!removeMember(groupId, removed, members)) {
+                return;
+            }
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(groupId)), pipeline(set),
+                NotificationGroup.class, groups);
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(groupId).and("actorCount").lte(0)),
+                NotificationGroup.class, groups);
+        });
+    }
+
+    // Records the actor in the group; true when they were not in it yet
+    private boolean addMember(String groupId, Interaction interaction, String collection) {
+        Query query = memberQuery(groupId, interaction.getUserId());
+        try {
+            return mongoTemplate.upsert(query, memberUpdate(interaction), NotificationGroupMember.class, collection)
+                .getUpsertedId() != null;
+        } catch (DuplicateKeyException e) {
+            // A concurrent upsert for the same actor inserted first, so the actor is already counted
+            mongoTemplate.updateFirst(query, memberUpdate(interaction), NotificationGroupMember.class, collection);
+            return false;
+        }
+    }
+
+    // Takes one interaction off the actor's membership; true when it was their last one in the group
+    private boolean removeMember(String groupId, Interaction removed, String collection) {
+        if (Interaction.TYPE_COMMENT.equals(removed.getType())) {
+            Query moreThanOne = memberQuery(groupId, removed.getUserId()).addCriteria(Criteria.where("count").gt(1));
+            if (mongoTemplate.updateFirst(moreThanOne, new Update().inc("count", -1),
+                    NotificationGroupMember.class, collection).getModifiedCount() > 0) {
+                return false;
+            }
+        }
+        return mongoTemplate.remove(memberQuery(groupId, removed.getUserId()), NotificationGroupMember.class, collection)
+            .getDeletedCount() > 0;
+    }
+
+    private Query memberQuery(String groupId, String actorId) {
+        return Query.query(Criteria.where("groupId").is(groupId).and("actorId").is(actorId));
+    }
+
+    // A user has at most one like per post, so likes mark the actor instead of counting
+    private Update memberUpdate(Interaction interaction) {
+        return Interaction.TYPE_LIKE.equals(interaction.getType())
+            ? new Update().set("count", 1)
+            : new Update().inc("count", 1);
+    }
+
+    /**
+     * One pipeline upsert per interaction. {@code actorCount} only grows when the membership
+     * upsert found an actor not seen before, and the actor moves to the front of
+     * {@code recentActors} instead of appearing twice. All values are evaluated against the
+     * document before the update.
+     */
+    private AggregationUpdate groupUpdate(Interaction interaction, LocalDateTime at, boolean newActor) {
+        String actorId = interaction.getUserId();
+        Date when = toDate(at);
+        Document actor = new Document("userId", actorId)
+            .append("username", interaction.getUsername())
+            .append("at", when);
+
+        Document set = new Document("ownerId", ifMissing("$ownerId", interaction.getPostOwnerId()))
+            .append("postId", ifMissing("$postId", interaction.getPostId()))
+            .append("type", ifMissing("$type", interaction.getType()))
+            .append("bucketStart", ifMissing("$bucketStart", toDate(bucketStart(at))))
+            .append("actorCount", new Document("$add", List.of(
+                new Document("$ifNull", List.of("$actorCount", 0)), newActor ? 1 : 0)))
+            .append("recentActors", new Document("$slice", List.of(
+                new Document("$concatArrays", List.of(List.of(literal(actor)), withoutActor(actorId))), maxActors)))
+            .append("latestAt", new Document("$max", List.of("$latestAt", when)));
+        if (Interaction.TYPE_COMMENT.equals(interaction.getType())) {
+            set.append("latestContent", literal(interaction.getContent()));
+        }
+        return pipeline(set);
+    }
+
+    private AggregationUpdate pipeline(Document set) {
+        AggregationOperation stage = context -> new Document("$set", set);
+        return AggregationUpdate.from(List.of(stage));
+    }
+
+    private Document withoutActor(String actorId) {
+        return new Document("$filter", new Document("input", new Document("$ifNull", List.of("$recentActors", List.of())))
+            .append("cond", new Document("$ne", List.of("$$this.userId", literal(actorId)))));
+    }
+
+    private Document ifMissing(String field, Object value) {
+        return new Document("$ifNull", List.of(field, literal(value)));
+    }
+
+    // User input such as comment text could start with '$' and would otherwise be read as a field path
+    private Document literal(Object value) {
+        return new Document("$literal", value);
+    }
+
+    private Date toDate(LocalDateTime at) {
+        return Date.from(at.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private boolean isGrouped(String type) {
+        return Interaction.TYPE_LIKE.equals(type) || Interaction.TYPE_COMMENT.equals(type);
+    }
+
+    private String groupId(Interaction interaction, LocalDateTime at) {
+        return interaction.getPostOwnerId() + ":" + interaction.getPostId() + ":" + interaction.getType()
+                + ":" + bucketIndex(at);
+    }
+
+    private long bucketIndex(LocalDateTime at) {
+        long millis = at.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return Math.floorDiv(millis, bucketHours * 3_600_000L);
+    }
+
+    private LocalDateTime bucketStart(LocalDateTime at) {
+        long start = bucketIndex(at) * bucketHours * 3_600_000L;
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(start), ZoneId.systemDefault());
+    }
+
+    private NotificationActor latestActor(NotificationGroup group) {
+        List<NotificationActor> actors = group.getRecentActors();
+        return actors != null && !actors.isEmpty() ? actors.get(0) : null;
+    }
+
+    private Long parsePostId(String postId) {
+        if (postId == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(postId);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package paf.cookingapp.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import paf.cookingapp.demo.model.Interaction;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Server-Sent Events channel for notifications.
+ *
+ * Emitters are held by the async servlet machinery, so an idle subscriber costs no request
+ * thread. Like and comment events arrive through the in-process event bus and are delivered to
+ * every open stream of the post owner on virtual threads. A short per-user replay buffer lets a
+ * reconnecting client resume from its Last-Event-ID, and periodic heartbeats keep proxies from
+ * closing idle connections.
+ */
+@Service
+public class NotificationStreamService {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationStreamService.class);
+    private static final String EVENT_NAME = "notification";
+
+    @Value("${notifications.stream.timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${notifications.stream.replay-size:50}")
+    private int replaySize;
+
+    private final Map<String, Set<Subscriber>> emitters = new ConcurrentHashMap<>();
+    private final LookupCache<String, Deque<StreamEvent>> replay = new LookupCache<>(100_000, 15 * 60 * 1000L);
+    private final ExecutorService delivery = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong subscriberCount = new AtomicLong();
+
+    // Seeded from the clock so ids keep increasing across restarts and stale Last-Event-IDs replay nothing new
+    private final AtomicLong eventIds = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    public SseEmitter subscribe(String userId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter);
+        Set<Subscriber> userEmitters = emitters.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet());
+        userEmitters.add(subscriber);
+        subscriberCount.incrementAndGet();
+
+        Runnable remove = () -> {
+            if (userEmitters.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+            }
+            emitters.computeIfPresent(userId, (id, set) -> set.isEmpty() ? null : set);
+        };
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+
+        // Held across the greeting and the replay so a live event cannot land in between
+        subscriber.lock.lock();
+        try {
+            send(subscriber, SseEmitter.event().comment("connected"));
+            for (StreamEvent event : missedEvents(userId, lastEventId)) {
+                send(subscriber, event.toSse());
+            }
+        } finally {
+            subscriber.lock.unlock();
+        }
+        return emitter;
+    }
+
+    @EventListener
+    public void onNotification(NotificationEvent notificationEvent) {
+        Interaction interaction = notificationEvent.getInteraction();
+        String ownerId = interaction.getPostOwnerId();
+        if (ownerId == null || ownerId.equals(interaction.getUserId())) {
+            return;
+        }
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("id", interaction.getId());
+        payload.put("type", interaction.getType());
+        payload.put("postId", interaction.getPostId());
+        payload.put("userId", interaction.getUserId());
+        payload.put("username", interaction.getUsername());
+        payload.put("content", interaction.getContent());
+        payload.put("createdAt", interaction.getCreatedAt());
+        StreamEvent event = new StreamEvent(eventIds.incrementAndGet(), payload);
+
+        Deque<StreamEvent> recent = replay.getOrCreate(ownerId, id -> new ArrayDeque<>());
+        synchronized (recent) {
+            recent.addLast(event);
+            while (recent.size() > replaySize) {
+                recent.removeFirst();
+            }
+        }
+
+        Set<Subscriber> targets = emitters.get(ownerId);
+        if (targets != null && !targets.isEmpty()) {
+            // Deliver off the publishing request thread so a slow client never delays the write
+            delivery.execute(() -> targets.forEach(subscriber -> send(subscriber, event.toSse())));
+        }
+    }
+
+    @Scheduled(fixedRateString = "${notifications.stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        List<Subscriber> all = new ArrayList<>();
+        emitters.values().forEach(all::addAll);
+        for (Subscriber subscriber : all) {
+            send(subscriber, SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("subscribers", subscriberCount.get());
+        metrics.put("subscribedUsers", emitters.size());
+        metrics.put("replayBuffers", replay.size());
+        return metrics;
+    }
+
+    private List<StreamEvent> missedEvents(String userId, String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return List.of();
+        }
+        long after;
+        try {
+            after = Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return List.of();
+        }
+        Deque<StreamEvent> recent = replay.getIfPresent(userId);
+        if (recent == null) {
+            return List.of();
+        }
+        List<StreamEvent> missed = new ArrayList<>();
+        synchronized (recent) {
+            for (StreamEvent event : recent) {
+                if (event.id > after) {
+                    missed.add(event);
+                }
+            }
+        }
+        return missed;
+    }
+
+    // Every write to a stream goes through here: SseEmitter is not safe for concurrent sends
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        subscriber.lock.lock();
+        try {
+            subscriber.emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            subscriber.emitter.completeWithError(e);
+        } finally {
+            subscriber.lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        delivery.shutdown();
+        emitters.values().forEach(set -> set.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    // A ReentrantLock rather than a monitor, so a virtual thread blocked on a slow client does not pin its carrier
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final ReentrantLock lock = new ReentrantLock();
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    private static final class StreamEvent {
+        final long id;
+        final Map<String, Object> payload;
+
+        StreamEvent(long id, Map<String, Object> payload) {
+            this.id = id;
+            this.payload = payload;
+        }
+
+        SseEmitter.SseEventBuilder toSse() {
+            return SseEmitter.event()
+                    .id(String.valueOf(id))
+                    .name(EVENT_NAME)
+                    .data(payload, MediaType.APPLICATION_JSON);
+        }
+    }
+}
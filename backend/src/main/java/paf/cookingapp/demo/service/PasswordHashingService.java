@@ -0,0 +1,188 @@
+package paf.cookingapp.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import paf.cookingapp.demo.model.User;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs BCrypt hashing and verification on a dedicated, bounded pool so a burst of logins cannot
+ * occupy every request thread. When all hashing threads are busy and the queue is full, calls
+ * fail fast with 503 instead of queueing without bound.
+ *
+ * The BCrypt cost is calibrated once at startup to the highest value (never below 10) whose hash
+ * takes at most {@code auth.hashing.target-ms}; hashes made with a lower cost are upgraded in the
+ * background after the next successful login.
+ */
+@Service
+public class PasswordHashingService {
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingService.class);
+    private static final int MIN_COST = 10;
+    private static final int MAX_COST = 16;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${auth.hashing.threads:0}")
+    private int threads;
+
+    @Value("${auth.hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${auth.hashing.timeout-ms:5000}")
+    private long timeoutMs;
+
+    @Value("${auth.hashing.target-ms:250}")
+    private long targetMs;
+
+    private ThreadPoolExecutor executor;
+    private volatile BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(MIN_COST);
+    private volatile int cost = MIN_COST;
+    private volatile long calibratedMs;
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong upgraded = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        calibrate();
+    }
+
+    // Each extra cost step doubles the work, so stop before the next step would exceed the target
+    private void calibrate() {
+        int chosen = MIN_COST;
+        long chosenMs = 0;
+        for (int candidate = MIN_COST; candidate <= MAX_COST; candidate++) {
+            BCryptPasswordEncoder probe = new BCryptPasswordEncoder(candidate);
+            probe.encode("calibration-warmup");
+            long started = System.nanoTime();
+            probe.encode("calibration-probe");
+            long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+            if (candidate > MIN_COST && elapsedMs > targetMs) {
+                break;
+            }
+            chosen = candidate;
+            chosenMs = elapsedMs;
+            if (elapsedMs * 2 > targetMs) {
+                break;
+            }
+        }
+        cost = chosen;
+        calibratedMs = chosenMs;
+        encoder = new BCryptPasswordEncoder(chosen);
+        logger.info("BCrypt cost calibrated to {} ({} ms per hash, target {} ms) with {} hashing threads",
+                chosen, chosenMs, targetMs, executor.getCorePoolSize());
+    }
+
+    public String encode(String rawPassword) {
+        return run(() -> encoder.encode(rawPassword));
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return false;
+        }
+        return run(() -> encoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Re-hashes the password with the calibrated cost if the stored hash is weaker. Best effort
+     * and asynchronous: skipped when the pool is saturated, and the stored hash is only replaced
+     * if it has not changed in the meantime.
+     */
+    public void upgradeIfNeeded(User user, String rawPassword) {
+        String current = user.getPassword();
+        if (current == null || !encoder.upgradeEncoding(current)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                String rehashed = encoder.encode(rawPassword);
+                long updated = mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(user.getId()).and("password").is(current)),
+                    new Update().set("password", rehashed),
+                    User.class
+                ).getModifiedCount();
+                if (updated > 0) {
+                    upgraded.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Try again on a later login
+        }
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Authentication is busy, please retry");
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.incrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Authentication timed out, please retry");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Authentication interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("cost", cost);
+        metrics.put("calibratedMs", calibratedMs);
+        metrics.put("threads", executor.getCorePoolSize());
+        metrics.put("active", executor.getActiveCount());
+        metrics.put("queueDepth", executor.getQueue().size());
+        metrics.put("queueCapacity", queueCapacity);
+        metrics.put("completed", executor.getCompletedTaskCount());
+        metrics.put("rejected", rejected.get());
+        metrics.put("timedOut", timedOut.get());
+        metrics.put("upgraded", upgraded.get());
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,163 @@
+package paf.cookingapp.demo.service;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import paf.cookingapp.demo.model.Interaction;
+import paf.cookingapp.demo.model.Post;
+import paf.cookingapp.demo.model.UserSummary;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+
+/**
+ * Builds the social "card" shown under each post (denormalized counts, viewer like state, newest
+ * comments and author summary) for a whole page of posts with a fixed number of queries,
+ * independent of page size.
+ */
+@Service
+public class PostCardService {
+    public static final int MAX_POSTS_PER_REQUEST = 100;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LikeWriteBuffer likeWriteBuffer;
+
+    @Autowired
+    private UserSummaryService userSummaryService;
+
+    @Value("${post-cards.recent-comments:3}")
+    private int recentCommentCount;
+
+    public Map<String, Map<String, Object>> getCards(List<String> postIds, String viewerId) {
+        Set<String> ids = new LinkedHashSet<>(postIds);
+        Map<String, Map<String, Object>> cards = new LinkedHashMap<>();
+        if (ids.isEmpty()) {
+            return cards;
+        }
+
+        // Interactions reference posts by the numeric postId stored as a string
+        List<Long> numericIds = new ArrayList<>();
+        for (String id : ids) {
+            try {
+                numericIds.add(Long.parseLong(id));
+            } catch (NumberFormatException e) {
+                // Unknown ids are simply left out of the response
+            }
+        }
+
+        Query postQuery = Query.query(Criteria.where("postId").in(numericIds));
+        postQuery.fields().include("postId", "userId", "likeCount", "commentCount");
+        List<Post> posts = mongoTemplate.find(postQuery, Post.class);
+
+        Set<String> authorIds = new LinkedHashSet<>();
+        for (Post post : posts) {
+            Map<String, Object> card = new HashMap<>();
+            card.put("postId", post.getPostId());
+            card.put("likeCount", post.getLikeCount());
+            card.put("commentCount", post.getCommentCount());
+            card.put("likedByViewer", false);
+            card.put("recentComments", List.of());
+            card.put("authorId", post.getUserId());
+            cards.put(String.valueOf(post.getPostId()), card);
+            if (post.getUserId() != null) {
+                authorIds.add(post.getUserId());
+            }
+        }
+        if (cards.isEmpty()) {
+            return cards;
+        }
+        List<String> foundIds = new ArrayList<>(cards.keySet());
+
+        applyViewerLikes(cards, foundIds, viewerId);
+        applyRecentComments(cards, foundIds);
+        applyAuthors(cards, authorIds);
+        return cards;
+    }
+
+    private void applyViewerLikes(Map<String, Map<String, Object>> cards, List<String> postIds, String viewerId) {
+        if (viewerId == null || viewerId.isBlank()) {
+            return;
+        }
+        Query query = Query.query(Criteria.where("postId").in(postIds)
+                .and("userId").is(viewerId)
+                .and("type").is(Interaction.TYPE_LIKE));
+        query.fields().include("postId");
+        for (Interaction like : mongoTemplate.find(query, Interaction.class)) {
+            Map<String, Object> card = cards.get(like.getPostId());
+            if (card != null) {
+                card.put("likedByViewer", true);
+            }
+        }
+        // The viewer's own toggles still waiting in the write-behind buffer override the database
+        for (String postId : postIds) {
+            Boolean buffered = likeWriteBuffer.bufferedState(postId, viewerId);
+            if (buffered != null) {
+                cards.get(postId).put("likedByViewer", buffered);
+            }
+        }
+    }
+
+    // $topN keeps only the newest comments per post inside the group instead of pushing every comment
+    private void applyRecentComments(Map<String, Map<String, Object>> cards, List<String> postIds) {
+        AggregationOperation topComments = context -> new Document("$group", new Document("_id", "$postId")
+                .append("comments", new Document("$topN", new Document("n", recentCommentCount)
+                        .append("sortBy", new Document("createdAt", -1))
+                        .append("output", new Document("id", "$_id")
+                                .append("userId", "$userId")
+                                .append("username", "$username")
+                                .append("content", "$content")
+                                .append("createdAt", "$createdAt")))));
+        Aggregation aggregation = Aggregation.newAggregation(
+                match(Criteria.where("postId").in(postIds).and("type").is(Interaction.TYPE_COMMENT)),
+                topComments
+        );
+        for (Document row : mongoTemplate.aggregate(aggregation, "interactions", Document.class).getMappedResults()) {
+            Map<String, Object> card = cards.get(row.getString("_id"));
+            if (card == null) {
+                continue;
+            }
+            List<Map<String, Object>> comments = new ArrayList<>();
+            for (Document comment : row.getList("comments", Document.class)) {
+                Map<String, Object> summary = new HashMap<>(comment);
+                summary.put("id", String.valueOf(comment.get("id")));
+                comments.add(summary);
+            }
+            card.put("recentComments", comments);
+        }
+    }
+
+    private void applyAuthors(Map<String, Map<String, Object>> cards, Set<String> authorIds) {
+        if (authorIds.isEmpty()) {
+            return;
+        }
+        Map<String, Map<String, Object>> authors = new HashMap<>();
+        for (UserSummary user : userSummaryService.getAll(authorIds).values()) {
+            Map<String, Object> author = new HashMap<>();
+            author.put("id", user.getId());
+            author.put("username", user.getUsername());
+            author.put("fullName", user.getFullName());
+            author.put("profilePicture", user.getProfilePicture());
+            authors.put(user.getId(), author);
+        }
+        for (Map<String, Object> card : cards.values()) {
+            Object authorId = card.remove("authorId");
+            card.put("author", authors.get(authorId));
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package paf.cookingapp.demo.service;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import paf.cookingapp.demo.model.Interaction;
+import paf.cookingapp.demo.model.Post;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+
+/**
+ * Maintains the denormalized {@code likeCount} / {@code commentCount} fields on posts.
+ *
+ * Writes adjust the counters with a single atomic $inc; {@link #reconcile()} rebuilds them from
+ * the interactions collection in postId-ordered batches and reports how many posts had drifted.
+ * Corrections are conditional on the counter value they were computed against.
+ */
+@Service
+public class PostCounterService {
+    private static final Logger logger = LoggerFactory.getLogger(PostCounterService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${post-counters.reconcile-batch-size:500}")
+    private int batchSize;
+
+    private final AtomicBoolean reconciling = new AtomicBoolean(false);
+    private volatile Map<String, Object> lastReport = Map.of();
+
+    public void adjustLikeCount(String postId, long delta) {
+        adjust(postId, "likeCount", delta);
+    }
+
+    public void adjustCommentCount(String postId, long delta) {
+        adjust(postId, "commentCount", delta);
+    }
+
+    // Interactions store the numeric postId as a string
+    private void adjust(String postId, String field, long delta) {
+        long numericId;
+        try {
+            numericId = Long.parseLong(postId);
+        } catch (NumberFormatException e) {
+            logger.warn("Cannot adjust {} for non-numeric post id {}", field, postId);
+            return;
+        }
+        mongoTemplate.updateFirst(
+            Query.query(Criteria.where("postId").is(numericId)),
+            new Update().inc(field, delta),
+            Post.class
+        );
+    }
+
+    public long getLikeCount(String postId) {
+        Post post = findCounters(postId);
+        return post != null ? post.getLikeCount() : 0;
+    }
+
+    public long getCommentCount(String postId) {
+        Post post = findCounters(postId);
+        return post != null ? post.getCommentCount() : 0;
+    }
+
+    private Post findCounters(String postId) {
+        try {
+            Query query = Query.query(Criteria.where("postId").is(Long.parseLong(postId)));
+            query.fields().include("likeCount", "commentCount");
+            return mongoTemplate.findOne(query, Post.class);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Scheduled(cron = "${post-counters.reconcile-cron:0 30 3 * * *}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    /**
+     * Recomputes counters for every post from the interactions collection. Posts are walked in
+     * postId order with a keyset cursor; each batch costs one posts read, one grouped count and
+     * at most one bulk write containing only the drifted posts.
+     */
+    public Map<String, Object> reconcile() {
+        if (!reconciling.compareAndSet(false, true)) {
+            Map<String, Object> busy = new HashMap<>(lastReport);
+            busy.put("status", "already running");
+            return busy;
+        }
+        long started = System.currentTimeMillis();
+        long scanned = 0;
+        long drifted = 0;
+        long likeDrift = 0;
+        long commentDrift = 0;
+        try {
+            Long lastPostId = null;
+            while (true) {
+                Query batchQuery = lastPostId == null
+                        ? new Query()
+                        : Query.query(Criteria.where("postId").gt(lastPostId));
+                batchQuery.with(Sort.by(Sort.Direction.ASC, "postId")).limit(batchSize);
+                batchQuery.fields().include("postId", "likeCount", "commentCount");
+                List<Post> batch = mongoTemplate.find(batchQuery, Post.class);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                lastPostId = batch.get(batch.size() - 1).getPostId();
+                scanned += batch.size();
+
+                List<Post> suspects = drifted(batch, countInteractions(batch));
+                if (suspects.isEmpty()) {
+                    if (batch.size() < batchSize) {
+                        break;
+                    }
+                    continue;
+                }
+
+                // An interaction is written before its counter $inc, so a single observation can catch one in flight;
+                // only drift seen again on a fresh read is corrected
+                Query recheck = Query.query(Criteria.where("postId").in(suspects.stream().map(Post::getPostId).toList()));
+                recheck.fields().include("postId", "likeCount", "commentCount");
+                List<Post> current = mongoTemplate.find(recheck, Post.class);
+                Map<String, long[]> actual = countInteractions(current);
+                Map<Long, Post> first = suspects.stream().collect(Collectors.toMap(Post::getPostId, post -> post));
+                BulkOperations bulk = null;
+                for (Post post : drifted(current, actual)) {
+                    long[] counts = actual.getOrDefault(String.valueOf(post.getPostId()), new long[2]);
+                    Post earlier = first.get(post.getPostId());
+                    if (earlier == null || earlier.getLikeCount() != post.getLikeCount() || earlier.getCommentCount() != post.getCommentCount()) {
+                        continue;
+                    }
+                    drifted++;
+                    likeDrift += Math.abs(counts[0] - post.getLikeCount());
+                    commentDrift += Math.abs(counts[1] - post.getCommentCount());
+                    if (bulk == null) {
+                        bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Post.class);
+                    }
+                    // Each counter is only replaced if it still holds the value the drift was measured against, so an
+                    // $inc that lands after the count is never overwritten
+                    if (counts[0] != post.getLikeCount()) {
+                        bulk.updateOne(
+                            Query.query(Criteria.where("postId").is(post.getPostId()).and("likeCount").is(post.getLikeCount())),
+                            new Update().set("likeCount", counts[0])
+                        );
+                    }
+                    if (counts[1] != post.getCommentCount()) {
+                        bulk.updateOne(
+                            Query.query(Criteria.where("postId").is(post.getPostId()).and("commentCount").is(post.getCommentCount())),
+                            new Update().set("commentCount", counts[1])
+                        );
+                    }
+                }
+                if (bulk != null) {
+                    bulk.execute();
+                }
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+        } finally {
+            reconciling.set(false);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("status", "completed");
+        report.put("finishedAt", LocalDateTime.now());
+        report.put("durationMs", System.currentTimeMillis() - started);
+        report.put("postsScanned", scanned);
+        report.put("postsCorrected", drifted);
+        report.put("likeDrift", likeDrift);
+        report.put("commentDrift", commentDrift);
+        lastReport = report;
+        logger.info("Post counter reconciliation: scanned {}, corrected {} (like drift {}, comment drift {})",
+                scanned, drifted, likeDrift, commentDrift);
+        return report;
+    }
+
+    private List<Post> drifted(List<Post> posts, Map<String, long[]> actual) {
+        return posts.stream()
+                .filter(post -> {
+                    long[] counts = actual.getOrDefault(String.valueOf(post.getPostId()), new long[2]);
+                    return counts[0] != post.getLikeCount() || counts[1] != post.getCommentCount();
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Posts written before the counters existed have no counter fields. They are initialised to
+     * zero (only where still missing, so no $inc is lost) and then reconciled, in the background
+     * at startup rather than waiting for the nightly run.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillInBackground() {
+        Thread backfill = new Thread(() -> {
+            try {
+                Query missing = Query.query(new Criteria().orOperator(
+                        Criteria.where("likeCount").exists(false),
+                        Criteria.where("commentCount").exists(false)));
+                if (!mongoTemplate.exists(missing, Post.class)) {
+                    return;
+                }
+                mongoTemplate.updateMulti(Query.query(Criteria.where("likeCount").exists(false)),
+                        new Update().set("likeCount", 0L), Post.class);
+                mongoTemplate.updateMulti(Query.query(Criteria.where("commentCount").exists(false)),
+                        new Update().set("commentCount", 0L), Post.class);
+                reconcile();
+            } catch (Exception e) {
+                logger.error("Post counter backfill failed: {}", e.getMessage(), e);
+            }
+        }, "post-counter-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    public Map<String, Object> getLastReport() {
+        return lastReport;
+    }
+
+    private Map<String, long[]> countInteractions(List<Post> batch) {
+        List<String> postIds = batch.stream()
+                .map(post -> String.valueOf(post.getPostId()))
+                .collect(Collectors.toList());
+        Aggregation aggregation = Aggregation.newAggregation(
+                match(Criteria.where("postId").in(postIds)
+                        .and("type").in(Interaction.TYPE_LIKE, Interaction.TYPE_COMMENT)),
+                Aggregation.group("postId", "type").count().as("count")
+        );
+        Map<String, long[]> counts = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, "interactions", Document.class).getMappedResults()) {
+            Document key = row.get("_id", Document.class);
+            long[] postCounts = counts.computeIfAbsent(key.getString("postId"), id -> new long[2]);
+            postCounts[Interaction.TYPE_LIKE.equals(key.getString("type")) ? 0 : 1] = ((Number) row.get("count")).longValue();
+        }
+        return counts;
+    }
+}
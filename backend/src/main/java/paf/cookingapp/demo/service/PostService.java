@@ -4,19 +4,28 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.data.domain.Sort;
 import paf.cookingapp.demo.model.Post;
+import paf.cookingapp.demo.model.TimelineEntry;
 import paf.cookingapp.demo.repository.PostRepository;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.*;
 import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
 import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.time.LocalDateTime;
 
 @Service
 public class PostService {
     private static final String POSTS_SEQ_KEY = "posts_sequence";
+    private static final int MAX_FEED_PAGE_SIZE = 100;
+    private static final AggregationOptions STREAM_OPTIONS = AggregationOptions.builder().cursorBatchSize(200).build();
 
     @Autowired
     private PostRepository postRepository;
@@ -27,10 +36,20 @@ public class PostService {
     @Autowired
     private SequenceGeneratorService sequenceGenerator;
 
+    @Autowired
+    private TimelineService timelineService;
+
+    // A post's owner never changes, so postId -> userId is safe to cache until the post is deleted
+    private final LookupCache<Long, String> postOwners = new LookupCache<>(50_000, 6 * 60 * 60 * 1000L);
+
     public Post createPost(Post post) {
         post.setPostId(sequenceGenerator.generateSequence(POSTS_SEQ_KEY));
+        post.setLikeCount(0);
+        post.setCommentCount(0);
         post.prePersist();
-        return postRepository.save(post);
+        Post savedPost = postRepository.save(post);
+        timelineService.fanOut(savedPost);
+        return savedPost;
     }
 
     public Post getPost(String id) {
@@ -46,65 +65,142 @@ public class PostService {
         );
     }
 
+    // $set only the edited fields so a concurrent like/comment $inc on the counters is not overwritten
     public Post updatePost(Long postId, String title, String description) {
-        Post post = getPostByPostId(postId);
-        if (post != null) {
-            post.setTitle(title);
-            post.setDescription(description);
-            post.setUpdatedAt(LocalDateTime.now());
-            return postRepository.save(post);
-        }
-        return null;
+        return mongoTemplate.findAndModify(
+            org.springframework.data.mongodb.core.query.Query.query(
+                Criteria.where("postId").is(postId)
+            ),
+            new Update()
+                .set("title", title)
+                .set("description", description)
+                .set("updatedAt", LocalDateTime.now()),
+            FindAndModifyOptions.options().returnNew(true),
+            Post.class
+        );
+    }
+
+    public String getPostOwnerId(Long postId) {
+        return postOwners.get(postId, id -> {
+            org.springframework.data.mongodb.core.query.Query query =
+                org.springframework.data.mongodb.core.query.Query.query(Criteria.where("postId").is(id));
+            query.fields().include("userId");
+            Post post = mongoTemplate.findOne(query, Post.class);
+            return post != null ? post.getUserId() : null;
+        });
     }
 
     public boolean deletePost(Long postId) {
         Post post = getPostByPostId(postId);
         if (post != null) {
             postRepository.delete(post);
+            postOwners.invalidate(postId);
             return true;
         }
         return false;
     }
 
-    public List<Map<String, Object>> getAllPosts() {
-        LookupOperation lookupOperation = LookupOperation.newLookup()
-                .from("users")
-                .localField("userId")
-                .foreignField("_id")
-                .as("userInfo");
+    public KeysetPage<Map<String, Object>> getFeed(String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_FEED_PAGE_SIZE));
+        List<AggregationOperation> stages = new ArrayList<>();
+
+        // Keyset predicate: strictly older than the cursor, ties broken by postId
+        if (cursor != null && !cursor.isBlank()) {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            stages.add(match(new Criteria().orOperator(
+                    Criteria.where("createdAt").lt(after.getTime()),
+                    Criteria.where("createdAt").is(after.getTime()).and("postId").lt(after.getLongKey())
+            )));
+        }
 
-        ProjectionOperation projectionOperation = Aggregation.project()
-                .and("_id").as("id")
-                .and("postId").as("postId")
-                .and("title").as("title")
-                .and("description").as("description")
-                .and("mediaUrls").as("mediaUrls")
-                .and("mediaType").as("mediaType")
-                .and("createdAt").as("createdAt")
-                .and("updatedAt").as("updatedAt")
-                .and("userId").as("userId")
-                .and("userInfo._id").as("user.id")
-                .and("userInfo.username").as("user.username")
-                .and("userInfo.fullName").as("user.fullName")
-                .and("userInfo.profilePicture").as("user.profilePicture");
+        // Sort + limit run before the $lookup so only the returned page is joined against users
+        stages.add(sort(Sort.by(Sort.Direction.DESC, "createdAt", "postId")));
+        stages.add(limit(pageSize + 1));
+        stages.add(authorLookup());
+        stages.add(postProjection());
 
+        List<Map<String, Object>> rows =
+                (List<Map<String, Object>>) (List<?>) mongoTemplate.aggregate(newAggregation(stages), "posts", Map.class).getMappedResults();
+        return KeysetPage.of(rows, pageSize, last -> KeysetCursor.of(last.get("createdAt"), last.get("postId")));
+    }
+
+    // Personal timeline: page of post references from the user's timeline, enriched with authors in one aggregation
+    public KeysetPage<Map<String, Object>> getTimeline(String userId, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_FEED_PAGE_SIZE));
+        KeysetCursor after = cursor != null && !cursor.isBlank() ? KeysetCursor.decode(cursor) : null;
+
+        KeysetPage<TimelineEntry> page = KeysetPage.of(timelineService.readTimeline(userId, after, pageSize + 1), pageSize,
+                last -> KeysetCursor.of(last.getCreatedAt(), last.getPostId()));
+        List<TimelineEntry> entries = page.getItems();
+        if (entries.isEmpty()) {
+            return new KeysetPage<>(List.of(), null);
+        }
+
+        List<Long> postIds = entries.stream().map(TimelineEntry::getPostId).collect(Collectors.toList());
         Aggregation aggregation = Aggregation.newAggregation(
-                lookupOperation,
-                projectionOperation,
+                match(Criteria.where("postId").in(postIds)),
+                authorLookup(),
+                postProjection()
+        );
+        List<Map<String, Object>> rows = (List<Map<String, Object>>) (List<?>) mongoTemplate.aggregate(aggregation, "posts", Map.class).getMappedResults();
+
+        // Restore timeline order; posts deleted since fan-out simply drop out
+        Map<Object, Map<String, Object>> byPostId = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            Object postId = row.get("postId");
+            byPostId.put(postId instanceof Number number ? number.longValue() : postId, row);
+        }
+        List<Map<String, Object>> ordered = new ArrayList<>(postIds.size());
+        for (Long postId : postIds) {
+            Map<String, Object> row = byPostId.get(postId);
+            if (row != null) {
+                ordered.add(row);
+            }
+        }
+        return new KeysetPage<>(ordered, page.getNextCursor());
+    }
+
+    public List<Map<String, Object>> getUserPosts(String userId) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                match(Criteria.where("userId").is(userId)),
+                authorLookup(),
+                postProjection(),
                 sort(Sort.Direction.DESC, "createdAt")
         );
 
         return (List<Map<String, Object>>) (List<?>) mongoTemplate.aggregate(aggregation, "posts", Map.class).getMappedResults();
     }
 
-    public List<Map<String, Object>> getUserPosts(String userId) {
-        LookupOperation lookupOperation = LookupOperation.newLookup()
+    // Cursor-backed variants for NDJSON export; sort first so the index serves it and $lookup runs per document
+    public Stream<Map<String, Object>> streamAllPosts() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                sort(Sort.by(Sort.Direction.DESC, "createdAt", "postId")),
+                authorLookup(),
+                postProjection()
+        ).withOptions(STREAM_OPTIONS);
+        return (Stream<Map<String, Object>>) (Stream<?>) mongoTemplate.aggregateStream(aggregation, "posts", Map.class);
+    }
+
+    public Stream<Map<String, Object>> streamUserPosts(String userId) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                match(Criteria.where("userId").is(userId)),
+                sort(Sort.by(Sort.Direction.DESC, "createdAt", "postId")),
+                authorLookup(),
+                postProjection()
+        ).withOptions(STREAM_OPTIONS);
+        return (Stream<Map<String, Object>>) (Stream<?>) mongoTemplate.aggregateStream(aggregation, "posts", Map.class);
+    }
+
+    private LookupOperation authorLookup() {
+        return LookupOperation.newLookup()
                 .from("users")
                 .localField("userId")
                 .foreignField("_id")
                 .as("userInfo");
+    }
 
-        ProjectionOperation projectionOperation = Aggregation.project()
+    private ProjectionOperation postProjection() {
+        return Aggregation.project()
                 .and("_id").as("id")
                 .and("postId").as("postId")
                 .and("title").as("title")
@@ -118,14 +214,5 @@ public class PostService {
                 .and("userInfo.username").as("user.username")
                 .and("userInfo.fullName").as("user.fullName")
                 .and("userInfo.profilePicture").as("user.profilePicture");
-
-        Aggregation aggregation = Aggregation.newAggregation(
-                match(Criteria.where("userId").is(userId)),
-                lookupOperation,
-                projectionOperation,
-                sort(Sort.Direction.DESC, "createdAt")
-        );
-
-        return (List<Map<String, Object>>) (List<?>) mongoTemplate.aggregate(aggregation, "posts", Map.class).getMappedResults();
     }
 }
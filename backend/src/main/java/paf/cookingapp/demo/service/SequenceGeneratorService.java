@@ -1,27 +1,122 @@
 package paf.cookingapp.demo.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import paf.cookingapp.demo.model.DatabaseSequence;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
 import static org.springframework.data.mongodb.core.query.Criteria.where;
 import static org.springframework.data.mongodb.core.query.Query.query;
 
+/**
+ * Hi/lo sequence generator. Each node reserves a block of ids with one atomic $inc on the
+ * sequence document and hands them out from memory with a lock-free counter, so ids stay unique
+ * across nodes while most calls never touch MongoDB. Block size adapts to the allocation rate:
+ * it doubles when a block is used up faster than the target refill interval and halves when
+ * allocation slows down. Ids left in a block when a node stops are skipped, so sequences may
+ * have gaps but never repeat.
+ */
 @Service
 public class SequenceGeneratorService {
     @Autowired
     private MongoOperations mongoOperations;
 
+    @Value("${sequence.min-block-size:10}")
+    private int minBlockSize = 10;
+
+    @Value("${sequence.max-block-size:1000}")
+    private int maxBlockSize = 1000;
+
+    @Value("${sequence.target-refill-interval-ms:5000}")
+    private long targetRefillIntervalMs = 5000;
+
+    private final ConcurrentHashMap<String, SequenceBlock> blocks = new ConcurrentHashMap<>();
+
     public long generateSequence(String seqName) {
+        SequenceBlock block = blocks.computeIfAbsent(seqName, name -> new SequenceBlock(name, minBlockSize));
+        while (true) {
+            Range range = block.range;
+            long id = range.cursor.getAndIncrement();
+            if (id <= range.end) {
+                return id;
+            }
+            block.refill(range);
+        }
+    }
+
+    // Number of $inc round trips made so far, across all sequences
+    public long getReservationCount() {
+        return blocks.values().stream().mapToLong(block -> block.reservations).sum();
+    }
+
+    private long reserve(String seqName, int size) {
         DatabaseSequence counter = mongoOperations.findAndModify(
             query(where("_id").is(seqName)),
-            new Update().inc("seq", 1),
+            new Update().inc("seq", size),
             options().returnNew(true).upsert(true),
             DatabaseSequence.class
         );
-        return !Objects.isNull(counter) ? counter.getSeq() : 1;
+        if (Objects.isNull(counter)) {
+            throw new IllegalStateException("Could not reserve ids for sequence " + seqName);
+        }
+        return counter.getSeq();
+    }
+
+    private static final class Range {
+        final AtomicLong cursor;
+        final long end;
+
+        Range(long start, long end) {
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+    private final class SequenceBlock {
+        private final String name;
+        private final ReentrantLock refillLock = new ReentrantLock();
+        private volatile Range range = new Range(1, 0);
+        private int blockSize;
+        private long lastRefillNanos;
+        private volatile long reservations;
+
+        SequenceBlock(String name, int blockSize) {
+            this.name = name;
+            this.blockSize = blockSize;
+        }
+
+        // Only the thread that finds the block exhausted reserves a new one; the others wait here and retry.
+        // A ReentrantLock rather than synchronized, since the reservation is a Mongo round trip. One lock per
+        // sequence rather than a StripedLocks stripe: there are only a few sequences, and unrelated ones never wait
+        void refill(Range exhausted) {
+            refillLock.lock();
+            try {
+                if (range != exhausted) {
+                    return;
+                }
+                long now = System.nanoTime();
+                if (lastRefillNanos != 0) {
+                    long elapsedMs = (now - lastRefillNanos) / 1_000_000;
+                    if (elapsedMs < targetRefillIntervalMs / 2) {
+                        blockSize = Math.min(blockSize * 2, maxBlockSize);
+                    } else if (elapsedMs > targetRefillIntervalMs * 2) {
+                        blockSize = Math.max(blockSize / 2, minBlockSize);
+                    }
+                }
+                lastRefillNanos = now;
+
+                long hi = reserve(name, blockSize);
+                reservations++;
+                range = new Range(hi - blockSize + 1, hi);
+            } finally {
+                refillLock.unlock();
+            }
+        }
     }
 }
@@ -0,0 +1,35 @@
+package paf.cookingapp.demo.service;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of {@link ReentrantLock}s selected by key hash, for per-key critical sections over an
+ * unbounded key space such as user ids, where one lock per key would grow without limit.
+ *
+ * Critical sections that do Mongo I/O use a ReentrantLock rather than {@code synchronized}:
+ * request handling runs on virtual threads, and a virtual thread blocked inside a monitor pins
+ * its carrier thread while a ReentrantLock does not. Where the keys are few and long-lived, as
+ * with sequence names, the owning object holds its own ReentrantLock instead of a stripe.
+ */
+final class StripedLocks {
+    private final ReentrantLock[] locks;
+
+    StripedLocks(int stripes) {
+        locks = new ReentrantLock[Math.max(1, stripes)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    ReentrantLock get(Object key) {
+        return locks[index(key)];
+    }
+
+    int index(Object key) {
+        return (key.hashCode() & 0x7fffffff) % locks.length;
+    }
+
+    int size() {
+        return locks.length;
+    }
+}
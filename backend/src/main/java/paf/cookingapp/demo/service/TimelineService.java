@@ -0,0 +1,308 @@
+package paf.cookingapp.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import paf.cookingapp.demo.model.Follow;
+import paf.cookingapp.demo.model.HighFanoutAuthor;
+import paf.cookingapp.demo.model.Post;
+import paf.cookingapp.demo.model.Timeline;
+import paf.cookingapp.demo.model.TimelineEntry;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Per-user home timelines built from the follow graph.
+ *
+ * Posts by ordinary authors are pushed into each follower's capped timeline document when they
+ * are created (fan-out on write), so a read is a single document fetch. Authors with more than
+ * {@code timeline.fanout-threshold} followers are recorded in {@code high_fanout_authors} instead
+ * and their posts are merged into the timeline at read time (fan-out on read). An author who
+ * drops back under the threshold is demoted and their recent posts are fanned out again.
+ */
+@Service
+public class TimelineService {
+    private static final Logger logger = LoggerFactory.getLogger(TimelineService.class);
+    private static final int FANOUT_BATCH_SIZE = 1000;
+    private static final Comparator<TimelineEntry> NEWEST_FIRST = Comparator
+            .comparing(TimelineEntry::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(TimelineEntry::getPostId, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${timeline.fanout-threshold:10000}")
+    private long fanoutThreshold;
+
+    @Value("${timeline.max-entries:800}")
+    private int maxEntries;
+
+    @Value("${timeline.backfill-size:20}")
+    private int backfillSize;
+
+    @Autowired
+    private FollowGraphService followGraphService;
+
+    private volatile Set<String> highFanoutAuthors = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService fanoutExecutor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "timeline-fanout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Fan-out runs off the request thread so post creation latency does not depend on follower count
+    public void fanOut(Post post) {
+        fanoutExecutor.execute(() -> {
+            try {
+                distribute(post);
+            } catch (Exception e) {
+                logger.error("Timeline fan-out failed for post {}: {}", post.getPostId(), e.getMessage(), e);
+            }
+        });
+    }
+
+    private void distribute(Post post) {
+        TimelineEntry entry = new TimelineEntry(post.getPostId(), post.getUserId(), post.getCreatedAt());
+
+        // Authors always see their own posts
+        pushEntries(post.getUserId(), List.of(entry));
+
+        long followerCount = followerCount(post.getUserId());
+        if (followerCount > fanoutThreshold) {
+            mongoTemplate.upsert(
+                Query.query(Criteria.where("_id").is(post.getUserId())),
+                new Update().set("followerCount", followerCount).set("updatedAt", LocalDateTime.now()),
+                HighFanoutAuthor.class
+            );
+            highFanoutAuthors.add(post.getUserId());
+            logger.debug("Skipping fan-out for post {}: author has {} followers", post.getPostId(), followerCount);
+            return;
+        }
+
+        pushToFollowers(post.getUserId(), List.of(entry));
+    }
+
+    private void pushToFollowers(String authorId, List<TimelineEntry> entries) {
+        Query followersQuery = Query.query(Criteria.where("followingId").is(authorId));
+        followersQuery.fields().include("followerId");
+        BulkOperations bulk = null;
+        int pending = 0;
+        try (Stream<Follow> followers = mongoTemplate.stream(followersQuery, Follow.class)) {
+            for (Follow follow : (Iterable<Follow>) followers::iterator) {
+                if (bulk == null) {
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Timeline.class);
+                }
+                bulk.upsert(Query.query(Criteria.where("_id").is(follow.getFollowerId())), pushUpdate(entries));
+                if (++pending == FANOUT_BATCH_SIZE) {
+                    bulk.execute();
+                    bulk = null;
+                    pending = 0;
+                }
+            }
+        }
+        if (bulk != null) {
+            bulk.execute();
+        }
+    }
+
+    // The in-memory follow graph answers without a query; until it has loaded, count on the followingId index
+    private long followerCount(String userId) {
+        if (followGraphService.isReady()) {
+            return followGraphService.getFollowerCount(userId);
+        }
+        return mongoTemplate.count(Query.query(Criteria.where("followingId").is(userId)), Follow.class);
+    }
+
+    private List<TimelineEntry> recentEntries(String authorId) {
+        Query recentPosts = Query.query(Criteria.where("userId").is(authorId))
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "postId"))
+                .limit(backfillSize);
+        recentPosts.fields().include("postId", "userId", "createdAt");
+        return mongoTemplate.find(recentPosts, Post.class).stream()
+                .map(post -> new TimelineEntry(post.getPostId(), post.getUserId(), post.getCreatedAt()))
+                .collect(Collectors.toList());
+    }
+
+    // Seed a new follower's timeline with the author's latest posts so it is not empty until they post again
+    public void onFollow(String followerId, String followingId) {
+        if (mongoTemplate.exists(Query.query(Criteria.where("_id").is(followingId)), HighFanoutAuthor.class)) {
+            return;
+        }
+        List<TimelineEntry> entries = recentEntries(followingId);
+        if (!entries.isEmpty()) {
+            pushEntries(followerId, entries);
+        }
+    }
+
+    public void onUnfollow(String followerId, String followingId) {
+        mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(followerId)),
+            new Update().pull("entries", Query.query(Criteria.where("authorId").is(followingId))),
+            Timeline.class
+        );
+    }
+
+    /**
+     * Returns up to {@code limit} timeline entries strictly older than {@code after}, newest first.
+     * Reads only the matching slice of one timeline document plus, if the user follows high
+     * fan-out authors, one indexed posts query for their recent posts. A post found both ways is returned once.
+     */
+    public List<TimelineEntry> readTimeline(String userId, KeysetCursor after, int limit) {
+        List<TimelineEntry> merged = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("_id").is(userId)),
+                entriesPage(after, limit)
+        );
+        Timeline timeline = mongoTemplate.aggregate(aggregation, Timeline.class, Timeline.class).getUniqueMappedResult();
+        if (timeline != null && timeline.getEntries() != null) {
+            for (TimelineEntry entry : timeline.getEntries()) {
+                merged.add(entry);
+                seen.add(entry.getPostId());
+            }
+        }
+
+        List<String> highFanoutAuthors = followedHighFanoutAuthors(userId);
+        if (!highFanoutAuthors.isEmpty()) {
+            Criteria criteria = Criteria.where("userId").in(highFanoutAuthors);
+            if (after != null) {
+                criteria = criteria.orOperator(
+                    Criteria.where("createdAt").lt(after.getTime()),
+                    Criteria.where("createdAt").is(after.getTime()).and("postId").lt(after.getLongKey())
+                );
+            }
+            Query query = Query.query(criteria)
+                    .with(Sort.by(Sort.Direction.DESC, "createdAt", "postId"))
+                    .limit(limit);
+            query.fields().include("postId", "userId", "createdAt");
+            for (Post post : mongoTemplate.find(query, Post.class)) {
+                // Posts fanned out before the author crossed the threshold are also in the timeline document
+                if (seen.add(post.getPostId())) {
+                    merged.add(new TimelineEntry(post.getPostId(), post.getUserId(), post.getCreatedAt()));
+                }
+            }
+        }
+
+        merged.sort(NEWEST_FIRST);
+        return merged.size() > limit ? merged.subList(0, limit) : merged;
+    }
+
+    /**
+     * Checks the (small) set of high fan-out authors against the reader's follows rather than
+     * loading everyone the reader follows: in memory through the follow graph once it is loaded,
+     * otherwise with one query on the (followerId, followingId) index bounded by that set.
+     */
+    private List<String> followedHighFanoutAuthors(String userId) {
+        Set<String> authors = highFanoutAuthors;
+        if (authors.isEmpty()) {
+            return List.of();
+        }
+        if (followGraphService.isReady()) {
+            return followGraphService.isFollowingAll(userId, authors).entrySet().stream()
+                    .filter(Map.Entry::getValue)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+        }
+        Query followingQuery = Query.query(Criteria.where("followerId").is(userId).and("followingId").in(authors));
+        followingQuery.fields().include("followingId");
+        return mongoTemplate.find(followingQuery, Follow.class).stream()
+                .map(Follow::getFollowingId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Re-reads the high fan-out set, which other nodes also write, and re-checks each author's
+     * follower count. Authors back under the threshold are demoted: their recent posts are pushed
+     * to their followers, since from then on the read path no longer merges them in.
+     */
+    @Scheduled(fixedDelayString = "${timeline.high-fanout-refresh-ms:60000}")
+    public void refreshHighFanoutAuthors() {
+        try {
+            Query query = new Query();
+            query.fields().include("_id");
+            Set<String> authors = ConcurrentHashMap.newKeySet();
+            for (HighFanoutAuthor author : mongoTemplate.find(query, HighFanoutAuthor.class)) {
+                if (followerCount(author.getId()) > fanoutThreshold) {
+                    authors.add(author.getId());
+                } else {
+                    demote(author.getId());
+                }
+            }
+            highFanoutAuthors = authors;
+        } catch (Exception e) {
+            logger.error("Failed to refresh high fan-out authors: {}", e.getMessage(), e);
+        }
+    }
+
+    // Only the node whose delete removed the record backfills, so followers are not pushed to twice
+    private void demote(String authorId) {
+        if (mongoTemplate.remove(Query.query(Criteria.where("_id").is(authorId)), HighFanoutAuthor.class).getDeletedCount() == 0) {
+            return;
+        }
+        List<TimelineEntry> entries = recentEntries(authorId);
+        if (!entries.isEmpty()) {
+            pushToFollowers(authorId, entries);
+        }
+        logger.info("Demoted {} from high fan-out: back under {} followers", authorId, fanoutThreshold);
+    }
+
+    private void pushEntries(String userId, List<TimelineEntry> entries) {
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(userId)), pushUpdate(entries), Timeline.class);
+    }
+
+    // $push with $sort/$slice keeps each timeline ordered newest-first and bounded in size
+    private Update pushUpdate(List<TimelineEntry> entries) {
+        return new Update().push("entries")
+                .sort(Sort.by(Sort.Direction.DESC, "createdAt", "postId"))
+                .slice(maxEntries)
+                .each(entries.toArray());
+    }
+
+    // Filters and slices the entries array on the server so only the requested page leaves the database
+    private AggregationOperation entriesPage(KeysetCursor after, int limit) {
+        Object entries = "$entries";
+        if (after != null) {
+            Document olderThan = new Document("$or", List.of(
+                    new Document("$lt", List.of("$$entry.createdAt", after.getTime())),
+                    new Document("$and", List.of(
+                            new Document("$eq", List.of("$$entry.createdAt", after.getTime())),
+                            new Document("$lt", List.of("$$entry.postId", after.getLongKey()))))));
+            entries = new Document("$filter", new Document("input", "$entries").append("as", "entry").append("cond", olderThan));
+        }
+        Document slice = new Document("$slice", List.of(new Document("$ifNull", List.of(entries, List.of())), limit));
+        return context -> new Document("$project", new Document("entries", slice));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        fanoutExecutor.shutdown();
+        fanoutExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,448 @@
+package paf.cookingapp.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import paf.cookingapp.demo.model.Interaction;
+import paf.cookingapp.demo.model.NotificationCounter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Materialized unread-notification count and read watermark per user.
+ *
+ * Counts live in a striped, size-bounded in-memory map backed by one {@code notification_counters}
+ * document per user, and the count endpoint is a map read. New likes/comments on someone else's
+ * post bump the cached count and queue a +1; marking read zeroes the cached count and queues the
+ * watermark with minus the number of notifications it cleared. Queued changes are coalesced per
+ * user into one net delta and written in one bulk operation per flush as a relative update, so
+ * changes from other nodes are never overwritten and no request waits on a counter write. A cold
+ * load adds the changes still queued for the user; while a user's changes are being written the
+ * loaded value is not cached, since it is unknown whether the read saw them. Removals (unlike,
+ * deleted comments) are not tracked individually; {@link #reconcile()} rebuilds the counters from
+ * the interactions collection and corrects any drift, only where the stored counter is unchanged
+ * since it was read.
+ *
+ * Read state is a {@code lastReadAt} watermark: a notification is unread when it was created after
+ * the watermark (and its legacy {@code read} flag is still false), so reading notifications never
+ * writes to {@code interactions}.
+ */
+@Service
+public class UnreadCounterService {
+    private static final Logger logger = LoggerFactory.getLogger(UnreadCounterService.class);
+    private static final int RECONCILE_BATCH_SIZE = 500;
+    // Stand-in for "never read", since the watermark cache does not hold nulls
+    private static final LocalDateTime NEVER_READ = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${notifications.unread.stripes:64}")
+    private int stripeCount;
+
+    @Value("${notifications.unread.max-cached:100000}")
+    private int maxCached;
+
+    private StripedLocks locks;
+    private final List<Map<String, Long>> counts = new ArrayList<>();
+    private final LookupCache<String, LocalDateTime> watermarks = new LookupCache<>(100_000, 10 * 60 * 1000L);
+    // Changes not yet written, and those a flush is writing right now; both only change under the user's stripe lock
+    private final Map<String, PendingChange> pendingChanges = new ConcurrentHashMap<>();
+    private final Map<String, PendingChange> flushing = new ConcurrentHashMap<>();
+    private final AtomicBoolean reconciling = new AtomicBoolean(false);
+    private volatile Map<String, Object> lastReport = Map.of();
+
+    @PostConstruct
+    public void init() {
+        locks = new StripedLocks(stripeCount);
+        int perStripe = Math.max(16, maxCached / locks.size());
+        for (int i = 0; i < locks.size(); i++) {
+            counts.add(new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                    return size() > perStripe;
+                }
+            });
+        }
+    }
+
+    public long getUnreadCount(String userId) {
+        ReentrantLock lock = locks.get(userId);
+        lock.lock();
+        try {
+            return cachedOrLoad(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called under the user's stripe lock
+    private long cachedOrLoad(String userId) {
+        Map<String, Long> stripe = countsFor(userId);
+        Long cached = stripe.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        long queued = delta(pendingChanges.get(userId));
+        long loaded = Math.max(0, load(userId, queued + delta(flushing.get(userId))) + queued);
+        if (!flushing.containsKey(userId)) {
+            stripe.put(userId, loaded);
+        }
+        return loaded;
+    }
+
+    @EventListener
+    public void onNotification(NotificationEvent event) {
+        increment(event.getInteraction().getPostOwnerId());
+    }
+
+    // Memory only; the +1 reaches the backing document with the next flush
+    public void increment(String userId) {
+        ReentrantLock lock = locks.get(userId);
+        lock.lock();
+        try {
+            countsFor(userId).computeIfPresent(userId, (id, count) -> count + 1);
+            pendingChanges.merge(userId, new PendingChange(null, 1), PendingChange::merge);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public LocalDateTime getLastReadAt(String userId) {
+        PendingChange pending = pendingChanges.get(userId);
+        if (pending != null && pending.readAt != null) {
+            return pending.readAt;
+        }
+        return watermarks.get(userId, id -> {
+            Query query = Query.query(Criteria.where("_id").is(id));
+            query.fields().include("lastReadAt");
+            NotificationCounter counter = mongoTemplate.findOne(query, NotificationCounter.class);
+            return counter != null && counter.getLastReadAt() != null ? counter.getLastReadAt() : NEVER_READ;
+        });
+    }
+
+    /**
+     * Marks everything created up to {@code readAt} as read. The in-memory count drops to zero
+     * immediately; the watermark and the number of notifications cleared are persisted by the next
+     * {@link #flushChanges()}, with repeated marks for the same user collapsed into one.
+     */
+    public void markRead(String userId, LocalDateTime readAt) {
+        ReentrantLock lock = locks.get(userId);
+        lock.lock();
+        try {
+            long cleared = cachedOrLoad(userId);
+            countsFor(userId).put(userId, 0L);
+            PendingChange pending = pendingChanges.merge(userId, new PendingChange(readAt, -cleared), PendingChange::merge);
+            watermarks.put(userId, pending.readAt);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.read.flush-interval-ms:1000}")
+    public void flushChanges() {
+        if (pendingChanges.isEmpty()) {
+            return;
+        }
+        List<String> userIds = new ArrayList<>();
+        List<PendingChange> changes = new ArrayList<>();
+        for (String userId : new ArrayList<>(pendingChanges.keySet())) {
+            ReentrantLock lock = locks.get(userId);
+            lock.lock();
+            try {
+                PendingChange change = pendingChanges.remove(userId);
+                if (change != null) {
+                    flushing.merge(userId, change, PendingChange::merge);
+                    userIds.add(userId);
+                    changes.add(change);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NotificationCounter.class);
+        Date now = new Date();
+        for (int i = 0; i < userIds.size(); i++) {
+            PendingChange change = changes.get(i);
+            // Relative to the stored value, so changes that reached the document from other nodes are kept
+            Document unread = new Document("$max", List.of(0L,
+                    new Document("$add", List.of(new Document("$ifNull", List.of("$unread", 0L)), change.delta))));
+            Document set = new Document("unread", unread).append("updatedAt", now);
+            if (change.readAt != null) {
+                Date readAt = Date.from(change.readAt.atZone(ZoneId.systemDefault()).toInstant());
+                set.append("lastReadAt", new Document("$max", List.of("$lastReadAt", readAt)));
+            }
+            AggregationOperation stage = context -> new Document("$set", set);
+            bulk.upsert(Query.query(Criteria.where("_id").is(userIds.get(i))), AggregationUpdate.from(List.of(stage)));
+        }
+
+        // If execute() throws, nothing is known to have been applied and every change is queued again
+        Set<Integer> failed = new HashSet<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            failed.add(i);
+        }
+        try {
+            bulk.execute();
+            failed.clear();
+        } catch (BulkOperationException e) {
+            // Unordered: every operation not listed as an error was applied
+            failed.clear();
+            for (BulkWriteError error : e.getErrors()) {
+                failed.add(error.getIndex());
+            }
+            logger.warn("Unread counters: {} of {} changes failed and will be retried", failed.size(), userIds.size());
+        } finally {
+            for (int i = 0; i < userIds.size(); i++) {
+                String userId = userIds.get(i);
+                ReentrantLock lock = locks.get(userId);
+                lock.lock();
+                try {
+                    flushing.remove(userId);
+                    if (failed.contains(i)) {
+                        pendingChanges.merge(userId, changes.get(i), PendingChange::merge);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushChanges();
+    }
+
+    /**
+     * Users without a backing document yet are counted once from interactions and persisted. That
+     * count already includes the {@code unflushed} changes, which are written on top of the stored
+     * value later, so they are taken off the seed.
+     */
+    private long load(String userId, long unflushed) {
+        NotificationCounter counter = mongoTemplate.findById(userId, NotificationCounter.class);
+        if (counter != null) {
+            return counter.getUnread();
+        }
+        Query unread = Query.query(new Criteria().andOperator(
+            Criteria.where("postOwnerId").is(userId),
+            Criteria.where("userId").ne(userId),
+            Criteria.where("type").in(Interaction.TYPE_LIKE, Interaction.TYPE_COMMENT),
+            Criteria.where("createdAt").gt(getLastReadAt(userId)),
+            Criteria.where("read").is(false)
+        ));
+        long seed = Math.max(0, mongoTemplate.count(unread, Interaction.class) - unflushed);
+        // Only seeds a missing document; if another node created it meanwhile, its value wins
+        NotificationCounter created = mongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(userId)),
+            new Update().setOnInsert("unread", seed).setOnInsert("updatedAt", LocalDateTime.now()),
+            FindAndModifyOptions.options().upsert(true).returnNew(true),
+            NotificationCounter.class
+        );
+        return created != null ? created.getUnread() : seed;
+    }
+
+    @Scheduled(cron = "${notifications.unread.reconcile-cron:0 0 4 * * *}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    /**
+     * Recounts unread notifications per owner with one grouped aggregation, streamed in batches.
+     * Each interaction is compared with its owner's persisted watermark via an _id lookup.
+     * Only counters that differ are rewritten; counters of users with no unread notifications left
+     * are set to zero afterwards.
+     */
+    public Map<String, Object> reconcile() {
+        if (!reconciling.compareAndSet(false, true)) {
+            Map<String, Object> busy = new HashMap<>(lastReport);
+            busy.put("status", "already running");
+            return busy;
+        }
+        long started = System.currentTimeMillis();
+        long scanned = 0;
+        long corrected = 0;
+        try {
+            AggregationOperation matchUnread = context -> new Document("$match", new Document("read", false)
+                    .append("type", new Document("$in", List.of(Interaction.TYPE_LIKE, Interaction.TYPE_COMMENT)))
+                    .append("$expr", new Document("$ne", List.of("$userId", "$postOwnerId"))));
+            AggregationOperation lookupState = context -> new Document("$lookup", new Document("from", "notification_counters")
+                    .append("localField", "postOwnerId")
+                    .append("foreignField", "_id")
+                    .append("as", "state"));
+            AggregationOperation matchAfterWatermark = context -> new Document("$match", new Document("$expr",
+                    new Document("$gt", List.of("$createdAt", new Document("$ifNull", List.of(
+                            new Document("$arrayElemAt", List.of("$state.lastReadAt", 0)), new Date(0)))))));
+            Aggregation aggregation = Aggregation.newAggregation(
+                    matchUnread,
+                    lookupState,
+                    matchAfterWatermark,
+                    Aggregation.group("postOwnerId").count().as("count")
+            ).withOptions(AggregationOptions.builder().allowDiskUse(true).cursorBatchSize(RECONCILE_BATCH_SIZE).build());
+
+            Set<String> owners = new HashSet<>();
+            Map<String, Long> batch = new HashMap<>();
+            try (Stream<Document> rows = mongoTemplate.aggregateStream(aggregation, "interactions", Document.class)) {
+                for (Document row : (Iterable<Document>) rows::iterator) {
+                    String owner = row.getString("_id");
+                    if (owner == null) {
+                        continue;
+                    }
+                    owners.add(owner);
+                    batch.put(owner, ((Number) row.get("count")).longValue());
+                    if (batch.size() == RECONCILE_BATCH_SIZE) {
+                        corrected += correct(batch);
+                        scanned += batch.size();
+                        batch.clear();
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                corrected += correct(batch);
+                scanned += batch.size();
+            }
+
+            // Counters still above zero for owners that have nothing unread
+            Query stale = Query.query(Criteria.where("unread").gt(0));
+            stale.fields().include("_id", "unread");
+            Map<String, Long> zeroed = new HashMap<>();
+            try (Stream<NotificationCounter> counters = mongoTemplate.stream(stale, NotificationCounter.class)) {
+                counters.filter(counter -> !owners.contains(counter.getId()))
+                        .forEach(counter -> zeroed.put(counter.getId(), counter.getUnread()));
+            }
+            corrected += setIfUnchanged(zeroed, Map.of());
+        } finally {
+            reconciling.set(false);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("status", "completed");
+        report.put("finishedAt", LocalDateTime.now());
+        report.put("durationMs", System.currentTimeMillis() - started);
+        report.put("ownersScanned", scanned);
+        report.put("countersCorrected", corrected);
+        lastReport = report;
+        logger.info("Unread counter reconciliation: scanned {}, corrected {}", scanned, corrected);
+        return report;
+    }
+
+    public Map<String, Object> getLastReport() {
+        return lastReport;
+    }
+
+    private long correct(Map<String, Long> actual) {
+        Map<String, Long> stored = new HashMap<>();
+        for (NotificationCounter counter : mongoTemplate.find(
+                Query.query(Criteria.where("_id").in(actual.keySet())), NotificationCounter.class)) {
+            stored.put(counter.getId(), counter.getUnread());
+        }
+        Map<String, Long> drifted = new HashMap<>();
+        for (Map.Entry<String, Long> entry : actual.entrySet()) {
+            if (!entry.getValue().equals(stored.get(entry.getKey()))) {
+                drifted.put(entry.getKey(), stored.get(entry.getKey()));
+            }
+        }
+        return setIfUnchanged(drifted, actual);
+    }
+
+    /**
+     * Writes the recounted value for each user, but only where the stored counter still holds the
+     * value it was compared against (a null observation means there was no document yet), so an
+     * increment or mark-read that lands in between is never overwritten; those users are simply
+     * left for the next run. Corrected users are dropped from memory so the next read reloads.
+     */
+    private long setIfUnchanged(Map<String, Long> observed, Map<String, Long> actual) {
+        if (observed.isEmpty()) {
+            return 0;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NotificationCounter.class);
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<String, Long> entry : observed.entrySet()) {
+            long value = actual.getOrDefault(entry.getKey(), 0L);
+            if (entry.getValue() == null) {
+                bulk.upsert(
+                    Query.query(Criteria.where("_id").is(entry.getKey())),
+                    new Update().setOnInsert("unread", value).setOnInsert("updatedAt", now)
+                );
+            } else {
+                bulk.updateOne(
+                    Query.query(Criteria.where("_id").is(entry.getKey()).and("unread").is(entry.getValue())),
+                    new Update().set("unread", value).set("updatedAt", now)
+                );
+            }
+        }
+        bulk.execute();
+        for (String userId : observed.keySet()) {
+            ReentrantLock lock = locks.get(userId);
+            lock.lock();
+            try {
+                countsFor(userId).remove(userId);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return observed.size();
+    }
+
+    // Each stripe's cached counts are only touched under that stripe's lock
+    private Map<String, Long> countsFor(String userId) {
+        return counts.get(locks.index(userId));
+    }
+
+    private static long delta(PendingChange change) {
+        return change != null ? change.delta : 0;
+    }
+
+    // Net change to a user's count since the last flush, and the newest watermark if they read meanwhile
+    private static final class PendingChange {
+        final LocalDateTime readAt;
+        final long delta;
+
+        PendingChange(LocalDateTime readAt, long delta) {
+            this.readAt = readAt;
+            this.delta = delta;
+        }
+
+        PendingChange merge(PendingChange other) {
+            LocalDateTime newest = readAt == null || (other.readAt != null && other.readAt.isAfter(readAt))
+                ? other.readAt
+                : readAt;
+            return new PendingChange(newest, delta + other.delta);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package paf.cookingapp.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import paf.cookingapp.demo.model.User;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * In-memory typeahead index over usernames and full names.
+ *
+ * Every user contributes lowercase tokens (whole username, its alphanumeric parts and each word
+ * of the full name) to a sorted token map, so a prefix lookup is a range scan on a skip list.
+ * Candidates from the most selective term are scored against all terms (exact username, then
+ * username prefix, full name prefix, any word prefix) and the top K ids are returned. The index
+ * is loaded from {@code users} in the background at startup and updated on registration and
+ * profile changes; a periodic reload picks up users changed or deleted by other nodes or
+ * directly in the database. Emails and bios are deliberately not searchable.
+ */
+@Service
+public class UserSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(UserSearchIndex.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${user-search.max-candidates:2000}")
+    private int maxCandidates;
+
+    private final ConcurrentSkipListMap<String, Set<String>> tokens = new ConcurrentSkipListMap<>();
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+    private final AtomicBoolean loading = new AtomicBoolean(false);
+    // Ids indexed or removed locally while a load runs; the load must not overwrite them with what it read
+    private volatile Set<String> changedDuringLoad;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        startLoader();
+    }
+
+    @Scheduled(fixedDelayString = "${user-search.reload-interval-ms:3600000}",
+            initialDelayString = "${user-search.reload-interval-ms:3600000}")
+    public void scheduledReload() {
+        if (ready) {
+            startLoader();
+        }
+    }
+
+    // Loads run on their own thread so a large user collection never holds up the scheduler
+    private void startLoader() {
+        if (!loading.compareAndSet(false, true)) {
+            return;
+        }
+        Thread loader = new Thread(() -> {
+            try {
+                load();
+            } finally {
+                loading.set(false);
+            }
+        }, "user-search-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void load() {
+        long started = System.currentTimeMillis();
+        Set<String> changed = ConcurrentHashMap.newKeySet();
+        changedDuringLoad = changed;
+        Set<String> loaded = new HashSet<>();
+        Query query = new Query().cursorBatchSize(1000);
+        query.fields().include("username", "fullName");
+        try (Stream<User> users = mongoTemplate.stream(query, User.class)) {
+            users.forEach(user -> {
+                if (user.getId() == null) {
+                    return;
+                }
+                loaded.add(user.getId());
+                if (!changed.contains(user.getId())) {
+                    put(user);
+                }
+            });
+            // Users that no longer exist, unless they were registered locally after the load began
+            int removed = 0;
+            for (String userId : entries.keySet()) {
+                if (!loaded.contains(userId) && !changed.contains(userId)) {
+                    drop(userId);
+                    removed++;
+                }
+            }
+            ready = true;
+            logger.info("User search index loaded {} users ({} removed) in {} ms",
+                    entries.size(), removed, System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            logger.error("Failed to load user search index: {}", e.getMessage(), e);
+        } finally {
+            changedDuringLoad = null;
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void index(User user) {
+        if (user == null || user.getId() == null) {
+            return;
+        }
+        markChanged(user.getId());
+        put(user);
+    }
+
+    public void remove(String userId) {
+        markChanged(userId);
+        drop(userId);
+    }
+
+    private void markChanged(String userId) {
+        Set<String> changed = changedDuringLoad;
+        if (changed != null) {
+            changed.add(userId);
+        }
+    }
+
+    private synchronized void put(User user) {
+        drop(user.getId());
+        Entry entry = new Entry(user.getId(), user.getUsername(), user.getFullName());
+        entries.put(entry.id, entry);
+        for (String token : entry.tokens) {
+            tokens.computeIfAbsent(token, t -> ConcurrentHashMap.newKeySet()).add(entry.id);
+        }
+    }
+
+    private synchronized void drop(String userId) {
+        Entry previous = entries.remove(userId);
+        if (previous == null) {
+            return;
+        }
+        for (String token : previous.tokens) {
+            tokens.computeIfPresent(token, (t, ids) -> {
+                ids.remove(userId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} user ids matching every whitespace-separated term as a prefix,
+     * best matches first.
+     */
+    public List<String> search(String query, int limit) {
+        String[] terms = query.trim().toLowerCase(Locale.ROOT).split("\\s+");
+        if (terms.length == 0 || terms[0].isEmpty()) {
+            return List.of();
+        }
+
+        // The longest term is usually the most selective, so it drives candidate generation
+        String driver = terms[0];
+        for (String term : terms) {
+            if (term.length() > driver.length()) {
+                driver = term;
+            }
+        }
+        Set<String> candidates = new LinkedHashSet<>();
+        for (Set<String> ids : tokens.subMap(driver, true, driver + Character.MAX_VALUE, true).values()) {
+            candidates.addAll(ids);
+            if (candidates.size() >= maxCandidates) {
+                break;
+            }
+        }
+
+        List<Scored> scored = new ArrayList<>();
+        for (String id : candidates) {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                continue;
+            }
+            int score = 0;
+            for (String term : terms) {
+                int termScore = entry.score(term);
+                if (termScore == 0) {
+                    score = 0;
+                    break;
+                }
+                score += termScore;
+            }
+            if (score > 0) {
+                scored.add(new Scored(entry, score));
+            }
+        }
+        scored.sort(Comparator.comparingInt((Scored s) -> -s.score)
+                .thenComparingInt(s -> s.entry.username.length())
+                .thenComparing(s -> s.entry.username));
+        return scored.stream().limit(limit).map(s -> s.entry.id).toList();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        final String id;
+        final String username;
+        final String fullName;
+        final Set<String> tokens = new LinkedHashSet<>();
+
+        Entry(String id, String username, String fullName) {
+            this.id = id;
+            this.username = username != null ? username.toLowerCase(Locale.ROOT) : "";
+            this.fullName = fullName != null ? fullName.toLowerCase(Locale.ROOT).trim() : "";
+            addTokens(this.username);
+            addTokens(this.fullName);
+        }
+
+        private void addTokens(String value) {
+            if (value.isEmpty()) {
+                return;
+            }
+            tokens.add(value);
+            for (String part : value.split("[^\\p{L}\\p{N}]+")) {
+                if (!part.isEmpty()) {
+                    tokens.add(part);
+                }
+            }
+        }
+
+        int score(String term) {
+            if (username.equals(term)) {
+                return 100;
+            }
+            if (username.startsWith(term)) {
+                return 80;
+            }
+            if (fullName.startsWith(term)) {
+                return 60;
+            }
+            for (String token : tokens) {
+                if (token.startsWith(term)) {
+                    return 40;
+                }
+            }
+            return 0;
+        }
+    }
+
+    private static final class Scored {
+        final Entry entry;
+        final int score;
+
+        Scored(Entry entry, int score) {
+            this.entry = entry;
+            this.score = score;
+        }
+    }
+}
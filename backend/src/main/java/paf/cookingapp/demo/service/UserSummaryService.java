@@ -0,0 +1,93 @@
+package paf.cookingapp.demo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import paf.cookingapp.demo.model.User;
+import paf.cookingapp.demo.model.UserSummary;
+
+import jakarta.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shared cache of public user summaries used by every path that decorates content with author
+ * or actor details. Misses for a whole page are loaded with one projected $in query; entries
+ * expire after {@code user-summaries.ttl-ms} and are invalidated on profile updates.
+ */
+@Service
+public class UserSummaryService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${user-summaries.max-size:50000}")
+    private int maxSize;
+
+    @Value("${user-summaries.ttl-ms:600000}")
+    private long ttlMs;
+
+    private LookupCache<String, UserSummary> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = new LookupCache<>(maxSize, ttlMs);
+    }
+
+    public UserSummary get(String userId) {
+        if (userId == null) {
+            return null;
+        }
+        return cache.get(userId, id -> {
+            Query query = Query.query(Criteria.where("_id").is(id));
+            includeSummaryFields(query);
+            User user = mongoTemplate.findOne(query, User.class);
+            return user != null ? new UserSummary(user) : null;
+        });
+    }
+
+    // Unknown ids are left out of the result
+    public Map<String, UserSummary> getAll(Collection<String> userIds) {
+        Map<String, UserSummary> summaries = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        for (String userId : userIds) {
+            if (userId == null) {
+                continue;
+            }
+            UserSummary cached = cache.getIfPresent(userId);
+            if (cached != null) {
+                summaries.put(userId, cached);
+            } else {
+                missing.add(userId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Query query = Query.query(Criteria.where("_id").in(missing));
+            includeSummaryFields(query);
+            for (User user : mongoTemplate.find(query, User.class)) {
+                UserSummary summary = new UserSummary(user);
+                cache.put(user.getId(), summary);
+                summaries.put(user.getId(), summary);
+            }
+        }
+        return summaries;
+    }
+
+    public void invalidate(String userId) {
+        cache.invalidate(userId);
+    }
+
+    public Map<String, Object> getMetrics() {
+        return cache.getMetrics();
+    }
+
+    private void includeSummaryFields(Query query) {
+        query.fields().include("username", "fullName", "bio", "profilePicture");
+    }
+}
@@ -0,0 +1,101 @@
+package paf.cookingapp.demo.service;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Partial updates for documents that carry a {@code version} counter.
+ *
+ * Each write is one findAndModify whose filter holds the id, an optional guard (for example
+ * "the timeline step exists") and, when the caller sent one, the version it last read. The
+ * update bumps {@code version} and {@code lastModified} and the new document is returned. A
+ * The caller supplies the {@code lastModified} timestamp, so it stays on the same clock as the
+ * entity's own create path. A write that matches nothing costs one extra read of the version to tell a missing document
+ * (404), a stale version (409) and a failed guard (400) apart.
+ */
+@Service
+public class VersionedUpdater {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    public <T> T apply(Class<T> type, String id, Criteria guard, Update update, LocalDateTime modifiedAt,
+                       Long expectedVersion, String guardMessage) {
+        update.inc("version", 1).set("lastModified", modifiedAt);
+        return execute(type, id, guard, update, expectedVersion, guardMessage);
+    }
+
+    // Pipeline form for changes a classic update operator cannot express, such as removing an array element by index
+    public <T> T applyPipeline(Class<T> type, String id, Criteria guard, Document set, LocalDateTime modifiedAt,
+                               Long expectedVersion, String guardMessage) {
+        Document fields = new Document(set)
+                .append("version", new Document("$add", List.of(new Document("$ifNull", List.of("$version", 0L)), 1L)))
+                // Raw pipeline values skip the mapping layer, so convert the way it stores a LocalDateTime
+                .append("lastModified", Date.from(modifiedAt.atZone(ZoneId.systemDefault()).toInstant()));
+        AggregationOperation stage = context -> new Document("$set", fields);
+        return execute(type, id, guard, AggregationUpdate.from(List.of(stage)), expectedVersion, guardMessage);
+    }
+
+    private <T> T execute(Class<T> type, String id, Criteria guard, UpdateDefinition update, Long expectedVersion, String guardMessage) {
+        List<Criteria> conditions = new ArrayList<>();
+        conditions.add(Criteria.where("_id").is(idValue(id)));
+        if (guard != null) {
+            conditions.add(guard);
+        }
+        if (expectedVersion != null) {
+            conditions.add(versionIs(expectedVersion));
+        }
+        Query query = new Query(new Criteria().andOperator(conditions.toArray(new Criteria[0])));
+        T updated = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), type);
+        if (updated != null) {
+            return updated;
+        }
+
+        Query probe = Query.query(Criteria.where("_id").is(idValue(id)));
+        probe.fields().include("version");
+        Document current = mongoTemplate.findOne(probe, Document.class, mongoTemplate.getCollectionName(type));
+        if (current == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Not found");
+        }
+        long currentVersion = current.get("version") instanceof Number number ? number.longValue() : 0;
+        if (expectedVersion != null && currentVersion != expectedVersion) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Modified by another request; current version is " + currentVersion);
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, guardMessage != null ? guardMessage : "Update not applied");
+    }
+
+    // Documents saved before versioning have no version field and count as version 0; is(null) also matches a missing field
+    private Criteria versionIs(long expectedVersion) {
+        if (expectedVersion == 0) {
+            return new Criteria().orOperator(
+                    Criteria.where("version").is(0L),
+                    Criteria.where("version").is(null)
+            );
+        }
+        return Criteria.where("version").is(expectedVersion);
+    }
+
+    // Generated ids are ObjectIds; compare as ObjectId so queries on _id match and follow index order
+    static Object idValue(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+}
@@ -2,8 +2,11 @@ package paf.cookingapp.demo;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
 
+// The dev profile lets the context start without a JWT secret
 @SpringBootTest
+@ActiveProfiles("dev")
 class DemoApplicationTests {
 
 	@Test
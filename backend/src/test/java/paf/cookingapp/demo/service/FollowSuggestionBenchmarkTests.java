@@ -0,0 +1,61 @@
+package paf.cookingapp.demo.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Excluded from the default test run; run with: mvn test -Dtest.excludedGroups= -Dgroups=benchmark
+@Tag("benchmark")
+class FollowSuggestionBenchmarkTests {
+
+	private static final int SYNTHETIC_USERS = 200_000;
+	private static final int FOLLOWS_PER_USER = 10;
+	private static final int SAMPLED_USERS = 5_000;
+
+	// Parallel precompute over a synthetic graph with millions of edges
+	@Test
+	void precomputesSuggestionsOnSyntheticGraph() {
+		FollowGraphService graph = new FollowGraphService();
+		Random random = new Random(42);
+		for (int user = 0; user < SYNTHETIC_USERS; user++) {
+			for (int i = 0; i < FOLLOWS_PER_USER; i++) {
+				// Skewed towards low ids so some accounts become high-degree hubs
+				int target = (int) (Math.pow(random.nextDouble(), 2) * SYNTHETIC_USERS);
+				if (target != user) {
+					graph.addEdge("u" + user, "u" + target);
+				}
+			}
+		}
+		ReflectionTestUtils.setField(graph, "ready", true);
+
+		FollowSuggestionService service = new FollowSuggestionService();
+		ReflectionTestUtils.setField(service, "followGraphService", graph);
+		ReflectionTestUtils.setField(service, "suggestionCount", 20);
+		ReflectionTestUtils.setField(service, "maxDegree", 1000);
+		ReflectionTestUtils.setField(service, "activeWindowHours", 72L);
+		for (int user = 0; user < SAMPLED_USERS; user++) {
+			// Registers the user as active; the first call computes on demand
+			service.getSuggestions("u" + user, 1);
+		}
+		service.precomputeActiveUsers();
+
+		for (int user = 0; user < SAMPLED_USERS; user += 97) {
+			String userId = "u" + user;
+			List<FollowSuggestionService.Suggestion> suggestions = service.getSuggestions(userId, 20);
+			assertTrue(suggestions.size() <= 20);
+			int previous = Integer.MAX_VALUE;
+			for (FollowSuggestionService.Suggestion suggestion : suggestions) {
+				assertFalse(suggestion.getUserId().equals(userId));
+				assertFalse(graph.isFollowing(userId, suggestion.getUserId()));
+				assertTrue(suggestion.getMutualCount() <= previous);
+				previous = suggestion.getMutualCount();
+			}
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package paf.cookingapp.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FollowSuggestionServiceTests {
+
+	@Test
+	void ranksFriendsOfFriendsByMutualFollowsAndSkipsExistingFollows() {
+		FollowGraphService graph = new FollowGraphService();
+		graph.addEdge("me", "a");
+		graph.addEdge("me", "b");
+		graph.addEdge("me", "c");
+		graph.addEdge("a", "x");
+		graph.addEdge("b", "x");
+		graph.addEdge("c", "x");
+		graph.addEdge("a", "y");
+		graph.addEdge("b", "y");
+		graph.addEdge("a", "z");
+		graph.addEdge("a", "b");
+		graph.addEdge("c", "me");
+
+		List<FollowSuggestionService.Suggestion> suggestions = service(graph).compute("me");
+
+		assertEquals(List.of("x", "y", "z"), suggestions.stream().map(FollowSuggestionService.Suggestion::getUserId).toList());
+		assertEquals(List.of(3, 2, 1), suggestions.stream().map(FollowSuggestionService.Suggestion::getMutualCount).toList());
+	}
+
+	private FollowSuggestionService service(FollowGraphService graph) {
+		FollowSuggestionService service = new FollowSuggestionService();
+		ReflectionTestUtils.setField(service, "followGraphService", graph);
+		ReflectionTestUtils.setField(service, "suggestionCount", 20);
+		ReflectionTestUtils.setField(service, "maxDegree", 1000);
+		ReflectionTestUtils.setField(service, "activeWindowHours", 72L);
+		return service;
+	}
+}
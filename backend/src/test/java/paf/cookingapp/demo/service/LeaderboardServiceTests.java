@@ -0,0 +1,112 @@
+package paf.cookingapp.demo.service;
+
+import org.junit.jupiter.api.Test;
+import paf.cookingapp.demo.service.LeaderboardService.CourseBoard;
+import paf.cookingapp.demo.service.LeaderboardService.Learner;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static paf.cookingapp.demo.service.LeaderboardService.MAX_TRACKED_SCORE;
+
+class LeaderboardServiceTests {
+
+	@Test
+	void tiedLearnersShareACompetitionRank() {
+		CourseBoard board = new CourseBoard("knife skills");
+		board.put(new Learner("a", 10, 100));
+		board.put(new Learner("b", 10, 200));
+		board.put(new Learner("c", 7, 300));
+		board.put(new Learner("d", 3, 400));
+
+		assertEquals(1, rank(board, "a"));
+		assertEquals(1, rank(board, "b"));
+		assertEquals(3, rank(board, "c"));
+		assertEquals(4, rank(board, "d"));
+	}
+
+	@Test
+	void tiesAreOrderedByMostRecentActivityThenUserId() {
+		CourseBoard board = new CourseBoard("knife skills");
+		board.put(new Learner("c", 5, 100));
+		board.put(new Learner("b", 5, 200));
+		board.put(new Learner("a", 5, 100));
+		board.put(new Learner("d", 9, 0));
+
+		assertEquals(List.of("d", "b", "a", "c"), board.ranking.stream().map(learner -> learner.userId).toList());
+	}
+
+	@Test
+	void updatesAndRemovalsMoveTheCounts() {
+		CourseBoard board = new CourseBoard("knife skills");
+		board.put(new Learner("a", 4, 100));
+		board.put(new Learner("b", 6, 100));
+		board.put(new Learner("a", 8, 200));
+
+		assertEquals(1, rank(board, "a"));
+		assertEquals(2, rank(board, "b"));
+
+		board.remove("a");
+		assertEquals(1, rank(board, "b"));
+		assertEquals(1, board.size());
+		assertEquals(1, board.higherThan(0));
+	}
+
+	@Test
+	void scoresPastTheInitialTreeGrowItWithoutLosingCounts() {
+		CourseBoard board = new CourseBoard("knife skills");
+		board.put(new Learner("a", 3, 100));
+		board.put(new Learner("b", 63, 100));
+		board.put(new Learner("c", 64, 100));
+		board.put(new Learner("d", 1000, 100));
+		board.put(new Learner("e", 64, 200));
+
+		assertEquals(0, board.higherThan(1000));
+		assertEquals(1, board.higherThan(64));
+		assertEquals(3, board.higherThan(63));
+		assertEquals(4, board.higherThan(3));
+		assertEquals(5, board.higherThan(0));
+		// Larger than anything the tree has grown to, but still tracked
+		assertEquals(0, board.higherThan(5000));
+
+		board.put(new Learner("d", 2, 300));
+		assertEquals(4, rank(board, "a"));
+		assertEquals(5, rank(board, "d"));
+	}
+
+	@Test
+	void scoresAtOrAboveTheTrackedMaximumAreCountedSeparately() {
+		CourseBoard board = new CourseBoard("knife skills");
+		board.put(new Learner("a", 5, 100));
+		board.put(new Learner("b", MAX_TRACKED_SCORE, 100));
+		board.put(new Learner("c", MAX_TRACKED_SCORE + 10L, 100));
+		board.put(new Learner("d", MAX_TRACKED_SCORE - 1L, 100));
+
+		assertEquals(1, rank(board, "c"));
+		assertEquals(2, rank(board, "b"));
+		assertEquals(3, rank(board, "d"));
+		assertEquals(4, rank(board, "a"));
+
+		board.remove("c");
+		assertEquals(1, rank(board, "b"));
+		assertEquals(3, rank(board, "a"));
+
+		board.put(new Learner("b", 1, 200));
+		assertEquals(1, rank(board, "d"));
+		assertEquals(3, rank(board, "b"));
+	}
+
+	@Test
+	void negativeScoresCountAsZero() {
+		CourseBoard board = new CourseBoard("knife skills");
+		board.put(new Learner("a", -5, 100));
+		board.put(new Learner("b", 0, 200));
+
+		assertEquals(1, rank(board, "a"));
+		assertEquals(1, rank(board, "b"));
+	}
+
+	private long rank(CourseBoard board, String userId) {
+		return board.higherThan(board.byUser.get(userId).score) + 1;
+	}
+}
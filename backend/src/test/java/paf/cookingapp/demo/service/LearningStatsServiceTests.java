@@ -0,0 +1,143 @@
+package paf.cookingapp.demo.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Update;
+import paf.cookingapp.demo.model.LearningStats;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LearningStatsServiceTests {
+
+	private static final LocalDate TODAY = LocalDate.of(2024, 3, 14);
+
+	@Test
+	void eventsNoNewerThanTheStoredVersionAreStale() {
+		assertFalse(LearningStatsService.isStale(1L, null));
+		assertFalse(LearningStatsService.isStale(3L, 2L));
+		assertTrue(LearningStatsService.isStale(2L, 2L));
+		assertTrue(LearningStatsService.isStale(1L, 2L));
+		// Documents written before versioning count as version 0
+		assertTrue(LearningStatsService.isStale(null, 0L));
+		assertFalse(LearningStatsService.isStale(null, null));
+	}
+
+	@Test
+	void firstActivityStartsAStreak() {
+		Update update = new Update();
+		LearningStatsService.recordActivity(update, null, TODAY);
+
+		Document set = set(update);
+		assertEquals(TODAY.toEpochDay(), set.get("lastActiveDay"));
+		assertEquals(1, set.get("currentStreak"));
+		assertEquals(1, set.get("longestStreak"));
+	}
+
+	@Test
+	void activityTheNextDayExtendsTheStreak() {
+		Update update = new Update();
+		LearningStatsService.recordActivity(update, stats(TODAY.minusDays(1), 4, 4), TODAY);
+
+		Document set = set(update);
+		assertEquals(5, set.get("currentStreak"));
+		assertEquals(5, set.get("longestStreak"));
+	}
+
+	@Test
+	void aGapRestartsTheStreakButKeepsTheLongest() {
+		Update update = new Update();
+		LearningStatsService.recordActivity(update, stats(TODAY.minusDays(3), 2, 7), TODAY);
+
+		Document set = set(update);
+		assertEquals(1, set.get("currentStreak"));
+		assertEquals(7, set.get("longestStreak"));
+	}
+
+	@Test
+	void repeatedActivityOnTheSameDayChangesNothing() {
+		Update update = new Update();
+		LearningStatsService.recordActivity(update, stats(TODAY, 3, 3), TODAY);
+
+		assertTrue(update.getUpdateObject().isEmpty());
+	}
+
+	@Test
+	void totalsAddAndRemovePlansPerBreakdown() {
+		LearningStats.PlanStats plan = new LearningStats.PlanStats();
+		plan.setTemplateType("baking");
+		plan.setCourseName("  French.Pastry ");
+		plan.setStepsTotal(4);
+		plan.setStepsCompleted(1);
+		plan.setWeeks(Map.of("2024-W11", 1L));
+
+		LearningStatsService.Totals totals = new LearningStatsService.Totals();
+		totals.addPlan(plan, 1);
+
+		assertEquals(1L, totals.increments.get("planCount"));
+		assertEquals(4L, totals.increments.get("stepsTotal"));
+		assertEquals(1L, totals.increments.get("weeklyCompleted.2024-W11"));
+		assertEquals(1L, totals.increments.get("byTemplateType.baking.plans"));
+		// Course names are trimmed, lowercased and escaped for use as a field name
+		assertEquals(4L, totals.increments.get("byCourse.french%2Epastry.stepsTotal"));
+		assertEquals("french.pastry", totals.names.get("byCourse.french%2Epastry.name"));
+
+		totals.addPlan(plan, -1);
+		assertEquals(0L, totals.increments.get("planCount"));
+
+		Update update = new Update();
+		totals.applyTo(update);
+		// Net-zero counters are not written, names are
+		assertNull(update.getUpdateObject().get("$inc"));
+		assertEquals("baking", set(update).get("byTemplateType.baking.name"));
+	}
+
+	@Test
+	void totalsGroupProgressWithoutATemplateUnderOther() {
+		LearningStats.ProgressStats progress = new LearningStats.ProgressStats();
+		progress.setTemplateType(" ");
+
+		LearningStatsService.Totals totals = new LearningStatsService.Totals();
+		totals.addProgress(progress, 1);
+		totals.addProgress(null, 1);
+
+		assertEquals(1L, totals.increments.get("progressCount"));
+		assertEquals(1L, totals.increments.get("byTemplateType.other.progress"));
+		assertNull(totals.increments.get("byTemplateType.other.plans"));
+	}
+
+	@Test
+	void touchKeepsTheLatestActivityPerCourse() {
+		LocalDateTime earlier = LocalDateTime.of(2024, 3, 1, 9, 0);
+		LocalDateTime later = earlier.plusDays(2);
+
+		LearningStatsService.Totals totals = new LearningStatsService.Totals();
+		totals.touch("Knife Skills", later);
+		totals.touch("knife skills ", earlier);
+		totals.touch(null, later);
+
+		assertEquals(Map.of("byCourse.knife skills.lastActivityAt", later), totals.activity);
+
+		Update update = new Update();
+		totals.applyTo(update);
+		assertEquals(later, ((Document) update.getUpdateObject().get("$max")).get("byCourse.knife skills.lastActivityAt"));
+	}
+
+	private LearningStats stats(LocalDate lastActive, int currentStreak, int longestStreak) {
+		LearningStats stats = new LearningStats();
+		stats.setLastActiveDay(lastActive.toEpochDay());
+		stats.setCurrentStreak(currentStreak);
+		stats.setLongestStreak(longestStreak);
+		return stats;
+	}
+
+	private Document set(Update update) {
+		return (Document) update.getUpdateObject().get("$set");
+	}
+}
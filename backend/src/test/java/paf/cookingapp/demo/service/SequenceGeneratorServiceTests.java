@@ -0,0 +1,113 @@
+package paf.cookingapp.demo.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+import paf.cookingapp.demo.model.DatabaseSequence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SequenceGeneratorServiceTests {
+
+	private static final int NODES = 3;
+	private static final int THREADS_PER_NODE = 8;
+	private static final int IDS_PER_THREAD = 5000;
+
+	// Stands in for the database_sequences document: $inc is atomic, as findAndModify is in MongoDB
+	private final AtomicLong storedSeq = new AtomicLong();
+	private MongoOperations mongoOperations;
+
+	@BeforeEach
+	void stubSequenceDocument() {
+		mongoOperations = mock(MongoOperations.class);
+		when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(DatabaseSequence.class)))
+			.thenAnswer(invocation -> {
+				Update update = invocation.getArgument(1);
+				long increment = ((Number) ((Document) update.getUpdateObject().get("$inc")).get("seq")).longValue();
+				DatabaseSequence sequence = new DatabaseSequence();
+				sequence.setId("posts_sequence");
+				sequence.setSeq(storedSeq.addAndGet(increment));
+				return sequence;
+			});
+	}
+
+	@Test
+	void concurrentAllocationAcrossNodesNeverRepeatsIds() throws Exception {
+		List<SequenceGeneratorService> nodes = new ArrayList<>();
+		for (int i = 0; i < NODES; i++) {
+			nodes.add(node());
+		}
+
+		Set<Long> ids = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = Executors.newFixedThreadPool(NODES * THREADS_PER_NODE);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Integer>> duplicates = new ArrayList<>();
+		for (SequenceGeneratorService node : nodes) {
+			for (int t = 0; t < THREADS_PER_NODE; t++) {
+				duplicates.add(executor.submit(() -> {
+					start.await();
+					int duplicateCount = 0;
+					for (int i = 0; i < IDS_PER_THREAD; i++) {
+						if (!ids.add(node.generateSequence("posts_sequence"))) {
+							duplicateCount++;
+						}
+					}
+					return duplicateCount;
+				}));
+			}
+		}
+		start.countDown();
+
+		int totalDuplicates = 0;
+		for (Future<Integer> result : duplicates) {
+			totalDuplicates += result.get();
+		}
+		executor.shutdown();
+
+		long allocated = (long) NODES * THREADS_PER_NODE * IDS_PER_THREAD;
+		long roundTrips = nodes.stream().mapToLong(SequenceGeneratorService::getReservationCount).sum();
+		assertEquals(0, totalDuplicates);
+		assertEquals(allocated, ids.size());
+		assertTrue(roundTrips < allocated / 10, "expected block reservations, got " + roundTrips + " round trips");
+	}
+
+	@Test
+	void idsFromOneNodeAreIncreasing() {
+		storedSeq.set(41);
+		SequenceGeneratorService service = node();
+
+		long previous = service.generateSequence("posts_sequence");
+		assertEquals(42, previous);
+		for (int i = 0; i < 1000; i++) {
+			long next = service.generateSequence("posts_sequence");
+			assertTrue(next > previous);
+			previous = next;
+		}
+	}
+
+	private SequenceGeneratorService node() {
+		SequenceGeneratorService node = new SequenceGeneratorService();
+		ReflectionTestUtils.setField(node, "mongoOperations", mongoOperations);
+		return node;
+	}
+}
@@ -0,0 +1,81 @@
+package paf.cookingapp.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import paf.cookingapp.demo.model.User;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserSearchIndexTests {
+
+	private UserSearchIndex index;
+
+	@BeforeEach
+	void createIndex() {
+		index = new UserSearchIndex();
+		ReflectionTestUtils.setField(index, "maxCandidates", 2000);
+	}
+
+	@Test
+	void ranksExactUsernameThenUsernamePrefixThenFullNameThenAnyWord() {
+		index.index(user("4", "carl", "Carl Annett"));
+		index.index(user("3", "bob", "Anne Smith"));
+		index.index(user("2", "anna", "Anna Lee"));
+		index.index(user("1", "ann", null));
+
+		assertEquals(List.of("1", "2", "3", "4"), index.search("ann", 10));
+	}
+
+	@Test
+	void matchesTermsAsPrefixesOnly() {
+		index.index(user("1", "joanna", null));
+		index.index(user("2", "bob_annett", null));
+
+		// "joanna" contains "ann" but does not start with it; "bob_annett" is split on the underscore
+		assertEquals(List.of("2"), index.search("ANN", 10));
+		assertEquals(List.of(), index.search("oann", 10));
+	}
+
+	@Test
+	void everyTermMustMatch() {
+		index.index(user("1", "anna", "Anna Lee"));
+		index.index(user("2", "annabel", "Annabel Smith"));
+
+		assertEquals(List.of("2"), index.search("ann smi", 10));
+		assertEquals(List.of(), index.search("ann jones", 10));
+	}
+
+	@Test
+	void tiesGoToTheShorterThenAlphabeticallyFirstUsername() {
+		index.index(user("1", "annabel", null));
+		index.index(user("2", "annie", null));
+		index.index(user("3", "annex", null));
+
+		assertEquals(List.of("3", "2", "1"), index.search("ann", 10));
+		assertEquals(List.of("3", "2"), index.search("ann", 2));
+	}
+
+	@Test
+	void reindexingAndRemovingReplaceTheOldTokens() {
+		index.index(user("1", "anna", null));
+		index.index(user("1", "bella", null));
+
+		assertEquals(List.of(), index.search("anna", 10));
+		assertEquals(List.of("1"), index.search("bel", 10));
+
+		index.remove("1");
+		assertEquals(List.of(), index.search("bel", 10));
+		assertEquals(0, index.size());
+	}
+
+	private User user(String id, String username, String fullName) {
+		User user = new User();
+		user.setId(id);
+		user.setUsername(username);
+		user.setFullName(fullName);
+		return user;
+	}
+}
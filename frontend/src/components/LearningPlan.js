@@ -13,6 +13,8 @@ const LearningPlan = () => {
     const [editingId, setEditingId] = useState(null);
     const [viewingPlan, setViewingPlan] = useState(null);
     const [editingPlan, setEditingPlan] = useState(null);
+    const [nextCursor, setNextCursor] = useState(null);
+    const currentUser = JSON.parse(localStorage.getItem('user') || '{}');
 
     const axiosConfig = {
         headers: {
@@ -27,11 +29,20 @@ const LearningPlan = () => {
         fetchPlan();
     }, []); // eslint-disable-line react-hooks/exhaustive-deps
 
-    const fetchPlan = async () => {
+    // The listing only carries summaries; details and timeline come from the full plan
+    const fetchPlan = async (cursor = null) => {
+        if (!currentUser.id) {
+            setLearningPlan([]);
+            setLoading(false);
+            return;
+        }
         try {
             setLoading(true);
             setError('');
-            const response = await axios.get('http://localhost:8080/api/plan', axiosConfig);
+            const response = await axios.get('http://localhost:8080/api/plan', {
+                ...axiosConfig,
+                params: { userId: currentUser.id, cursor: cursor || undefined, limit: 20 },
+            });
 
             if (response.data) {
                 const validatedData = (response.data || []).map(item => ({
@@ -44,7 +55,8 @@ const LearningPlan = () => {
                     lastModified: item.lastModified || new Date().toISOString(),
                     templateType: item.templateType || 'recipe',
                 }));
-                setLearningPlan(validatedData);
+                setLearningPlan(prev => cursor ? [...prev, ...validatedData] : validatedData);
+                setNextCursor(response.headers['x-next-cursor'] || null);
             } else {
                 throw new Error('No data received from server');
             }
@@ -56,13 +68,31 @@ const LearningPlan = () => {
         }
     };
 
-    const handleEdit = (plan) => {
-        setEditingPlan({
-            ...plan,
-            ingredients: plan.details.split('\n')[0] || '',
-            steps: plan.details.split('\n')[1] || '',
-        });
-        setEditingId(plan.id);
+    const loadFullPlan = async (id) => {
+        const response = await axios.get(`http://localhost:8080/api/plan/${id}`, axiosConfig);
+        return { ...response.data, details: response.data.details || '', timeline: response.data.timeline || [] };
+    };
+
+    const handleView = async (plan) => {
+        try {
+            setViewingPlan(await loadFullPlan(plan.id));
+        } catch (error) {
+            setError('Failed to load plan');
+        }
+    };
+
+    const handleEdit = async (plan) => {
+        try {
+            const fullPlan = await loadFullPlan(plan.id);
+            setEditingPlan({
+                ...fullPlan,
+                ingredients: fullPlan.details.split('\n')[0] || '',
+                steps: fullPlan.details.split('\n')[1] || '',
+            });
+            setEditingId(plan.id);
+        } catch (error) {
+            setError('Failed to load plan');
+        }
     };
 
     const handleEditModalUpdate = async () => {
@@ -78,7 +108,9 @@ const LearningPlan = () => {
             setEditingPlan(null);
             fetchPlan();
         } catch (error) {
-            setError('Failed to update plan');
+            setError(error.response?.status === 409
+                ? 'This plan was changed elsewhere. Reopen it to see the latest version.'
+                : 'Failed to update plan');
         }
     };
 
@@ -333,35 +365,9 @@ const LearningPlan = () => {
                                         <div className="text-gray-900 text-base">{plan.title}</div>
                                     </div>
 
-                                    <div>
-                                        <div className="font-semibold text-gray-800">Description:</div>
-                                        <div className="text-gray-700 whitespace-pre-line">{plan.description || plan.details.split('\n')[0]}</div>
-                                    </div>
-
-                                    <div>
-                                        <div className="font-semibold text-gray-800">Ingredients:</div>
-                                        <div className="text-gray-700 whitespace-pre-line">{plan.ingredients || plan.details.split('\n').slice(1).join('\n')}</div>
-                                    </div>
-
-                                    {plan.timeline && plan.timeline.length > 0 && (
-                                        <div>
-                                            <div className="font-semibold text-gray-800">Timeline:</div>
-                                            <ul className="list-disc list-inside ml-4 text-gray-700 space-y-1">
-                                                {plan.timeline.map((step, idx) => (
-                                                    <li key={idx}>
-                                                        {step.step}
-                                                        {step.duration && (
-                                                            <span className="ml-2 text-xs text-gray-500">({step.duration})</span>
-                                                        )}
-                                                    </li>
-                                                ))}
-                                            </ul>
-                                        </div>
-                                    )}
-
                                     <div className="flex justify-end gap-2 mt-4">
                                         <button
-                                            onClick={() => setViewingPlan(plan)}
+                                            onClick={() => handleView(plan)}
                                             className="flex items-center justify-center w-8 h-8 bg-blue-500 text-white rounded-full hover:bg-blue-600 transition-colors"
                                             title="View"
                                         >
@@ -392,6 +398,16 @@ const LearningPlan = () => {
                     ))}
                 </div>
             )}
+            {nextCursor && !loading && (
+                <div className="text-center mt-8">
+                    <button
+                        onClick={() => fetchPlan(nextCursor)}
+                        className="px-5 py-2 bg-orange-500 text-white rounded hover:bg-orange-600 text-sm shadow-md transition-colors"
+                    >
+                        Load more
+                    </button>
+                </div>
+            )}
         </div>
     );
 };
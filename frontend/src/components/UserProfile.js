@@ -3,6 +3,7 @@ import { useParams } from 'react-router-dom';
 import { FiUser } from 'react-icons/fi';
 import PostList from './posts/PostList';
 import ProgressList from './ProgressList';
+import LearningStatsCard from './common/LearningStatsCard';
 import api from '../services/axiosConfig';
 
 const UserProfile = () => {
@@ -133,6 +134,7 @@ const UserProfile = () => {
             )
           ) : (
             <div>
+              <LearningStatsCard userId={userId} />
               {userProgress.length === 0 ? (
                 <div className="text-center py-12 bg-white rounded-lg shadow">
                   <p className="text-gray-600 text-lg">No learning progress yet</p>
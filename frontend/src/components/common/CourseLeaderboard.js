@@ -0,0 +1,69 @@
+import React, { useState, useEffect } from 'react';
+import api from '../../services/axiosConfig';
+
+const PAGE_SIZE = 10;
+
+// Top learners of one course plus the given user's own rank, which is shown even when it is far below the listed pages
+const CourseLeaderboard = ({ course, userId }) => {
+  const [entries, setEntries] = useState([]);
+  const [page, setPage] = useState(0);
+  const [hasMore, setHasMore] = useState(false);
+  const [myRank, setMyRank] = useState(null);
+  const [error, setError] = useState('');
+
+  useEffect(() => {
+    setEntries([]);
+    setPage(0);
+    setMyRank(null);
+    setError('');
+    loadPage(0);
+    if (userId) {
+      api.get('/api/leaderboards/rank', { params: { course, userId } })
+        .then(response => setMyRank(response.data))
+        .catch(() => setMyRank(null));
+    }
+    // eslint-disable-next-line react-hooks/exhaustive-deps
+  }, [course, userId]);
+
+  const loadPage = (pageToLoad) => {
+    api.get('/api/leaderboards', { params: { course, page: pageToLoad, size: PAGE_SIZE } })
+      .then(response => {
+        setEntries(prev => pageToLoad === 0 ? response.data.entries : [...prev, ...response.data.entries]);
+        setHasMore(response.data.hasMore);
+        setPage(pageToLoad);
+      })
+      .catch(err => {
+        setError(err.response?.status === 503 ? 'Leaderboard is loading, try again shortly' : 'Could not load leaderboard');
+      });
+  };
+
+  return (
+    <div className="mt-4 border-t pt-4">
+      <h4 className="font-semibold text-gray-800 mb-2">{course} leaderboard</h4>
+      {myRank && (
+        <p className="text-sm text-orange-600 mb-2">
+          Your rank: #{myRank.rank} of {myRank.learners} (top {myRank.topPercent}%)
+        </p>
+      )}
+      {error && <p className="text-sm text-red-500 mb-2">{error}</p>}
+      <ol className="space-y-1 text-sm text-gray-700">
+        {entries.map(entry => (
+          <li
+            key={entry.userId}
+            className={`flex justify-between ${entry.userId === userId ? 'font-semibold text-orange-600' : ''}`}
+          >
+            <span>#{entry.rank} {entry.user?.fullName || entry.user?.username || 'Unknown user'}</span>
+            <span className="text-gray-500">{entry.stepsCompleted} steps</span>
+          </li>
+        ))}
+      </ol>
+      {hasMore && (
+        <button onClick={() => loadPage(page + 1)} className="mt-2 text-sm text-orange-600 hover:underline">
+          Load more
+        </button>
+      )}
+    </div>
+  );
+};
+
+export default CourseLeaderboard;
@@ -0,0 +1,92 @@
+import React, { useState, useEffect } from 'react';
+import api from '../../services/axiosConfig';
+import CourseLeaderboard from './CourseLeaderboard';
+
+const percent = (ratio) => `${Math.round((ratio || 0) * 100)}%`;
+
+// Summary of a user's learning activity, read from the precomputed stats document
+const LearningStatsCard = ({ userId }) => {
+  const [stats, setStats] = useState(null);
+  const [selectedCourse, setSelectedCourse] = useState(null);
+
+  useEffect(() => {
+    if (!userId) return;
+    api.get(`/api/learning-stats/${userId}`)
+      .then(response => setStats(response.data))
+      .catch(error => console.error('Error fetching learning stats:', error));
+  }, [userId]);
+
+  if (!stats) return null;
+
+  const maxWeek = Math.max(1, ...stats.weeklyCompleted.map(week => week.completed));
+
+  return (
+    <div className="bg-white rounded-lg shadow p-6 mb-6">
+      <div className="grid grid-cols-2 md:grid-cols-4 gap-4 mb-6">
+        <div>
+          <div className="text-2xl font-bold text-orange-600">{stats.planCount}</div>
+          <div className="text-sm text-gray-500">Plans</div>
+        </div>
+        <div>
+          <div className="text-2xl font-bold text-orange-600">{percent(stats.completionRatio)}</div>
+          <div className="text-sm text-gray-500">{stats.stepsCompleted} of {stats.stepsTotal} steps done</div>
+        </div>
+        <div>
+          <div className="text-2xl font-bold text-orange-600">{stats.streak.current} days</div>
+          <div className="text-sm text-gray-500">Current streak (best {stats.streak.longest})</div>
+        </div>
+        <div>
+          <div className="text-2xl font-bold text-orange-600">{stats.progressCount}</div>
+          <div className="text-sm text-gray-500">Progress updates</div>
+        </div>
+      </div>
+
+      <h4 className="font-semibold text-gray-800 mb-2">Steps completed per week</h4>
+      <div className="flex items-end gap-1 h-24 mb-6">
+        {stats.weeklyCompleted.map(week => (
+          <div key={week.week} className="flex-1 flex flex-col items-center justify-end h-full" title={`${week.week}: ${week.completed}`}>
+            <div
+              className="w-full bg-orange-400 rounded-t"
+              style={{ height: `${(week.completed / maxWeek) * 100}%` }}
+            />
+          </div>
+        ))}
+      </div>
+
+      <div className="grid grid-cols-1 md:grid-cols-2 gap-6">
+        {[['By type', stats.byTemplateType], ['By course', stats.byCourse]].map(([label, rows]) => (
+          <div key={label}>
+            <h4 className="font-semibold text-gray-800 mb-2">{label}</h4>
+            {rows.length === 0 ? (
+              <p className="text-sm text-gray-500">Nothing yet</p>
+            ) : (
+              <ul className="space-y-1 text-sm text-gray-700">
+                {rows.map(row => (
+                  <li key={row.name} className="flex justify-between">
+                    {label === 'By course' ? (
+                      <button
+                        onClick={() => setSelectedCourse(selectedCourse === row.name ? null : row.name)}
+                        className="text-left text-orange-600 hover:underline"
+                      >
+                        {row.name}
+                      </button>
+                    ) : (
+                      <span className="capitalize">{row.name}</span>
+                    )}
+                    <span className="text-gray-500">
+                      {row.plans} plans, {row.progress} updates, {percent(row.completionRatio)} done
+                    </span>
+                  </li>
+                ))}
+              </ul>
+            )}
+          </div>
+        ))}
+      </div>
+
+      {selectedCourse && <CourseLeaderboard course={selectedCourse} userId={userId} />}
+    </div>
+  );
+};
+
+export default LearningStatsCard;
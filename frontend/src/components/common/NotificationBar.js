@@ -1,6 +1,7 @@
 import React, { useState, useEffect } from 'react';
 import { BellIcon } from '@heroicons/react/24/outline';
 import { useNavigate } from 'react-router-dom';
+import { useNotificationStream } from '../../contexts/NotificationStreamContext';
 
 const NotificationBar = () => {
   const [unreadCount, setUnreadCount] = useState(0);
@@ -8,10 +9,13 @@ const NotificationBar = () => {
 
   useEffect(() => {
     fetchNotifications();
-    const interval = setInterval(fetchNotifications, 30000);
-    return () => clearInterval(interval);
   }, []);
 
+  // New likes/comments are pushed over SSE instead of polling the count
+  useNotificationStream(() => {
+    setUnreadCount((count) => count + 1);
+  });
+
   const currentUser = JSON.parse(localStorage.getItem('user') || '{}');
 
   const fetchNotifications = async () => {
@@ -1,6 +1,7 @@
 import React, { useState, useEffect } from 'react';
 import { useNavigate } from 'react-router-dom';
 import { ArrowLeftIcon } from '@heroicons/react/24/outline';
+import { useNotificationStream } from '../../contexts/NotificationStreamContext';
 
 const NotificationList = () => {
   const [notifications, setNotifications] = useState([]);
@@ -10,10 +11,13 @@ const NotificationList = () => {
 
   useEffect(() => {
     fetchNotifications();
-    const interval = setInterval(fetchNotifications, 30000);
-    return () => clearInterval(interval);
   }, []);
 
+  // Refresh the list when the server pushes a new notification
+  useNotificationStream(() => {
+    fetchNotifications();
+  });
+
   const currentUser = JSON.parse(localStorage.getItem('user') || '{}');
   
   const fetchNotifications = async () => {
@@ -135,7 +139,7 @@ const NotificationList = () => {
                           />
                         ) : (
                           <span className="text-sm font-medium text-orange-500">
-                            {notification.username.charAt(0).toUpperCase()}
+                            {(notification.username || '?').charAt(0).toUpperCase()}
                           </span>
                         )}
                       </div>
@@ -145,6 +149,11 @@ const NotificationList = () => {
                         <div>
                           <p className="text-sm">
                             <span className="font-semibold">{notification.username}</span>
+                            {notification.actorCount > 1 && (
+                              <span>
+                                {' '}and {notification.actorCount - 1} {notification.actorCount === 2 ? 'other' : 'others'}
+                              </span>
+                            )}
                             {' '}
                             {notification.type === 'LIKE' ? 'liked your post' : 'commented on your post'}
                             {notification.type === 'COMMENT' && notification.content && (
@@ -3,18 +3,21 @@ import { HeartIcon as HeartOutline } from '@heroicons/react/24/outline';
 import { HeartIcon as HeartSolid } from '@heroicons/react/24/solid';
 import { ChatBubbleOvalLeftIcon, PencilIcon, TrashIcon } from '@heroicons/react/24/outline';
 import Modal from 'react-modal';
+import { useUsers } from '../../contexts/UsersContext';
 
 Modal.setAppElement('#root');
 
-const SocialInteractionBar = ({ itemId, userId }) => {
-  const [isLiked, setIsLiked] = useState(false);
+const SocialInteractionBar = ({ itemId, userId, card }) => {
+  const [isLiked, setIsLiked] = useState(card?.likedByViewer || false);
   const [showComments, setShowComments] = useState(false);
-  const [comments, setComments] = useState([]);
+  const [comments, setComments] = useState(card?.recentComments || []);
+  const [commentCount, setCommentCount] = useState(card?.commentCount || 0);
   const [newComment, setNewComment] = useState('');
-  const [likeCount, setLikeCount] = useState(0);
+  const [likeCount, setLikeCount] = useState(card?.likeCount || 0);
   const [editingComment, setEditingComment] = useState(null);
   const [editContent, setEditContent] = useState('');
-  const [userDetails, setUserDetails] = useState({});
+  // Comment authors come from the shared users context, resolved in one batch request
+  const { users: userDetails, fetchUsers } = useUsers();
 
   const modalStyles = {
     content: {
@@ -40,32 +43,7 @@ const SocialInteractionBar = ({ itemId, userId }) => {
     setEditContent('');
   };
 
-  const fetchUserDetails = async (userId) => {
-    if (userDetails[userId]) return;
-    
-    try {
-      const response = await fetch(`http://localhost:8080/api/users/${userId}`, {
-        credentials: 'include',
-        headers: {
-          'Content-Type': 'application/json'
-        }
-      });
-      
-      if (!response.ok) throw new Error('Failed to fetch user details');
-      
-      const userData = await response.json();
-      setUserDetails(prev => ({
-        ...prev,
-        [userId]: {
-          username: userData.username,
-          fullName: userData.fullName,
-          profilePicture: userData.profilePicture
-        }
-      }));
-    } catch (error) {
-      console.error('Error fetching user details:', error);
-    }
-  };  const handleLike = async () => {
+  const handleLike = async () => {
     try {
       const requestData = {
         postId: String(itemId),  // Using postId instead of itemId to match backend
@@ -121,6 +99,7 @@ const SocialInteractionBar = ({ itemId, userId }) => {
 
       const data = JSON.parse(text);
       setComments(data);
+      setCommentCount(data.length);
     } catch (error) {
       console.error('Error fetching comments:', error);
     }
@@ -152,7 +131,8 @@ const SocialInteractionBar = ({ itemId, userId }) => {
       const savedComment = await response.json();
       setNewComment('');
       setComments(prevComments => [...prevComments, savedComment]);
-      fetchUserDetails(userId);
+      setCommentCount(prev => prev + 1);
+      fetchUsers([userId]);
     } catch (error) {
       console.error('Error posting comment:', error);
       alert('Failed to post comment. Please try again.');
@@ -208,6 +188,7 @@ const SocialInteractionBar = ({ itemId, userId }) => {
         setComments(prevComments =>
           prevComments.filter(comment => comment.id !== commentId)
         );
+        setCommentCount(prev => Math.max(prev - 1, 0));
       } catch (error) {
         console.error('Error deleting comment:', error);
         alert('Failed to delete comment. Please try again.');
@@ -216,6 +197,9 @@ const SocialInteractionBar = ({ itemId, userId }) => {
   };
 
   useEffect(() => {
+    // Cards from the batch endpoint already carry the initial state
+    if (card) return;
+
     const fetchInitialData = async () => {
       try {
         const [likesCountResponse, userLikeResponse, commentsResponse] = await Promise.all([
@@ -252,6 +236,7 @@ const SocialInteractionBar = ({ itemId, userId }) => {
         if (commentsResponse.ok) {
           const commentsData = await commentsResponse.json();
           setComments(commentsData);
+          setCommentCount(commentsData.length);
         }
       } catch (error) {
         console.error('Error fetching initial data:', error);
@@ -259,14 +244,17 @@ const SocialInteractionBar = ({ itemId, userId }) => {
     };
 
     fetchInitialData();
-  }, [itemId, userId]);
+  }, [itemId, userId, card]);
 
   useEffect(() => {
-    comments.forEach(comment => {
-      if (!userDetails[comment.userId]) {
-        fetchUserDetails(comment.userId);
-      }
-    });
+    // Cards only carry the newest comments; load the full thread when it is opened
+    if (showComments && card) {
+      fetchComments();
+    }
+  }, [showComments]);
+
+  useEffect(() => {
+    fetchUsers(comments.map(comment => comment.userId));
   }, [comments]);
 
   return (
@@ -290,7 +278,7 @@ const SocialInteractionBar = ({ itemId, userId }) => {
             className="flex items-center space-x-1 group"
           >
             <ChatBubbleOvalLeftIcon className="h-6 w-6 text-gray-500 transition-transform group-hover:scale-110" />
-            <span className="text-sm text-gray-600">{comments.length}</span>
+            <span className="text-sm text-gray-600">{commentCount}</span>
           </button>
         </div>
       </div>
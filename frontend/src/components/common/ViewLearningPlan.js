@@ -13,6 +13,9 @@ const ViewLearningPlan = () => {
     const [loading, setLoading] = useState(true);
     const [checkedSteps, setCheckedSteps] = useState({});
     const [stepsPopupPlan, setStepsPopupPlan] = useState(null);
+    const [nextCursor, setNextCursor] = useState(null);
+    const [fullPlans, setFullPlans] = useState({});
+    const currentUser = JSON.parse(localStorage.getItem('user') || '{}');
 
     const axiosConfig = {
         headers: {
@@ -25,11 +28,20 @@ const ViewLearningPlan = () => {
         fetchPlan();
     }, []); // eslint-disable-line react-hooks/exhaustive-deps
 
-    const fetchPlan = async () => {
+    // The listing only carries summaries; a plan's details and steps are loaded when it is opened
+    const fetchPlan = async (cursor = null) => {
+        if (!currentUser.id) {
+            setLearningPlan([]);
+            setLoading(false);
+            return;
+        }
         try {
             setLoading(true);
             setError('');
-            const response = await axios.get('http://localhost:8080/api/plan', axiosConfig);
+            const response = await axios.get('http://localhost:8080/api/plan', {
+                ...axiosConfig,
+                params: { userId: currentUser.id, cursor: cursor || undefined, limit: 20 },
+            });
 
             if (response.data) {
                 const validatedData = (response.data || []).map(item => ({
@@ -43,7 +55,8 @@ const ViewLearningPlan = () => {
                     dateCreated: item.dateCreated || new Date().toISOString(),
                     templateType: item.templateType || 'recipe',
                 }));
-                setLearningPlan(validatedData);
+                setLearningPlan(prev => cursor ? [...prev, ...validatedData] : validatedData);
+                setNextCursor(response.headers['x-next-cursor'] || null);
             } else {
                 throw new Error('No data received from server');
             }
@@ -55,6 +68,32 @@ const ViewLearningPlan = () => {
         }
     };
 
+    const storeFullPlan = (plan) => {
+        const timeline = plan.timeline || [];
+        setFullPlans(prev => ({ ...prev, [plan.id]: { ...plan, details: plan.details || '', timeline } }));
+        setCheckedSteps(prev => ({
+            ...prev,
+            [plan.id]: timeline.map((step, index) => (step.completed ? index : null)).filter(index => index !== null),
+        }));
+    };
+
+    const togglePlan = async (plan) => {
+        if (fullPlans[plan.id]) {
+            setFullPlans(prev => {
+                const next = { ...prev };
+                delete next[plan.id];
+                return next;
+            });
+            return;
+        }
+        try {
+            const response = await axios.get(`http://localhost:8080/api/plan/${plan.id}`, axiosConfig);
+            storeFullPlan({ ...plan, ...response.data });
+        } catch (error) {
+            setError('Failed to load plan');
+        }
+    };
+
     const getTemplateIcon = (type) => {
         switch (type) {
             case 'recipe':
@@ -86,14 +125,27 @@ const ViewLearningPlan = () => {
         }
     };
 
-    const handleCheckboxChange = (planId, stepIndex) => {
-        setCheckedSteps(prev => {
-            const current = prev[planId] || [];
-            const updated = current.includes(stepIndex)
-                ? current.filter(i => i !== stepIndex)
-                : [...current, stepIndex];
-            return { ...prev, [planId]: updated };
-        });
+    // Persists a single step with a versioned PATCH; on a conflict the plan is reloaded so the click can be retried
+    const handleCheckboxChange = async (planId, stepIndex) => {
+        const plan = fullPlans[planId];
+        if (!plan) return;
+        const completed = !(checkedSteps[planId] || []).includes(stepIndex);
+        try {
+            const response = await axios.patch(
+                `http://localhost:8080/api/plan/${planId}/timeline/${stepIndex}`,
+                { completed, version: plan.version || 0 },
+                axiosConfig
+            );
+            storeFullPlan({ ...plan, ...response.data });
+        } catch (error) {
+            if (error.response?.status === 409) {
+                const response = await axios.get(`http://localhost:8080/api/plan/${planId}`, axiosConfig);
+                storeFullPlan({ ...plan, ...response.data });
+                setError('This plan was changed elsewhere and has been reloaded.');
+            } else {
+                setError(error.response?.data?.message || 'Failed to update step');
+            }
+        }
     };    const handleShareProgress = (plan) => {
         const completedSteps = checkedSteps[plan.id] || [];
         if (completedSteps.length === 0) {
@@ -142,14 +194,14 @@ const ViewLearningPlan = () => {
                 </div>
             ) : (
                 <div className="grid grid-cols-1 md:grid-cols-2 gap-6">
-                    {learningPlan.map((plan) => {
+                    {learningPlan.map((summary) => {
+                        const plan = fullPlans[summary.id] || summary;
+                        const expanded = Boolean(fullPlans[summary.id]);
                         // Extract description and ingredients if details contains two lines
                         const detailsLines = plan.details.split('\n');
                         const description = detailsLines[0] || 'No description available.';
                         const ingredients = detailsLines[1] || 'No ingredients listed.';
 
-                        console.log('DEBUG: plan.timeline', plan.timeline);
-
                         return (
                             <div key={plan.id} className="bg-white rounded-xl shadow-md border border-orange-100 hover:shadow-lg transition-all">
                                 <div className="bg-orange-50 p-4 border-b border-orange-100">
@@ -172,6 +224,7 @@ const ViewLearningPlan = () => {
                                         <span className="ml-2 text-xs">{formatDate(plan.dateCreated)}</span>
                                     </div>
 
+                                    {expanded && (<>
                                     {/* Description & Ingredients side by side */}
                                     <div className="grid grid-cols-2 gap-6 mb-6">
                                         <div>
@@ -230,15 +283,24 @@ const ViewLearningPlan = () => {
                                     ) : (
                                         <div className="mb-6 text-gray-500 italic">No steps available for this plan.</div>
                                     )}
+                                    </>)}
 
                                     {/* Share progress */}
-                                    <div className="flex justify-end">
+                                    <div className="flex justify-end gap-2">
+                                        <button
+                                            onClick={() => togglePlan(summary)}
+                                            className="px-5 py-2 bg-white border border-orange-300 text-orange-700 rounded hover:bg-orange-50 text-sm shadow-sm transition-colors"
+                                        >
+                                            {expanded ? 'Hide Steps' : 'Show Steps'}
+                                        </button>
+                                        {expanded && (
                                         <button
                                             onClick={() => handleShareProgress(plan)}
                                             className="px-5 py-2 bg-orange-500 text-white rounded hover:bg-orange-600 text-sm shadow-md transition-colors"
                                         >
                                             Share Progress
                                         </button>
+                                        )}
                                     </div>
                                 </div>
                             </div>
@@ -246,6 +308,16 @@ const ViewLearningPlan = () => {
                     })}
                 </div>
             )}
+            {nextCursor && !loading && (
+                <div className="text-center mt-8">
+                    <button
+                        onClick={() => fetchPlan(nextCursor)}
+                        className="px-5 py-2 bg-orange-500 text-white rounded hover:bg-orange-600 text-sm shadow-md transition-colors"
+                    >
+                        Load more
+                    </button>
+                </div>
+            )}
         </div>
     );
 };
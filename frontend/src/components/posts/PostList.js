@@ -33,6 +33,8 @@ const PostList = ({ posts: initialPosts }) => {
   const [userDetails, setUserDetails] = useState({});
   const [isLoading, setIsLoading] = useState(!initialPosts);
   const [loadingRetries, setLoadingRetries] = useState(0);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [isLoadingMore, setIsLoadingMore] = useState(false);
   const maxRetries = 3;
 
   useEffect(() => {
@@ -50,34 +52,40 @@ const PostList = ({ posts: initialPosts }) => {
     if (!initialPosts) fetchPosts();
   }, [initialPosts]);
 
-  const fetchUserDetails = async (userId) => {
-    if (userDetails[userId]) return; // Don't fetch if we already have the details
-    
-    try {
-      const response = await api.get(`/api/users/${userId}`);
-      if (response.data) {
-        setUserDetails(prev => ({
-          ...prev,
-          [userId]: {
-            username: response.data.username,
-            fullName: response.data.fullName,
-            profilePicture: response.data.profilePicture
-          }
-        }));
-      }
-    } catch (error) {
-      console.error('Error fetching user details:', error);
-    }
-  };
+  const [cards, setCards] = useState({});
 
-  // Fetch user details for each post
+  // Load like/comment state and author summaries for every post on screen in one request
   useEffect(() => {
-    posts.forEach(post => {
-      if (post.userId) {
-        fetchUserDetails(post.userId);
+    const missing = posts
+      .map(post => post.postId?.toString())
+      .filter(postId => postId && !cards[postId]);
+    if (missing.length === 0) return;
+
+    const fetchCards = async () => {
+      try {
+        const response = await api.post('/api/posts/cards', { postIds: missing, viewerId: currentUserId });
+        const loaded = response.data || {};
+        setCards(prev => ({ ...prev, ...loaded }));
+        setUserDetails(prev => {
+          const next = { ...prev };
+          Object.values(loaded).forEach(card => {
+            if (card.author) {
+              next[card.author.id] = {
+                username: card.author.username,
+                fullName: card.author.fullName,
+                profilePicture: card.author.profilePicture
+              };
+            }
+          });
+          return next;
+        });
+      } catch (error) {
+        console.error('Error fetching post cards:', error);
       }
-    });
-  }, [posts]);  const fetchPosts = async () => {
+    };
+
+    fetchCards();
+  }, [posts, currentUserId]);  const fetchPosts = async () => {
     try {
       setIsLoading(true);
       
@@ -87,11 +95,12 @@ const PostList = ({ posts: initialPosts }) => {
         return;
       }
 
-      // For home page, always fetch all posts
+      // For home page, fetch the first page of the feed
       const response = await api.get('/api/posts');
       
       if (response.data) {
         setPosts(response.data);
+        setNextCursor(response.headers['x-next-cursor'] || null);
         setLoadingRetries(0);
       } else {
         throw new Error('No data in response');
@@ -110,6 +119,20 @@ const PostList = ({ posts: initialPosts }) => {
     }
   };
 
+  const loadMorePosts = async () => {
+    if (!nextCursor || isLoadingMore) return;
+    try {
+      setIsLoadingMore(true);
+      const response = await api.get('/api/posts', { params: { cursor: nextCursor } });
+      setPosts(prev => [...prev, ...(response.data || [])]);
+      setNextCursor(response.headers['x-next-cursor'] || null);
+    } catch (error) {
+      console.error('Error loading more posts:', error);
+    } finally {
+      setIsLoadingMore(false);
+    }
+  };
+
   const handleEditPost = (post) => {
     if (!post || !post.postId) {
       alert('Cannot edit this post at the moment');
@@ -291,11 +314,24 @@ const PostList = ({ posts: initialPosts }) => {
             <div className="p-4 flex-grow bg-gradient-to-b from-white to-gray-50 transition-colors group-hover:from-white group-hover:to-orange-50/30">
               <h3 className="text-lg font-semibold mb-2 line-clamp-1 group-hover:text-orange-600 transition-all">{post.title}</h3>
               <p className="text-gray-600 text-sm line-clamp-2 mb-4 group-hover:line-clamp-none transition-all duration-500 ease-in-out">{post.description}</p>
-              <SocialInteractionBar itemId={post.postId.toString()} userId={currentUserId} />
+              {cards[post.postId.toString()] && (
+                <SocialInteractionBar itemId={post.postId.toString()} userId={currentUserId} card={cards[post.postId.toString()]} />
+              )}
             </div>
           </div>
         ))}
       </div>
+      {!initialPosts && nextCursor && (
+        <div className="flex justify-center mt-6">
+          <button
+            onClick={loadMorePosts}
+            disabled={isLoadingMore}
+            className="px-6 py-2 bg-orange-500 hover:bg-orange-600 text-white rounded-full shadow transition-all disabled:opacity-50"
+          >
+            {isLoadingMore ? 'Loading...' : 'Load more'}
+          </button>
+        </div>
+      )}
     </div>
   );
 };
@@ -0,0 +1,57 @@
+import React, { createContext, useCallback, useContext, useEffect, useRef } from 'react';
+
+const NotificationStreamContext = createContext();
+
+// Calls the listener for every notification pushed to the current user
+export function useNotificationStream(listener) {
+  const subscribe = useContext(NotificationStreamContext);
+  const listenerRef = useRef(listener);
+  listenerRef.current = listener;
+
+  useEffect(() => subscribe((event) => listenerRef.current(event)), [subscribe]);
+}
+
+// One EventSource per tab shared by the badge and the list, open while anything is subscribed
+export function NotificationStreamProvider({ children }) {
+  const sourceRef = useRef(null);
+  const listenersRef = useRef(new Set());
+
+  const subscribe = useCallback((listener) => {
+    const listeners = listenersRef.current;
+    listeners.add(listener);
+
+    if (!sourceRef.current) {
+      const currentUser = JSON.parse(localStorage.getItem('user') || '{}');
+      if (currentUser.id) {
+        const source = new EventSource(
+          `http://localhost:8080/api/notifications/stream?userId=${currentUser.id}`,
+          { withCredentials: true }
+        );
+        source.addEventListener('notification', (event) => {
+          listeners.forEach((notify) => notify(event));
+        });
+        sourceRef.current = source;
+      }
+    }
+
+    return () => {
+      listeners.delete(listener);
+      if (listeners.size === 0 && sourceRef.current) {
+        sourceRef.current.close();
+        sourceRef.current = null;
+      }
+    };
+  }, []);
+
+  useEffect(() => () => {
+    if (sourceRef.current) {
+      sourceRef.current.close();
+    }
+  }, []);
+
+  return (
+    <NotificationStreamContext.Provider value={subscribe}>
+      {children}
+    </NotificationStreamContext.Provider>
+  );
+}
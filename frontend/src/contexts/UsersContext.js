@@ -26,8 +26,27 @@ export function UsersProvider({ children }) {
     }
   };
 
+  // Resolves many users with one request instead of one GET per id
+  const fetchUsers = async (userIds) => {
+    const ids = [...new Set(userIds)].filter((id) => id && !users[id] && !loadingUsers[id]);
+    if (ids.length === 0) return;
+
+    setLoadingUsers(prev => ({ ...prev, ...Object.fromEntries(ids.map((id) => [id, true])) }));
+    try {
+      const response = await api.post('/api/users/batch', { ids });
+      setUsers(prev => ({
+        ...prev,
+        ...Object.fromEntries(response.data.map((user) => [user.id, user]))
+      }));
+    } catch (error) {
+      console.error('Error fetching users:', error);
+    } finally {
+      setLoadingUsers(prev => ({ ...prev, ...Object.fromEntries(ids.map((id) => [id, false])) }));
+    }
+  };
+
   return (
-    <UsersContext.Provider value={{ users, fetchUser }}>
+    <UsersContext.Provider value={{ users, fetchUser, fetchUsers }}>
       {children}
     </UsersContext.Provider>
   );
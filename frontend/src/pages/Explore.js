@@ -7,8 +7,18 @@ const Explore = () => {
   const [searchQuery, setSearchQuery] = useState('');
   const [users, setUsers] = useState([]);
   const [loading, setLoading] = useState(false);
+  const [suggestions, setSuggestions] = useState([]);
   const navigate = useNavigate();
 
+  // People followed by the people you follow, ranked by mutual follows
+  useEffect(() => {
+    const currentUser = JSON.parse(localStorage.getItem('user') || '{}');
+    if (!currentUser.id) return;
+    api.get(`/api/follow/suggestions/${currentUser.id}?limit=12`)
+      .then((response) => setSuggestions(Array.isArray(response.data) ? response.data : []))
+      .catch((error) => console.error('Error loading suggestions:', error));
+  }, []);
+
   const searchUsers = async (query) => {
     if (!query.trim()) {
       setUsers([]);
@@ -81,8 +91,12 @@ const Explore = () => {
           <p className="text-gray-600">No users found</p>
         </div>
       ) : (
+        <>
+        {!searchQuery && suggestions.length > 0 && (
+          <h2 className="text-lg font-semibold text-gray-900 mb-4">Suggested for you</h2>
+        )}
         <div className="grid grid-cols-1 md:grid-cols-2 lg:grid-cols-3 gap-6">
-          {users.map((user) => (
+          {(searchQuery ? users : suggestions).map((user) => (
             <div
               key={user.id}
               onClick={() => handleUserClick(user)}
@@ -114,11 +128,17 @@ const Explore = () => {
                   <h3 className="text-lg font-semibold text-gray-900">{user.fullName || user.username}</h3>
                   <p className="text-sm text-gray-500">@{user.username}</p>
                   {user.bio && <p className="mt-1 text-sm text-gray-600 line-clamp-2">{user.bio}</p>}
+                  {!searchQuery && user.mutualCount > 0 && (
+                    <p className="mt-1 text-xs text-gray-500">
+                      Followed by {user.mutualCount} {user.mutualCount === 1 ? 'person' : 'people'} you follow
+                    </p>
+                  )}
                 </div>
               </div>
             </div>
           ))}
         </div>
+        </>
       )}
     </div>
   );